@@ -1,5 +1,6 @@
 package dpas.client.app;
 
+import dpas.common.domain.SignatureSuite;
 import dpas.grpc.contract.Contract;
 import dpas.grpc.contract.Contract.Announcement;
 import dpas.library.Library;
@@ -13,8 +14,6 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.stream.Stream;
 
-import static dpas.common.domain.constants.CryptographicConstants.ASYMMETRIC_KEY_ALGORITHM;
-
 public class App {
 
     private static KeyStore keystore;
@@ -97,12 +96,12 @@ public class App {
             PublicKey pubKey = keyPair.getPublic();
             PrivateKey privKey = keyPair.getPrivate();
 
-            if (!pubKey.getAlgorithm().equals(ASYMMETRIC_KEY_ALGORITHM)) {
+            if (!SignatureSuite.isSupported(pubKey)) {
                 System.out.println("Error: Public Key algorithm not supported");
                 return;
             }
 
-            if (!privKey.getAlgorithm().equals(ASYMMETRIC_KEY_ALGORITHM)) {
+            if (!SignatureSuite.isSupported(privKey)) {
                 System.out.println("Error: Private Key algorithm not supported");
                 return;
             }
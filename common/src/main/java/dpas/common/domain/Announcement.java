@@ -9,6 +9,7 @@ import dpas.grpc.contract.Contract;
 import javax.json.Json;
 import javax.json.JsonObject;
 import java.security.*;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
@@ -148,10 +149,9 @@ public class Announcement {
     public static byte[] generateSignature(PrivateKey privKey, String message,
                                            Set<String> references, String boadIdentifier, long seq) throws CommonDomainException {
         try {
-            var messageBytes = generateMessageBytes(message, references, boadIdentifier, seq);
-            var sign = Signature.getInstance(CryptographicConstants.SIGNATURE_ALGORITHM);
+            var sign = SignatureSuite.of(privKey).newSignature();
             sign.initSign(privKey);
-            sign.update(messageBytes);
+            ContentWriter.update(sign, writer -> writeMessage(writer, message, references, boadIdentifier, seq));
             return sign.sign();
         } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException e) {
             throw new InvalidSignatureException("Invalid Signature: could not be created");
@@ -171,15 +171,26 @@ public class Announcement {
     }
 
     public static byte[] generateMessageBytes(String message, Set<String> references, String boardIdentifier, long seq) {
-        var builder = new StringBuilder();
-        builder.append(message);
-        Stream.ofNullable(references)
-                .flatMap(Set::stream)
-                .sorted() //Sort references to ensure the same signature on client and server
-                .forEach(builder::append);
-        builder.append(boardIdentifier);
-        builder.append(seq);
-        return builder.toString().getBytes();
+        return ContentWriter.toByteArray(writer -> writeMessage(writer, message, references, boardIdentifier, seq));
+    }
+
+    /**
+     * Writes the signed bytes of an announcement (see {@link #generateMessageBytes})
+     */
+    public static void writeMessage(ContentWriter writer, String message, Set<String> references, String boardIdentifier, long seq) {
+        writer.writeString(message);
+        if (references != null && references.size() == 1) {
+            writer.writeString(references.iterator().next());
+        } else if (references != null && !references.isEmpty()) {
+            //Sort references to ensure the same signature on client and server
+            var sorted = references.toArray(new String[0]);
+            Arrays.sort(sorted);
+            for (var reference : sorted) {
+                writer.writeString(reference);
+            }
+        }
+        writer.writeString(boardIdentifier);
+        writer.writeDecimal(seq);
     }
 
 
@@ -218,12 +229,15 @@ public class Announcement {
                                       Set<String> references, String boardIdentifier, long seq) throws CommonDomainException {
         try {
 
-            byte[] messageBytes = generateMessageBytes(message, references, boardIdentifier, seq);
             PublicKey publicKey = user.getPublicKey();
+            if (MerkleSignature.isMerkle(signature)
+                    && MerkleSignature.verify(publicKey, generateMessageBytes(message, references, boardIdentifier, seq), signature)) {
+                return;
+            }
 
-            Signature sign = Signature.getInstance(CryptographicConstants.SIGNATURE_ALGORITHM);
+            Signature sign = SignatureSuite.of(publicKey).newSignature();
             sign.initVerify(publicKey);
-            sign.update(messageBytes);
+            ContentWriter.update(sign, writer -> writeMessage(writer, message, references, boardIdentifier, seq));
 
             if (!sign.verify(signature))
                 throw new InvalidSignatureException("Invalid Signature: Signature Could not be verified");
@@ -0,0 +1,304 @@
+package dpas.common.domain;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.util.Arrays;
+
+import static dpas.common.domain.constants.CryptographicConstants.DIGEST_ALGORITHM;
+
+/**
+ * Streams the fields of a mac or signature input straight into a digest or a signature, through a buffer reused by
+ * each thread, so the input is never built as an array.
+ * Numbers are big endian and strings UTF-8
+ */
+public final class ContentWriter {
+    private static final int BUFFER_SIZE = 512;
+    /**
+     * Longest UTF-8 encoding of a code point
+     */
+    private static final int MAX_CHAR_BYTES = 4;
+
+    private static final ThreadLocal<ContentWriter> WRITERS = ThreadLocal.withInitial(ContentWriter::new);
+
+    /**
+     * The fields of an input, written in order
+     */
+    @FunctionalInterface
+    public interface Content {
+        void writeTo(ContentWriter writer);
+    }
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private MessageDigest sha256;
+    private MessageDigest digest;
+    private Signature signature;
+    private byte[] bytes;
+    private int length;
+
+    private ContentWriter() {
+    }
+
+    /**
+     * @return the SHA-256 hash of the content
+     */
+    public static byte[] digest(Content content) {
+        var writer = writer();
+        if (writer.sha256 == null) {
+            try {
+                writer.sha256 = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                //Should never happen
+                throw new IllegalStateException("Error: Could not get SHA-256 Hash", e);
+            }
+        }
+        var digest = writer.sha256;
+        writer.digest = digest;
+        try {
+            writer.run(content);
+        } catch (RuntimeException e) {
+            digest.reset();
+            throw e;
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Updates the (initialized) signature with the content
+     */
+    public static void update(Signature signature, Content content) throws SignatureException {
+        var writer = writer();
+        writer.signature = signature;
+        try {
+            writer.run(content);
+        } catch (UpdateException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @return the content as an array, for the inputs that are also sent or stored
+     */
+    public static byte[] toByteArray(Content content) {
+        var writer = writer();
+        writer.bytes = new byte[BUFFER_SIZE];
+        writer.length = 0;
+        try {
+            writer.run(content);
+            return Arrays.copyOf(writer.bytes, writer.length);
+        } finally {
+            writer.bytes = null;
+        }
+    }
+
+    public ContentWriter write(byte[] bytes) {
+        return write(bytes, 0, bytes.length);
+    }
+
+    public ContentWriter write(byte[] bytes, int offset, int length) {
+        if (length > buffer.length - position) {
+            flush();
+            if (length > buffer.length) {
+                target(bytes, offset, length);
+                return this;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, position, length);
+        position += length;
+        return this;
+    }
+
+    public ContentWriter write(ByteString bytes) {
+        int size = bytes.size();
+        int offset = 0;
+        while (offset < size) {
+            if (position == buffer.length) {
+                flush();
+            }
+            int length = Math.min(size - offset, buffer.length - position);
+            bytes.copyTo(buffer, offset, position, length);
+            position += length;
+            offset += length;
+        }
+        return this;
+    }
+
+    /**
+     * Writes the message's serialized form
+     */
+    public ContentWriter write(MessageLite message) {
+        int size = message.getSerializedSize();
+        if (size > buffer.length) {
+            return write(message.toByteString());
+        }
+        if (size > buffer.length - position) {
+            flush();
+        }
+        try {
+            var output = CodedOutputStream.newInstance(buffer, position, size);
+            message.writeTo(output);
+            output.checkNoSpaceLeft();
+        } catch (IOException e) {
+            //Never happens, the array has the message's size
+            throw new IllegalStateException(e);
+        }
+        position += size;
+        return this;
+    }
+
+    public ContentWriter writeLong(long value) {
+        ensure(Long.BYTES);
+        for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    public ContentWriter writeInt(int value) {
+        ensure(Integer.BYTES);
+        for (int shift = Integer.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            buffer[position++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the number's decimal digits, as {@link Long#toString(long)}
+     */
+    public ContentWriter writeDecimal(long value) {
+        if (value < 0) {
+            return writeString(Long.toString(value));
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        ensure(digits);
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+        return this;
+    }
+
+    /**
+     * Writes the string's UTF-8 bytes, as {@link String#getBytes(java.nio.charset.Charset)}
+     * (unpaired surrogates are written as '?')
+     */
+    public ContentWriter writeString(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            ensure(MAX_CHAR_BYTES);
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the number of bytes {@link #writeString} writes for the string
+     */
+    public static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static ContentWriter writer() {
+        var writer = WRITERS.get();
+        //A content written while another one is (a nested digest) gets its own writer
+        return writer.digest == null && writer.signature == null && writer.bytes == null ? writer : new ContentWriter();
+    }
+
+    private void run(Content content) {
+        position = 0;
+        try {
+            content.writeTo(this);
+            flush();
+        } finally {
+            digest = null;
+            signature = null;
+        }
+    }
+
+    private void ensure(int length) {
+        if (length > buffer.length - position) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        target(buffer, 0, position);
+        position = 0;
+    }
+
+    private void target(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (digest != null) {
+            digest.update(bytes, offset, length);
+        } else if (signature != null) {
+            try {
+                signature.update(bytes, offset, length);
+            } catch (SignatureException e) {
+                throw new UpdateException(e);
+            }
+        } else {
+            if (length > this.bytes.length - this.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.length + length));
+            }
+            System.arraycopy(bytes, offset, this.bytes, this.length, length);
+            this.length += length;
+        }
+    }
+
+    private static final class UpdateException extends RuntimeException {
+        private UpdateException(SignatureException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized SignatureException getCause() {
+            return (SignatureException) super.getCause();
+        }
+    }
+}
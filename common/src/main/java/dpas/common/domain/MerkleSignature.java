@@ -0,0 +1,204 @@
+package dpas.common.domain;
+
+import dpas.common.domain.constants.CryptographicConstants;
+import dpas.common.domain.exception.CommonDomainException;
+import dpas.common.domain.exception.InvalidSignatureException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.security.*;
+import java.util.*;
+
+/**
+ * Signs several announcements with a single signature over the root of a Merkle tree of their contents.
+ * Each announcement's signature holds the root signature and the path from its leaf to the root, so it can still be
+ * verified on its own. Roots already verified are remembered, so verifying the rest of a batch doesn't use the key again
+ */
+public final class MerkleSignature {
+
+    private static final byte[] MAGIC = {'M', 'R', 'K', 'L'};
+    private static final byte LEAF = 0;
+    private static final byte NODE = 1;
+    private static final byte SIBLING_LEFT = 0;
+    private static final byte SIBLING_RIGHT = 1;
+    private static final int HASH_SIZE = 32;
+    private static final int MAX_DEPTH = 32;
+    private static final int MAX_VERIFIED_ROOTS = 4096;
+
+    /**
+     * (author key, root) pairs whose root signature was already verified
+     */
+    private static final Map<ByteBuffer, Boolean> verifiedRoots = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Boolean> eldest) {
+                    return size() > MAX_VERIFIED_ROOTS;
+                }
+            });
+
+    private MerkleSignature() {
+    }
+
+    /**
+     * @param messages bytes of each announcement (see {@link Announcement#generateMessageBytes})
+     * @return the signature of each announcement, in the same order
+     */
+    public static List<byte[]> sign(PrivateKey privKey, List<byte[]> messages) throws CommonDomainException {
+        if (messages.isEmpty()) {
+            throw new InvalidSignatureException("Invalid Signature: nothing to sign");
+        }
+        try {
+            List<List<byte[]>> levels = new ArrayList<>();
+            List<byte[]> level = new ArrayList<>(messages.size());
+            for (byte[] message : messages) {
+                level.add(hashLeaf(message));
+            }
+            levels.add(level);
+            while (level.size() > 1) {
+                level = nextLevel(level);
+                levels.add(level);
+            }
+            byte[] root = level.get(0);
+
+            var sign = SignatureSuite.of(privKey).newSignature();
+            sign.initSign(privKey);
+            sign.update(MAGIC);
+            sign.update(root);
+            byte[] rootSignature = sign.sign();
+
+            List<byte[]> signatures = new ArrayList<>(messages.size());
+            for (int i = 0; i < messages.size(); i++) {
+                signatures.add(encode(rootSignature, path(levels, i)));
+            }
+            return signatures;
+        } catch (NoSuchAlgorithmException | InvalidKeyException | SignatureException | IOException e) {
+            throw new InvalidSignatureException("Invalid Signature: could not be created");
+        }
+    }
+
+    public static boolean isMerkle(byte[] signature) {
+        if (signature.length < MAGIC.length + Integer.BYTES) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (signature[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean verify(PublicKey publicKey, byte[] message, byte[] signature) {
+        try {
+            var buffer = ByteBuffer.wrap(signature);
+            buffer.position(MAGIC.length);
+            byte[] rootSignature = new byte[buffer.getInt()];
+            buffer.get(rootSignature);
+            int depth = buffer.get();
+            if (depth < 0 || depth > MAX_DEPTH) {
+                return false;
+            }
+            byte[] node = hashLeaf(message);
+            byte[] sibling = new byte[HASH_SIZE];
+            for (int i = 0; i < depth; i++) {
+                byte side = buffer.get();
+                buffer.get(sibling);
+                if (side == SIBLING_LEFT) {
+                    node = hashNode(sibling, node);
+                } else if (side == SIBLING_RIGHT) {
+                    node = hashNode(node, sibling);
+                } else {
+                    return false;
+                }
+            }
+            if (buffer.hasRemaining()) {
+                return false;
+            }
+            return verifyRoot(publicKey, node, rootSignature);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            return false;
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    private static boolean verifyRoot(PublicKey publicKey, byte[] root, byte[] rootSignature) throws GeneralSecurityException {
+        byte[] encodedKey = publicKey.getEncoded();
+        var key = ByteBuffer.allocate(encodedKey.length + root.length).put(encodedKey).put(root).flip();
+        if (verifiedRoots.containsKey(key)) {
+            return true;
+        }
+        var sign = SignatureSuite.of(publicKey).newSignature();
+        sign.initVerify(publicKey);
+        sign.update(MAGIC);
+        sign.update(root);
+        if (!sign.verify(rootSignature)) {
+            return false;
+        }
+        verifiedRoots.put(key, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * Pairs the nodes of a level, an unpaired last node goes up unchanged
+     */
+    private static List<byte[]> nextLevel(List<byte[]> level) throws NoSuchAlgorithmException {
+        List<byte[]> next = new ArrayList<>((level.size() + 1) / 2);
+        for (int i = 0; i < level.size(); i += 2) {
+            if (i + 1 < level.size()) {
+                next.add(hashNode(level.get(i), level.get(i + 1)));
+            } else {
+                next.add(level.get(i));
+            }
+        }
+        return next;
+    }
+
+    private static List<byte[]> path(List<List<byte[]>> levels, int index) {
+        List<byte[]> path = new ArrayList<>();
+        for (int l = 0; l < levels.size() - 1; l++) {
+            var level = levels.get(l);
+            if (index % 2 == 1) {
+                path.add(withSide(SIBLING_LEFT, level.get(index - 1)));
+            } else if (index + 1 < level.size()) {
+                path.add(withSide(SIBLING_RIGHT, level.get(index + 1)));
+            }
+            index /= 2;
+        }
+        return path;
+    }
+
+    private static byte[] withSide(byte side, byte[] hash) {
+        return ByteBuffer.allocate(1 + hash.length).put(side).put(hash).array();
+    }
+
+    private static byte[] encode(byte[] rootSignature, List<byte[]> path) throws IOException {
+        try (var bytes = new ByteArrayOutputStream(); var stream = new DataOutputStream(bytes)) {
+            stream.write(MAGIC);
+            stream.writeInt(rootSignature.length);
+            stream.write(rootSignature);
+            stream.writeByte(path.size());
+            for (byte[] entry : path) {
+                stream.write(entry);
+            }
+            stream.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    private static byte[] hashLeaf(byte[] message) throws NoSuchAlgorithmException {
+        var digest = MessageDigest.getInstance(CryptographicConstants.DIGEST_ALGORITHM);
+        digest.update(LEAF);
+        return digest.digest(message);
+    }
+
+    private static byte[] hashNode(byte[] left, byte[] right) throws NoSuchAlgorithmException {
+        var digest = MessageDigest.getInstance(CryptographicConstants.DIGEST_ALGORITHM);
+        digest.update(NODE);
+        digest.update(left);
+        return digest.digest(right);
+    }
+}
@@ -0,0 +1,225 @@
+package dpas.common.domain;
+
+import java.security.*;
+import java.security.interfaces.ECKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.InvalidParameterSpecException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+
+import static dpas.common.domain.constants.CryptographicConstants.*;
+
+/**
+ * Algorithms a key signs with. The suite is chosen by the key, so clients can use any of them with the same servers.
+ * Only RSA keys can cipher, so the servers' keys (messages are ciphered to them) must stay RSA
+ */
+public enum SignatureSuite {
+    RSA(ASYMMETRIC_KEY_ALGORITHM, SIGNATURE_ALGORITHM,
+            new byte[]{0x2A, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xF7, 0x0D, 0x01, 0x01, 0x01}),
+    /**
+     * ECDSA over P-256, keys on other curves are rejected
+     */
+    ECDSA_P256("EC", "SHA256withECDSA",
+            new byte[]{0x2A, (byte) 0x86, 0x48, (byte) 0xCE, 0x3D, 0x02, 0x01}),
+    /**
+     * Needs Java 15 or later
+     */
+    ED25519("Ed25519", "Ed25519",
+            new byte[]{0x2B, 0x65, 0x70});
+
+    private static final String EC_CURVE = "secp256r1";
+    private static final byte[] EC_CURVE_OID = {0x2A, (byte) 0x86, 0x48, (byte) 0xCE, 0x3D, 0x03, 0x01, 0x07};
+
+    private static final int DER_SEQUENCE = 0x30;
+    private static final int DER_OID = 0x06;
+
+    private final String keyAlgorithm;
+    private final String signatureAlgorithm;
+    private final byte[] oid;
+
+    SignatureSuite(String keyAlgorithm, String signatureAlgorithm, byte[] oid) {
+        this.keyAlgorithm = keyAlgorithm;
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.oid = oid;
+    }
+
+    public String getKeyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    public String getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    public Signature newSignature() throws NoSuchAlgorithmException {
+        return Signature.getInstance(signatureAlgorithm);
+    }
+
+    public KeyPair generateKeyPair() throws GeneralSecurityException {
+        var generator = KeyPairGenerator.getInstance(keyAlgorithm);
+        if (this == RSA) {
+            generator.initialize(4096);
+        } else if (this == ECDSA_P256) {
+            generator.initialize(new ECGenParameterSpec(EC_CURVE));
+        }
+        return generator.generateKeyPair();
+    }
+
+    public boolean isAvailable() {
+        try {
+            newSignature();
+            KeyFactory.getInstance(keyAlgorithm);
+            return true;
+        } catch (NoSuchAlgorithmException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the suite the key belongs to
+     */
+    public static SignatureSuite of(Key key) throws NoSuchAlgorithmException {
+        switch (key.getAlgorithm()) {
+            case ASYMMETRIC_KEY_ALGORITHM:
+                return RSA;
+            case "EC":
+                if (!(key instanceof ECKey) || !isP256(((ECKey) key).getParams())) {
+                    throw new NoSuchAlgorithmException("Unsupported EC curve, only P-256 keys are supported");
+                }
+                return ECDSA_P256;
+            case "EdDSA":
+            case "Ed25519":
+                return ED25519;
+            default:
+                throw new NoSuchAlgorithmException("Unsupported key algorithm: " + key.getAlgorithm());
+        }
+    }
+
+    public static boolean isSupported(Key key) {
+        try {
+            of(key);
+            return true;
+        } catch (NoSuchAlgorithmException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the suite of an X.509 encoded public key
+     */
+    public static SignatureSuite of(byte[] encodedKey) throws NoSuchAlgorithmException {
+        SignatureSuite suite;
+        try {
+            suite = find(encodedKey);
+        } catch (InvalidKeySpecException e) {
+            throw new NoSuchAlgorithmException(e.getMessage());
+        }
+        if (suite == null) {
+            throw new NoSuchAlgorithmException("Unsupported key algorithm");
+        }
+        return suite;
+    }
+
+    /**
+     * @return the X.509 encoded public key, of any suite.
+     * Keys that aren't of a supported suite (or aren't well formed) are parsed as RSA keys, so they fail with the
+     * same errors they always did
+     */
+    public static PublicKey publicKey(byte[] encodedKey) throws NoSuchAlgorithmException, InvalidKeySpecException {
+        var suite = find(encodedKey);
+        return KeyFactory.getInstance((suite == null ? RSA : suite).keyAlgorithm).generatePublic(new X509EncodedKeySpec(encodedKey));
+    }
+
+    /**
+     * Reads the AlgorithmIdentifier of an X.509 SubjectPublicKeyInfo:
+     * SEQUENCE { SEQUENCE { OID algorithm, parameters }, BIT STRING key }
+     *
+     * @return null if the key isn't well formed or of an unknown algorithm
+     * @throws InvalidKeySpecException if the key is an EC key on a curve other than P-256
+     */
+    private static SignatureSuite find(byte[] encodedKey) throws InvalidKeySpecException {
+        if (encodedKey == null) {
+            return null;
+        }
+        var info = new DerReader(encodedKey, 0, encodedKey.length).next(DER_SEQUENCE);
+        var algorithm = info == null ? null : info.next(DER_SEQUENCE);
+        var oid = algorithm == null ? null : algorithm.next(DER_OID);
+        if (oid == null) {
+            return null;
+        }
+        for (var suite : values()) {
+            if (oid.contentEquals(suite.oid)) {
+                if (suite == ECDSA_P256) {
+                    var curve = algorithm.next(DER_OID);
+                    if (curve == null || !curve.contentEquals(EC_CURVE_OID)) {
+                        throw new InvalidKeySpecException("Unsupported EC curve, only P-256 keys are supported");
+                    }
+                }
+                return suite;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isP256(ECParameterSpec params) {
+        try {
+            var parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec(EC_CURVE));
+            var p256 = parameters.getParameterSpec(ECParameterSpec.class);
+            return params.getCurve().equals(p256.getCurve()) && params.getGenerator().equals(p256.getGenerator())
+                    && params.getOrder().equals(p256.getOrder()) && params.getCofactor() == p256.getCofactor();
+        } catch (NoSuchAlgorithmException | InvalidParameterSpecException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the DER elements in a range of bytes, one after the other
+     */
+    private static final class DerReader {
+        private final byte[] bytes;
+        private final int start;
+        private final int end;
+        private int position;
+
+        private DerReader(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+            this.position = start;
+        }
+
+        /**
+         * @return the content of the next element, null if it doesn't have the tag or isn't well formed
+         */
+        private DerReader next(int tag) {
+            int i = position;
+            if (end - i < 2 || (bytes[i++] & 0xFF) != tag) {
+                return null;
+            }
+            int length = bytes[i++] & 0xFF;
+            if (length >= 0x80) {
+                //Long form, a key is never bigger than 16 MiB
+                int count = length & 0x7F;
+                if (count == 0 || count > 3 || end - i < count) {
+                    return null;
+                }
+                length = 0;
+                for (int j = 0; j < count; j++) {
+                    length = (length << 8) | (bytes[i++] & 0xFF);
+                }
+            }
+            if (length > end - i) {
+                return null;
+            }
+            position = i + length;
+            return new DerReader(bytes, i, i + length);
+        }
+
+        private boolean contentEquals(byte[] value) {
+            return Arrays.equals(bytes, start, end, value, 0, value.length);
+        }
+    }
+}
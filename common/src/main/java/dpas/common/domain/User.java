@@ -9,15 +9,12 @@ import dpas.grpc.contract.Contract;
 import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
-import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.Arrays;
 import java.util.Base64;
 
-import static dpas.common.domain.constants.CryptographicConstants.ASYMMETRIC_KEY_ALGORITHM;
 import static dpas.common.domain.constants.JsonConstants.OPERATION_TYPE_KEY;
 import static dpas.common.domain.constants.JsonConstants.PUBLIC_KEY;
 
@@ -60,8 +57,7 @@ public class User {
 
     public static User fromRequest(Contract.RegisterRequest request)
             throws NoSuchAlgorithmException, InvalidKeySpecException, CommonDomainException {
-        PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM)
-                .generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
+        PublicKey key = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
         return new User(key);
     }
 
@@ -0,0 +1,97 @@
+package dpas.common.domain;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ContentWriterTest {
+
+    private static final String[] STRINGS = {"", "Hello World", "olá, ação", "€中", "😀 emoji",
+            "unpaired \uD83D high", "unpaired \uDE00 low", "ends \uD83D"};
+
+    @Test
+    public void writeString() {
+        for (var value : STRINGS) {
+            var expected = value.getBytes(StandardCharsets.UTF_8);
+            assertArrayEquals(value, expected, ContentWriter.toByteArray(writer -> writer.writeString(value)));
+            assertEquals(value, expected.length, ContentWriter.utf8Length(value));
+        }
+    }
+
+    @Test
+    public void writeLongString() {
+        var value = "中a".repeat(1000);
+        assertArrayEquals(value.getBytes(StandardCharsets.UTF_8), ContentWriter.toByteArray(writer -> writer.writeString(value)));
+    }
+
+    @Test
+    public void writeDecimal() {
+        for (long value : new long[]{0, 1, 9, 10, 1234567890, Long.MAX_VALUE, -1, Long.MIN_VALUE}) {
+            assertArrayEquals(Long.toString(value).getBytes(), ContentWriter.toByteArray(writer -> writer.writeDecimal(value)));
+        }
+    }
+
+    @Test
+    public void writeNumbers() {
+        var expected = ByteBuffer.allocate(Long.BYTES + Integer.BYTES).putLong(-123456789123L).putInt(987654).array();
+        assertArrayEquals(expected, ContentWriter.toByteArray(writer -> writer.writeLong(-123456789123L).writeInt(987654)));
+    }
+
+    @Test
+    public void writeLargeBytes() {
+        var bytes = new byte[5000];
+        new Random(1).nextBytes(bytes);
+        var content = ContentWriter.toByteArray(writer -> writer.writeInt(1).write(ByteString.copyFrom(bytes)).write(bytes).writeInt(2));
+
+        var expected = ByteBuffer.allocate(bytes.length * 2 + Integer.BYTES * 2).putInt(1).put(bytes).put(bytes).putInt(2).array();
+        assertArrayEquals(expected, content);
+    }
+
+    @Test
+    public void digest() throws Exception {
+        var bytes = new byte[1500];
+        new Random(2).nextBytes(bytes);
+        ContentWriter.Content content = writer -> writer.writeLong(7).writeString("Hello World").write(bytes);
+
+        var expected = MessageDigest.getInstance("SHA-256").digest(ContentWriter.toByteArray(content));
+        assertArrayEquals(expected, ContentWriter.digest(content));
+        //The digest is reused
+        assertArrayEquals(expected, ContentWriter.digest(content));
+    }
+
+    @Test
+    public void nestedDigest() throws Exception {
+        var inner = ContentWriter.digest(writer -> writer.writeString("inner"));
+        var outer = ContentWriter.digest(writer -> writer.writeString("outer").write(ContentWriter.digest(w -> w.writeString("inner"))));
+
+        var digest = MessageDigest.getInstance("SHA-256");
+        assertArrayEquals(digest.digest("inner".getBytes()), inner);
+        digest.update("outer".getBytes());
+        assertArrayEquals(digest.digest(inner), outer);
+    }
+
+    @Test
+    public void update() throws Exception {
+        var keyPair = KeyPairGenerator.getInstance("RSA").generateKeyPair();
+        ContentWriter.Content content = writer -> Announcement.writeMessage(writer, "Hello World", Set.of("b", "a", "c"), "board", 42);
+
+        var sign = Signature.getInstance("SHA256withRSA");
+        sign.initSign(keyPair.getPrivate());
+        ContentWriter.update(sign, content);
+        var signature = sign.sign();
+
+        var verify = Signature.getInstance("SHA256withRSA");
+        verify.initVerify(keyPair.getPublic());
+        verify.update("Hello Worldabcboard42".getBytes());
+        assertTrue(verify.verify(signature));
+    }
+}
@@ -0,0 +1,116 @@
+package dpas.common.domain;
+
+import dpas.common.domain.exception.CommonDomainException;
+import dpas.common.domain.exception.InvalidSignatureException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MerkleSignatureTest {
+
+    private static final String MESSAGE = "Hello World";
+
+    private KeyPair _keyPair;
+    private KeyPair _otherKeyPair;
+    private User _user;
+    private AnnouncementBoard _board;
+
+    @Before
+    public void setup() throws NoSuchAlgorithmException, CommonDomainException {
+        KeyPairGenerator keygen = KeyPairGenerator.getInstance("RSA");
+        keygen.initialize(2048);
+        _keyPair = keygen.generateKeyPair();
+        _otherKeyPair = keygen.generateKeyPair();
+        _user = new User(_keyPair.getPublic());
+        _board = _user.getUserBoard();
+    }
+
+    private List<byte[]> contents(int size) {
+        List<byte[]> contents = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            contents.add(Announcement.generateMessageBytes(MESSAGE + i, new HashSet<>(), _board.getIdentifier(), i));
+        }
+        return contents;
+    }
+
+    @Test
+    public void everyLeafVerifies() throws CommonDomainException {
+        for (int size : new int[]{1, 2, 3, 7, 16}) {
+            var contents = contents(size);
+            var signatures = MerkleSignature.sign(_keyPair.getPrivate(), contents);
+            assertEquals(size, signatures.size());
+            for (int i = 0; i < size; i++) {
+                assertTrue(MerkleSignature.isMerkle(signatures.get(i)));
+                assertTrue(MerkleSignature.verify(_keyPair.getPublic(), contents.get(i), signatures.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void signatureOfAnotherLeaf() throws CommonDomainException {
+        var contents = contents(5);
+        var signatures = MerkleSignature.sign(_keyPair.getPrivate(), contents);
+        assertFalse(MerkleSignature.verify(_keyPair.getPublic(), contents.get(0), signatures.get(1)));
+        assertFalse(MerkleSignature.verify(_keyPair.getPublic(), contents.get(4), signatures.get(3)));
+    }
+
+    @Test
+    public void wrongKey() throws CommonDomainException {
+        var contents = contents(3);
+        var signatures = MerkleSignature.sign(_keyPair.getPrivate(), contents);
+        //Verify with the right key first, the verified root must not be accepted for another key
+        assertTrue(MerkleSignature.verify(_keyPair.getPublic(), contents.get(0), signatures.get(0)));
+        assertFalse(MerkleSignature.verify(_otherKeyPair.getPublic(), contents.get(1), signatures.get(1)));
+    }
+
+    @Test
+    public void tamperedPath() throws CommonDomainException {
+        var contents = contents(4);
+        var signature = MerkleSignature.sign(_keyPair.getPrivate(), contents).get(2);
+        signature[signature.length - 1] ^= 1;
+        assertFalse(MerkleSignature.verify(_keyPair.getPublic(), contents.get(2), signature));
+    }
+
+    @Test
+    public void truncatedSignature() throws CommonDomainException {
+        var contents = contents(4);
+        var signature = MerkleSignature.sign(_keyPair.getPrivate(), contents).get(0);
+        var truncated = new byte[signature.length - 10];
+        System.arraycopy(signature, 0, truncated, 0, truncated.length);
+        assertFalse(MerkleSignature.verify(_keyPair.getPublic(), contents.get(0), truncated));
+    }
+
+    @Test
+    public void plainSignatureIsNotMerkle() throws CommonDomainException {
+        var signature = Announcement.generateSignature(_keyPair.getPrivate(), MESSAGE, new HashSet<>(), _board, 0);
+        assertFalse(MerkleSignature.isMerkle(signature));
+    }
+
+    @Test(expected = InvalidSignatureException.class)
+    public void emptyBatch() throws CommonDomainException {
+        MerkleSignature.sign(_keyPair.getPrivate(), new ArrayList<>());
+    }
+
+    @Test
+    public void announcementsWithMerkleSignature() throws CommonDomainException {
+        var signatures = MerkleSignature.sign(_keyPair.getPrivate(), contents(3));
+        for (int i = 0; i < 3; i++) {
+            var announcement = new Announcement(signatures.get(i), _user, MESSAGE + i, null, _board, i);
+            assertArrayEquals(signatures.get(i), announcement.getSignature());
+        }
+    }
+
+    @Test(expected = InvalidSignatureException.class)
+    public void announcementWithWrongMerkleSignature() throws CommonDomainException {
+        var signatures = MerkleSignature.sign(_keyPair.getPrivate(), contents(3));
+        new Announcement(signatures.get(0), _user, MESSAGE + 1, null, _board, 1);
+    }
+}
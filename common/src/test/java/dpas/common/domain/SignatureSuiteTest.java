@@ -0,0 +1,98 @@
+package dpas.common.domain;
+
+import dpas.common.domain.exception.CommonDomainException;
+import dpas.common.domain.exception.InvalidSignatureException;
+import org.junit.Test;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.InvalidKeySpecException;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class SignatureSuiteTest {
+
+    private static final String MESSAGE = "Hello World";
+
+    private void signAndVerify(SignatureSuite suite) throws GeneralSecurityException, CommonDomainException {
+        assumeTrue(suite.isAvailable());
+        var keyPair = suite.generateKeyPair();
+        var user = new User(keyPair.getPublic());
+        var board = user.getUserBoard();
+
+        assertEquals(suite, SignatureSuite.of(keyPair.getPublic()));
+        assertEquals(suite, SignatureSuite.of(keyPair.getPrivate()));
+        assertEquals(suite, SignatureSuite.of(keyPair.getPublic().getEncoded()));
+        assertEquals(keyPair.getPublic(), SignatureSuite.publicKey(keyPair.getPublic().getEncoded()));
+
+        var announcement = new Announcement(keyPair.getPrivate(), user, MESSAGE, new HashSet<>(), board, 1);
+        Announcement.checkSignature(announcement.getSignature(), user, MESSAGE, new HashSet<>(), board.getIdentifier(), 1);
+
+        var contents = List.of(Announcement.generateMessageBytes(MESSAGE, new HashSet<>(), board.getIdentifier(), 1),
+                Announcement.generateMessageBytes(MESSAGE, new HashSet<>(), board.getIdentifier(), 2));
+        var signatures = MerkleSignature.sign(keyPair.getPrivate(), contents);
+        assertTrue(MerkleSignature.verify(keyPair.getPublic(), contents.get(1), signatures.get(1)));
+    }
+
+    @Test
+    public void rsa() throws GeneralSecurityException, CommonDomainException {
+        signAndVerify(SignatureSuite.RSA);
+    }
+
+    @Test
+    public void ecdsa() throws GeneralSecurityException, CommonDomainException {
+        signAndVerify(SignatureSuite.ECDSA_P256);
+    }
+
+    @Test
+    public void ed25519() throws GeneralSecurityException, CommonDomainException {
+        signAndVerify(SignatureSuite.ED25519);
+        assertEquals(64, Announcement.generateSignature(SignatureSuite.ED25519.generateKeyPair().getPrivate(),
+                MESSAGE, new HashSet<>(), "board", 1).length);
+    }
+
+    @Test(expected = InvalidSignatureException.class)
+    public void otherSuiteKey() throws GeneralSecurityException, CommonDomainException {
+        var rsa = SignatureSuite.RSA.generateKeyPair();
+        var ecdsa = SignatureSuite.ECDSA_P256.generateKeyPair();
+        var user = new User(ecdsa.getPublic());
+        byte[] signature = Announcement.generateSignature(rsa.getPrivate(), MESSAGE, new HashSet<>(), user.getUserBoard(), 1);
+        Announcement.checkSignature(signature, user, MESSAGE, new HashSet<>(), user.getUserBoard().getIdentifier(), 1);
+    }
+
+    @Test
+    public void otherCurveRejected() throws GeneralSecurityException {
+        var keygen = KeyPairGenerator.getInstance("EC");
+        keygen.initialize(new ECGenParameterSpec("secp384r1"));
+        var keyPair = keygen.generateKeyPair();
+        try {
+            SignatureSuite.of(keyPair.getPublic());
+            fail();
+        } catch (NoSuchAlgorithmException e) {
+            //Expected
+        }
+        try {
+            SignatureSuite.publicKey(keyPair.getPublic().getEncoded());
+            fail();
+        } catch (InvalidKeySpecException e) {
+            //Expected
+        }
+    }
+
+    @Test(expected = InvalidKeySpecException.class)
+    public void malformedKey() throws GeneralSecurityException {
+        SignatureSuite.publicKey(new byte[]{0x30, 0x05, 0x30, 0x03, 0x06, 0x09, 0x2A});
+    }
+
+    @Test(expected = NoSuchAlgorithmException.class)
+    public void unsupportedKey() throws NoSuchAlgorithmException {
+        var keygen = KeyPairGenerator.getInstance("DSA");
+        keygen.initialize(1024);
+        SignatureSuite.of(keygen.generateKeyPair().getPublic());
+    }
+}
@@ -0,0 +1,72 @@
+package dpas.library;
+
+import dpas.grpc.contract.Contract.Announcement;
+import dpas.utils.link.ClientTransport;
+import dpas.utils.link.RegisterStub;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Non blocking version of {@link Library}.
+ * No thread waits for the servers, so many operations can be in flight at once.
+ * Failed operations complete exceptionally with a {@link java.security.GeneralSecurityException}
+ * (keys or signatures couldn't be used) or a {@link dpas.common.domain.exception.CommonDomainException}
+ * (the announcement is invalid), wrapped in a {@link java.util.concurrent.CompletionException} by dependent stages
+ */
+public class AsyncLibrary implements AutoCloseable {
+
+    private final RegisterStub stub;
+    private final ClientTransport transport;
+
+    public AsyncLibrary(String host, int port, PublicKey[] serverKey, int numFaults) {
+        this(host, port, serverKey, numFaults, new ClientTransport());
+    }
+
+    /**
+     * @param transport threads used to talk to the servers, closed with the library
+     */
+    public AsyncLibrary(String host, int port, PublicKey[] serverKey, int numFaults, ClientTransport transport) {
+        this.transport = transport;
+        this.stub = Library.createStub(host, port, serverKey, numFaults, transport);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        transport.close();
+    }
+
+    public CompletableFuture<Void> register(PublicKey publicKey, PrivateKey privkey) {
+        return stub.registerAsync(publicKey, privkey);
+    }
+
+    public CompletableFuture<Void> post(PublicKey key, char[] message, Announcement[] a, PrivateKey privateKey) {
+        return stub.postAsync(key, privateKey, String.valueOf(message), a);
+    }
+
+    public CompletableFuture<Void> postBatch(PublicKey key, char[][] messages, PrivateKey privateKey) {
+        return stub.postBatchAsync(key, privateKey, Arrays.stream(messages).map(String::valueOf).collect(Collectors.toList()));
+    }
+
+    /**
+     * @param merkleSigned sign the batch once instead of signing each message
+     */
+    public CompletableFuture<Void> postBatch(PublicKey key, char[][] messages, PrivateKey privateKey, boolean merkleSigned) {
+        return stub.postBatchAsync(key, privateKey, Arrays.stream(messages).map(String::valueOf).collect(Collectors.toList()), merkleSigned);
+    }
+
+    public CompletableFuture<Void> postGeneral(PublicKey pubKey, char[] message, Announcement[] a, PrivateKey privateKey) {
+        return stub.postGeneralAsync(pubKey, privateKey, String.valueOf(message), a);
+    }
+
+    public CompletableFuture<Announcement[]> read(PublicKey publicKey, int number) {
+        return stub.readAsync(publicKey, number);
+    }
+
+    public CompletableFuture<Announcement[]> readGeneral(int number) {
+        return stub.readGeneralAsync(number);
+    }
+}
@@ -2,43 +2,52 @@ package dpas.library;
 
 import dpas.grpc.contract.Contract.Announcement;
 import dpas.grpc.contract.ServiceDPASGrpc;
+import dpas.utils.link.ClientTransport;
+import dpas.utils.link.LatencyTracker;
 import dpas.utils.link.PerfectStub;
 import dpas.utils.link.QuorumStub;
 import dpas.utils.link.RegisterStub;
 import io.grpc.ManagedChannel;
-import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
-import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
-import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioSocketChannel;
 
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
-public class Library {
+public class Library implements AutoCloseable {
 
     private final RegisterStub stub;
+    private final ClientTransport transport;
 
     public Library(String host, int port, PublicKey[] serverKey, int numFaults) {
+        this(host, port, serverKey, numFaults, new ClientTransport());
+    }
+
+    /**
+     * @param transport threads used to talk to the servers, closed with the library
+     */
+    public Library(String host, int port, PublicKey[] serverKey, int numFaults, ClientTransport transport) {
+        this.transport = transport;
+        this.stub = createStub(host, port, serverKey, numFaults, transport);
+    }
+
+    static RegisterStub createStub(String host, int port, PublicKey[] serverKey, int numFaults, ClientTransport transport) {
         List<PerfectStub> stubs = new ArrayList<>();
         for (int i = 0; i < 3 * numFaults + 1; i++) {
-            //One thread for each channel
-            var executor = Executors.newSingleThreadExecutor(); //One thread for each stub
-            var eventGroup = new NioEventLoopGroup(1); //One thread for each channel
-            ManagedChannel channel = NettyChannelBuilder
-                    .forAddress(host, port + i + 1)
-                    .usePlaintext()
-                    .channelType(NioSocketChannel.class)
-                    .eventLoopGroup(eventGroup)
-                    .executor(executor)
-                    .build();
+            ManagedChannel channel = transport.newChannel(host, port + i + 1);
             channel.resetConnectBackoff(); //Try to reconnect immediately after crash
             var stub = ServiceDPASGrpc.newStub(channel);
             PerfectStub pStub = new PerfectStub(stub, serverKey[i]);
             stubs.add(pStub);
         }
-        stub = new RegisterStub(new QuorumStub(stubs, numFaults));
+        return new RegisterStub(new QuorumStub(stubs, numFaults, new LatencyTracker()));
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        transport.close();
     }
 
     public void register(PublicKey publicKey, PrivateKey privkey) {
@@ -57,6 +66,25 @@ public class Library {
         }
     }
 
+    public void postBatch(PublicKey key, char[][] messages, PrivateKey privateKey) {
+        try {
+            stub.postBatch(key, privateKey, Arrays.stream(messages).map(String::valueOf).collect(Collectors.toList()));
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * @param merkleSigned sign the batch once instead of signing each message
+     */
+    public void postBatch(PublicKey key, char[][] messages, PrivateKey privateKey, boolean merkleSigned) {
+        try {
+            stub.postBatch(key, privateKey, Arrays.stream(messages).map(String::valueOf).collect(Collectors.toList()), merkleSigned);
+        } catch (Exception e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
     public void postGeneral(PublicKey pubKey, char[] message, Announcement[] a, PrivateKey privateKey) {
         try {
             stub.postGeneral(pubKey, privateKey, String.valueOf(message), a);
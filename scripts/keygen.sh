@@ -2,6 +2,13 @@
 
 rm *.jks
 
+#Signature suite of the client keys (rsa, ec or ed25519), the server keys are always RSA
+case "${2:-rsa}" in
+  ec) CLIENT_KEY_OPTS="-keyalg EC -groupname secp256r1" ;;
+  ed25519) CLIENT_KEY_OPTS="-keyalg Ed25519" ;;
+  *) CLIENT_KEY_OPTS="-keyalg RSA -keysize 4096" ;;
+esac
+
 for i in $(seq 1 1 $1); do
 
   #generate Server KeyStore
@@ -21,8 +28,7 @@ done
 keytool -genkeypair \
   -alias client-1 \
   -dname "CN=localhost" \
-  -keyalg RSA \
-  -keysize 4096 \
+  $CLIENT_KEY_OPTS \
   -validity 365 \
   -storepass client-password \
   -keystore client.jks \
@@ -33,8 +39,7 @@ keytool -genkeypair \
 keytool -genkeypair \
   -alias client-2 \
   -dname "CN=localhost" \
-  -keyalg RSA \
-  -keysize 4096 \
+  $CLIENT_KEY_OPTS \
   -validity 365 \
   -storepass client-password \
   -keystore client.jks \
@@ -45,8 +50,7 @@ keytool -genkeypair \
 keytool -genkeypair \
   -alias client-3 \
   -dname "CN=localhost" \
-  -keyalg RSA \
-  -keysize 4096 \
+  $CLIENT_KEY_OPTS \
   -validity 365 \
   -storepass client-password \
   -keystore client.jks \
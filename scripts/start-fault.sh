@@ -1,7 +1,7 @@
 #!/bin/bash
 let i=3*$1+1
 
-./keygen.sh $i
+./keygen.sh $i $2
 
 mv client.jks ../client/src/main/resources
 mv server.jks ../server/src/main/resources
@@ -0,0 +1,188 @@
+package dpas.server;
+
+import com.google.protobuf.ByteString;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control of the client RPCs, checked before any cryptography is done for the request.
+ * Each client (public key of the request) has a token bucket bounding its request rate and a limit on its calls
+ * in flight, and all clients share a limit on the calls in flight.
+ * Requests without a public key (reads of the general board) only count for the shared limit
+ */
+public class ClientAdmission {
+    public static final double DEFAULT_RATE = 200;
+    public static final int DEFAULT_BURST = 400;
+    public static final int DEFAULT_MAX_PER_CLIENT = 32;
+    public static final int DEFAULT_MAX_CONCURRENT = 512;
+    /**
+     * Past this number of clients, the buckets of idle clients are dropped
+     */
+    private static final int MAX_CLIENTS = 10000;
+    /**
+     * Buckets looked at by each request while there are too many clients
+     */
+    private static final int EVICT_STEP = 16;
+
+    private final double ratePerNano;
+    private final int burst;
+    private final int maxPerClient;
+    private final Semaphore concurrent;
+    private final int maxClients;
+    private final LongSupplier clock;
+    private final Map<ByteString, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Where the eviction of idle buckets stopped, it goes on from there on the next request
+     */
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private Iterator<Bucket> sweep = Collections.emptyIterator();
+
+    public ClientAdmission() {
+        this(DEFAULT_RATE, DEFAULT_BURST, DEFAULT_MAX_PER_CLIENT, DEFAULT_MAX_CONCURRENT);
+    }
+
+    /**
+     * @param rate          requests per second each client can sustain
+     * @param burst         requests a client can make at once after being idle
+     * @param maxPerClient  calls in flight of each client
+     * @param maxConcurrent calls in flight of all clients
+     */
+    public ClientAdmission(double rate, int burst, int maxPerClient, int maxConcurrent) {
+        this(rate, burst, maxPerClient, maxConcurrent, System::nanoTime);
+    }
+
+    //Use with tests only
+    ClientAdmission(double rate, int burst, int maxPerClient, int maxConcurrent, LongSupplier clock) {
+        this(rate, burst, maxPerClient, maxConcurrent, MAX_CLIENTS, clock);
+    }
+
+    //Use with tests only
+    ClientAdmission(double rate, int burst, int maxPerClient, int maxConcurrent, int maxClients, LongSupplier clock) {
+        if (rate <= 0 || burst < 1 || maxPerClient < 1 || maxConcurrent < 1) {
+            throw new IllegalArgumentException("Invalid admission limits");
+        }
+        this.ratePerNano = rate / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.maxPerClient = maxPerClient;
+        this.concurrent = new Semaphore(maxConcurrent);
+        this.maxClients = maxClients;
+        this.clock = clock;
+    }
+
+    /**
+     * @param client public key of the request, empty if it has none
+     * @return true if the call can go on, it must then be released once it finishes
+     */
+    public boolean tryAcquire(ByteString client) {
+        if (!concurrent.tryAcquire()) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        if (client.isEmpty()) {
+            return true;
+        }
+        if (buckets.size() > maxClients) {
+            evictIdle();
+        }
+        var bucket = buckets.computeIfAbsent(client, key -> new Bucket(burst, clock.getAsLong()));
+        if (!bucket.tryAcquire()) {
+            concurrent.release();
+            rejected.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    public void release(ByteString client) {
+        if (!client.isEmpty()) {
+            var bucket = buckets.get(client);
+            if (bucket != null) {
+                bucket.release();
+            }
+        }
+        concurrent.release();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public int getClientCount() {
+        return buckets.size();
+    }
+
+    /**
+     * Looks at the next few buckets (going around the map across calls) and drops the idle ones,
+     * so no request pays for a scan of every client
+     */
+    private void evictIdle() {
+        //Another request is already evicting
+        if (!sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            long now = clock.getAsLong();
+            for (int i = 0; i < EVICT_STEP; i++) {
+                if (!sweep.hasNext()) {
+                    sweep = buckets.values().iterator();
+                    if (!sweep.hasNext()) {
+                        return;
+                    }
+                }
+                if (sweep.next().isIdle(now)) {
+                    sweep.remove();
+                }
+            }
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+
+    private final class Bucket {
+        private double tokens;
+        private long refilledAt;
+        private int inFlight;
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+        }
+
+        private synchronized boolean tryAcquire() {
+            refill(clock.getAsLong());
+            if (tokens < 1 || inFlight >= maxPerClient) {
+                return false;
+            }
+            tokens--;
+            inFlight++;
+            return true;
+        }
+
+        private synchronized void release() {
+            //The bucket may have been evicted and recreated while the call was in flight
+            if (inFlight > 0) {
+                inFlight--;
+            }
+        }
+
+        private synchronized boolean isIdle(long now) {
+            refill(now);
+            return inFlight == 0 && tokens >= burst;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * ratePerNano);
+            refilledAt = now;
+        }
+    }
+}
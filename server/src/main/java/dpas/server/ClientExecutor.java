@@ -0,0 +1,77 @@
+package dpas.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the client RPCs of the reliable service, apart from the replica to replica RPCs.
+ * Client handlers wait for the broadcast of their request, so running them here keeps them from taking the threads
+ * the echoes and readies that complete them need.
+ * At most queueCapacity calls wait for a thread, the ones after that are rejected straight away (the client retries later)
+ */
+public class ClientExecutor implements Executor {
+    public static final int DEFAULT_THREADS = 64;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public ClientExecutor() {
+        this(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    public ClientExecutor(int threads, int queueCapacity) {
+        var count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> {
+                    var thread = new Thread(task, "dpas-client-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param call   the client's call
+     * @param reject run instead of the call if too many calls are already waiting
+     */
+    public void execute(Runnable call, Runnable reject) {
+        try {
+            execute(call);
+        } catch (RejectedExecutionException e) {
+            reject.run();
+        }
+    }
+
+    /**
+     * @throws RejectedExecutionException if too many calls are already waiting
+     */
+    @Override
+    public void execute(Runnable call) {
+        try {
+            executor.execute(call);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
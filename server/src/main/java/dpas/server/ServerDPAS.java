@@ -2,14 +2,14 @@ package dpas.server;
 
 import dpas.grpc.contract.ServiceDPASGrpc;
 import dpas.server.persistence.PersistenceManager;
+import dpas.server.security.VerificationStage;
+import dpas.server.service.ServiceDPASReliableImpl;
+import dpas.utils.link.ClientTransport;
 import dpas.utils.link.PerfectStub;
 import io.grpc.BindableService;
 import io.grpc.ManagedChannel;
 import io.grpc.Server;
-import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
 import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
-import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
-import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioSocketChannel;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -21,7 +21,7 @@ import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static dpas.common.domain.constants.CryptographicConstants.ASYMMETRIC_KEY_ALGORITHM;
 
@@ -29,6 +29,7 @@ public class ServerDPAS {
 
     public static final String SERVER_ALIAS_PREFIX = "server-";
     public static final int BASE_PORT = 9000;
+    private static final long SHUTDOWN_SECONDS = 5;
 
     public static void main(String[] args) throws Exception {
         System.out.println(ServerDPAS.class.getSimpleName());
@@ -36,8 +37,8 @@ public class ServerDPAS {
         // check arguments
         if (args.length < 7) {
             System.err.println("Argument(s) missing!");
-            System.err.printf("<Usage> java port SaveFile KeyStoreFile KeyStorePassword ServerKeyPairAlias ServerPrivateKeyPassword maxFaults %s %n",
-                    ServerDPAS.class.getName());
+            System.err.printf("<Usage> java port SaveFile KeyStoreFile KeyStorePassword ServerKeyPairAlias ServerPrivateKeyPassword maxFaults " +
+                    "[cached|bounded|direct|virtual] [threads] %s %n", ServerDPAS.class.getName());
             return;
         }
 
@@ -46,6 +47,8 @@ public class ServerDPAS {
         String keyPairAlias = args[4];
         String privKeyPassword = args[5];
         int numFaults = Integer.parseInt(args[6]);
+        String executorMode = args.length > 7 ? args[7] : ServerExecutor.Mode.CACHED.name();
+        int executorThreads = args.length > 8 ? Integer.parseInt(args[8]) : ServerExecutor.DEFAULT_THREADS;
 
         if (!jksPath.endsWith(".jks")) {
             System.out.println("Invalid argument: Client key store must be a JKS file!");
@@ -81,19 +84,71 @@ public class ServerDPAS {
 
         System.out.println("Retrieved server key pair successfully!");
 
-        var stubs = loadServerKeys("localhost", numFaults, ks);
-
-        Server server = startServer(Integer.parseInt(args[0]), args[1], privKey, pubKey, stubs, numFaults);
-
-        // Do not exit the main thread. Wait until server is terminated.
-        server.awaitTermination();
+        var executor = ServerExecutor.of(executorMode, executorThreads);
+        System.out.println("Running handlers on executor: " + executor.getMode());
+
+        var clientExecutor = new ClientExecutor();
+        var verification = new VerificationStage();
+
+        try (var transport = new ClientTransport()) {
+            var stubs = loadServerKeys("localhost", numFaults, ks, transport);
+
+            var service = new PersistenceManager(args[1]).load(privKey, stubs,
+                    Base64.getEncoder().encodeToString(pubKey.getEncoded()), numFaults,
+                    clientExecutor, new ClientAdmission(), verification);
+            Server server = startServer(Integer.parseInt(args[0]), service, executor);
+            //The broadcast threads stop once the server stopped, before the channels to the other servers are closed
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.shutdown();
+                try {
+                    server.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                service.shutdown();
+                verification.shutdown();
+                clientExecutor.shutdown();
+                printMetrics(service, verification, clientExecutor);
+            }));
+
+            // Do not exit the main thread. Wait until server is terminated.
+            server.awaitTermination();
+            service.shutdown();
+        } finally {
+            verification.shutdown();
+            clientExecutor.shutdown();
+            executor.shutdown();
+        }
     }
 
     public static Server startServer(int port, String saveFile, PrivateKey privateKey, PublicKey pubKey, List<PerfectStub> stubs, int numFaults) {
+        return startServer(port, saveFile, privateKey, pubKey, stubs, numFaults, ServerExecutor.cached());
+    }
+
+    /**
+     * @param executor executor the service handlers run on, shut down by the caller once the server terminates
+     */
+    public static Server startServer(int port, String saveFile, PrivateKey privateKey, PublicKey pubKey, List<PerfectStub> stubs,
+                                     int numFaults, ServerExecutor executor) {
         try {
             final BindableService impl = new PersistenceManager(saveFile).load(privateKey,
                     stubs, Base64.getEncoder().encodeToString(pubKey.getEncoded()), numFaults);
-            final Server server = NettyServerBuilder.forPort(port).addService(impl).build();
+            return startServer(port, impl, executor);
+        } catch (Exception e) {
+            System.out.println("Error Initializing server: " + e.getMessage());
+            System.exit(1);
+        }
+        // Code never reaches here
+        return null;
+    }
+
+    /**
+     * @param impl     service already loaded, stopped by the caller once the server terminates
+     * @param executor executor the service handlers run on, shut down by the caller once the server terminates
+     */
+    public static Server startServer(int port, BindableService impl, ServerExecutor executor) {
+        try {
+            final Server server = executor.configure(NettyServerBuilder.forPort(port)).addService(impl).build();
             server.start();
             return server;
         } catch (Exception e) {
@@ -104,22 +159,36 @@ public class ServerDPAS {
         return null;
     }
 
-    public static List<PerfectStub> loadServerKeys(String host, int maxFaults, KeyStore ks) throws KeyStoreException {
+    private static void printMetrics(ServiceDPASReliableImpl service, VerificationStage verification, ClientExecutor clientExecutor) {
+        System.out.printf("Verified %d requests (average wait %.1f us, average verification %.1f us)%n",
+                verification.getVerifiedCount(), verification.getAverageQueueWaitNanos() / 1000,
+                verification.getAverageVerifyNanos() / 1000);
+        System.out.printf("Rejected %d client requests (executor full)%n", clientExecutor.getRejectedCount());
+        var pendingPosts = service.getPendingPosts();
+        System.out.printf("Deferred %d requests ahead of their board (%d expired, %d still pending)%n",
+                pendingPosts.getDeferredCount(), pendingPosts.getExpiredCount(), pendingPosts.getPendingCount());
+        var dispatcher = service.getDispatcher();
+        var outboxes = service.getOutboxes();
+        for (int i = 0; i < outboxes.size(); i++) {
+            var outbox = outboxes.get(i);
+            System.out.printf("Peer %d: sent %d messages (%d coalesced, %d echoes dropped), backlog %d (%d over the cap), "
+                            + "queue depth %d (max %d)%n",
+                    i, outbox.getSentCount(), outbox.getCoalescedCount(), outbox.getDroppedCount(), outbox.getPendingCount(),
+                    outbox.getOverflowedCount(), dispatcher.getQueueDepth(i), dispatcher.getMaxQueueDepth(i));
+        }
+    }
+
+    /**
+     * @param transport threads shared by the channels to every server
+     */
+    public static List<PerfectStub> loadServerKeys(String host, int maxFaults, KeyStore ks, ClientTransport transport) throws KeyStoreException {
         var stubs = new ArrayList<PerfectStub>();
         int numServers = 3 * maxFaults + 1;
         for (int i = 1; i <= numServers; ++i) {
             var alias = SERVER_ALIAS_PREFIX + i;
             var pubKey = ks.getCertificate(alias).getPublicKey();
             int port = BASE_PORT + i;
-            var executor = Executors.newSingleThreadExecutor(); //One thread for each stub
-            var eventGroup = new NioEventLoopGroup(1); //One thread for each channel
-            ManagedChannel channel = NettyChannelBuilder
-                    .forAddress(host, port)
-                    .usePlaintext()
-                    .channelType(NioSocketChannel.class)
-                    .eventLoopGroup(eventGroup)
-                    .executor(executor)
-                    .build();
+            ManagedChannel channel = transport.newChannel(host, port);
             var stub = new PerfectStub(ServiceDPASGrpc.newStub(channel), pubKey);
             stubs.add(stub);
         }
@@ -0,0 +1,143 @@
+package dpas.server;
+
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor the gRPC server runs the service handlers on.
+ * The non reliable services block a handler for the whole call, so a bounded pool can run out of threads under load
+ * and the direct mode should only be used for benchmarks.
+ * The virtual mode is looked up when it is chosen, the server still builds for Java 11 but needs to run on Java 21
+ * or later to use it (see ServerExecutorBenchmark for the throughput of each mode)
+ */
+public final class ServerExecutor {
+    /**
+     * Threads of the bounded mode when none are given
+     */
+    public static final int DEFAULT_THREADS = 16;
+
+    public enum Mode {
+        /**
+         * gRPC's default, an unbounded cached pool (one platform thread per call in flight)
+         */
+        CACHED,
+        /**
+         * Fixed number of platform threads
+         */
+        BOUNDED,
+        /**
+         * Handlers run on the transport's event loop threads
+         */
+        DIRECT,
+        /**
+         * One virtual thread per call, needs to run on Java 21 or later
+         */
+        VIRTUAL
+    }
+
+    private static final int VIRTUAL_THREADS_VERSION = 21;
+
+    private final Mode mode;
+    private final ExecutorService executor;
+
+    private ServerExecutor(Mode mode, ExecutorService executor) {
+        this.mode = mode;
+        this.executor = executor;
+    }
+
+    public static ServerExecutor cached() {
+        return new ServerExecutor(Mode.CACHED, null);
+    }
+
+    public static ServerExecutor bounded(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        return new ServerExecutor(Mode.BOUNDED, Executors.newFixedThreadPool(threads, namedThreads()));
+    }
+
+    public static ServerExecutor direct() {
+        return new ServerExecutor(Mode.DIRECT, null);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the JVM has no virtual threads
+     */
+    public static ServerExecutor virtual() {
+        if (!virtualThreadsAvailable()) {
+            throw new IllegalArgumentException("Invalid executor mode: virtual threads need Java " + VIRTUAL_THREADS_VERSION
+                    + " or later (running " + Runtime.version().feature() + ")");
+        }
+        try {
+            var executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new ServerExecutor(Mode.VIRTUAL, executor);
+        } catch (ReflectiveOperationException e) {
+            //Should never happen, the method exists since Java 21
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        return Runtime.version().feature() >= VIRTUAL_THREADS_VERSION;
+    }
+
+    /**
+     * @param mode    name of the mode (case insensitive)
+     * @param threads number of threads, only used by the bounded mode
+     */
+    public static ServerExecutor of(String mode, int threads) {
+        Mode parsed;
+        try {
+            parsed = Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid executor mode: " + mode + " (expected cached, bounded, direct or virtual)");
+        }
+        switch (parsed) {
+            case BOUNDED:
+                return bounded(threads);
+            case DIRECT:
+                return direct();
+            case VIRTUAL:
+                return virtual();
+            default:
+                return cached();
+        }
+    }
+
+    public NettyServerBuilder configure(NettyServerBuilder builder) {
+        switch (mode) {
+            case DIRECT:
+                return builder.directExecutor();
+            case BOUNDED:
+            case VIRTUAL:
+                return builder.executor(executor);
+            default:
+                return builder;
+        }
+    }
+
+    /**
+     * Stops the executor's threads, the server must already be shut down
+     */
+    public void shutdown() throws InterruptedException {
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    private static ThreadFactory namedThreads() {
+        var count = new AtomicInteger();
+        return task -> new Thread(task, "dpas-server-" + count.incrementAndGet());
+    }
+}
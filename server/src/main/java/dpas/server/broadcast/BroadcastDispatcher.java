@@ -0,0 +1,82 @@
+package dpas.server.broadcast;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the server to server messages of the reliable broadcast.
+ * Each peer has its own queue drained by its own thread, so preparing and sending messages
+ * doesn't run on request threads and a slow peer only fills its own queue.
+ * The queues aren't bounded here: each peer's {@link PeerOutbox} only dispatches a window of messages at a time
+ * and holds the rest itself
+ */
+public class BroadcastDispatcher {
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final List<PeerQueue> queues;
+
+    public BroadcastDispatcher(int numPeers) {
+        this.queues = new ArrayList<>(numPeers);
+        for (int i = 0; i < numPeers; i++) {
+            queues.add(new PeerQueue(i));
+        }
+    }
+
+    /**
+     * Queues a task for the given peer
+     */
+    public void dispatch(int peer, Runnable task) {
+        queues.get(peer).dispatch(task);
+    }
+
+    public int getNumPeers() {
+        return queues.size();
+    }
+
+    public int getQueueDepth(int peer) {
+        return queues.get(peer).executor.getQueue().size();
+    }
+
+    public int getMaxQueueDepth(int peer) {
+        return queues.get(peer).maxDepth.get();
+    }
+
+    public long getDispatchedCount(int peer) {
+        return queues.get(peer).dispatched.get();
+    }
+
+    public void shutdown() {
+        queues.forEach(queue -> queue.executor.shutdown());
+    }
+
+    private static final class PeerQueue {
+        private final ThreadPoolExecutor executor;
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private final AtomicLong dispatched = new AtomicLong();
+
+        private PeerQueue(int peer) {
+            this.executor = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    task -> {
+                        var thread = new Thread(task, "dpas-broadcast-" + peer);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    //Only rejected once shut down, the messages left are no longer needed
+                    new ThreadPoolExecutor.DiscardPolicy());
+            //Don't keep a thread for idle peers
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        private void dispatch(Runnable task) {
+            dispatched.incrementAndGet();
+            executor.execute(task);
+            maxDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+        }
+    }
+}
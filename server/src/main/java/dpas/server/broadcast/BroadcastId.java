@@ -0,0 +1,70 @@
+package dpas.server.broadcast;
+
+import com.google.protobuf.ByteString;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static dpas.common.domain.constants.CryptographicConstants.DIGEST_ALGORITHM;
+
+/**
+ * Fixed size identifier of a broadcast (digest of the signature or mac that identifies it).
+ * The hash is computed once so map operations never rehash the underlying bytes
+ */
+public final class BroadcastId {
+    public static final int SIZE = 32;
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            //Should never happen
+            throw new IllegalStateException("Error: Could not get SHA-256 Hash", e);
+        }
+    });
+
+    private final byte[] digest;
+    private final int hash;
+
+    private BroadcastId(byte[] digest) {
+        this.digest = digest;
+        //The digest is uniformly distributed so any 4 bytes are a good hash
+        this.hash = ByteBuffer.wrap(digest).getInt();
+    }
+
+    public static BroadcastId of(ByteString content) {
+        var digest = DIGEST.get();
+        digest.update(content.asReadOnlyByteBuffer());
+        return new BroadcastId(digest.digest());
+    }
+
+    public static BroadcastId of(String content) {
+        return new BroadcastId(DIGEST.get().digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof BroadcastId) {
+            BroadcastId other = (BroadcastId) obj;
+            return hash == other.hash && Arrays.equals(digest, other.digest);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return Base64.getEncoder().encodeToString(digest);
+    }
+}
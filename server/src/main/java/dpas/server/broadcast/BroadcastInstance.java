@@ -0,0 +1,159 @@
+package dpas.server.broadcast;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * State of a single byzantine reliable broadcast instance.
+ * Senders are tracked in bitsets indexed by server number and every threshold crossing is
+ * seen by exactly one thread, so handlers never need to lock the instance.
+ *
+ * @param <P> ready message kept as proof of the broadcast
+ * @param <V> validated value carried by the broadcast
+ */
+public class BroadcastInstance<P, V> {
+    private static final int SENT_ECHO = 1;
+    private static final int SENT_READY = 1 << 1;
+    private static final int DELIVERED = 1 << 2;
+
+    private final AtomicLongArray echoSenders;
+    private final AtomicLongArray readySenders;
+    private final AtomicInteger echoCount = new AtomicInteger();
+    private final AtomicInteger readyCount = new AtomicInteger();
+    private final AtomicInteger state = new AtomicInteger();
+
+    /**
+     * Ready messages received for this instance, indexed by server number (used as proof of delivery)
+     */
+    private final AtomicReferenceArray<P> readyProofs;
+
+    /**
+     * Value carried by this instance, set once it has been validated
+     */
+    private final AtomicReference<V> value = new AtomicReference<>();
+
+    public BroadcastInstance(int numServers) {
+        int words = (numServers + Long.SIZE - 1) / Long.SIZE;
+        this.echoSenders = new AtomicLongArray(words);
+        this.readySenders = new AtomicLongArray(words);
+        this.readyProofs = new AtomicReferenceArray<>(numServers);
+    }
+
+    /**
+     * @return the number of distinct echoes received (including this one), or 0 if the server had already echoed
+     */
+    public int addEcho(int server) {
+        if (!setBit(echoSenders, server)) {
+            return 0;
+        }
+        return echoCount.incrementAndGet();
+    }
+
+    /**
+     * @return the number of distinct readies received (including this one), or 0 if the server had already sent ready
+     */
+    public int addReady(int server) {
+        if (!setBit(readySenders, server)) {
+            return 0;
+        }
+        return readyCount.incrementAndGet();
+    }
+
+    /**
+     * Same as {@link #addReady(int)} but also keeps the message as a proof of the broadcast.
+     * The proof is stored before the count is incremented so whoever sees the delivery threshold sees all counted proofs
+     */
+    public int addReady(int server, P proof) {
+        if (!setBit(readySenders, server)) {
+            return 0;
+        }
+        readyProofs.set(server, proof);
+        return readyCount.incrementAndGet();
+    }
+
+    public int getEchoCount() {
+        return echoCount.get();
+    }
+
+    public int getReadyCount() {
+        return readyCount.get();
+    }
+
+    public List<P> getReadyProofs() {
+        var proofs = new ArrayList<P>();
+        for (int i = 0; i < readyProofs.length(); i++) {
+            var proof = readyProofs.get(i);
+            if (proof != null) {
+                proofs.add(proof);
+            }
+        }
+        return proofs;
+    }
+
+    /**
+     * @return true if the caller is the first to send the echo of this instance
+     */
+    public boolean markEchoSent() {
+        return setFlag(SENT_ECHO);
+    }
+
+    /**
+     * @return true if the caller is the first to send the ready of this instance
+     */
+    public boolean markReadySent() {
+        return setFlag(SENT_READY);
+    }
+
+    /**
+     * @return true if the caller is the first to deliver this instance
+     */
+    public boolean markDelivered() {
+        return setFlag(DELIVERED);
+    }
+
+    public boolean isDelivered() {
+        return (state.get() & DELIVERED) != 0;
+    }
+
+    public V getValue() {
+        return value.get();
+    }
+
+    /**
+     * @return the value kept by the instance (the given one if none was set before)
+     */
+    public V setValueIfAbsent(V value) {
+        if (this.value.compareAndSet(null, value)) {
+            return value;
+        }
+        return this.value.get();
+    }
+
+    private boolean setFlag(int flag) {
+        int curr;
+        do {
+            curr = state.get();
+            if ((curr & flag) != 0) {
+                return false;
+            }
+        } while (!state.compareAndSet(curr, curr | flag));
+        return true;
+    }
+
+    private static boolean setBit(AtomicLongArray bits, int index) {
+        int word = index / Long.SIZE;
+        long mask = 1L << (index % Long.SIZE);
+        long curr;
+        do {
+            curr = bits.get(word);
+            if ((curr & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(word, curr, curr | mask));
+        return true;
+    }
+}
@@ -0,0 +1,58 @@
+package dpas.server.broadcast;
+
+import dpas.grpc.contract.Contract.MacReply;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replies of the client requests already delivered, keyed by the digest of the whole request.
+ * Clients retry until they get a reply, so a repeated request gets the reply it was already given
+ * without being validated or signed again. Only the most recently used replies are kept
+ */
+public class DeliveredReplies {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final Map<BroadcastId, MacReply> replies;
+    private final AtomicLong hits = new AtomicLong();
+
+    public DeliveredReplies() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DeliveredReplies(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        this.replies = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BroadcastId, MacReply> eldest) {
+                return size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * @return the reply given to the request, null if it wasn't delivered (or its reply was dropped)
+     */
+    public MacReply get(BroadcastId request) {
+        var reply = replies.get(request);
+        if (reply != null) {
+            hits.incrementAndGet();
+        }
+        return reply;
+    }
+
+    /**
+     * The request was delivered, must only be called after the delivery
+     */
+    public void put(BroadcastId request, MacReply reply) {
+        replies.put(request, reply);
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+}
@@ -0,0 +1,240 @@
+package dpas.server.broadcast;
+
+import dpas.grpc.contract.Contract;
+import io.grpc.stub.StreamObserver;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Echoes and readies waiting to be sent to a single peer.
+ * The echo and the ready of an instance are separate messages (the peer counts them separately), each one is queued
+ * at most once and only a window of them is in flight, so a crashed peer costs a bounded number of retrying calls
+ * and gets the backlog in order once it is back.
+ * Echoes of instances already delivered are dropped since the peer will deliver from the readies.
+ * Once the backlog of a peer is full, the echoes it holds that are already superseded (the instance was delivered or
+ * its ready is queued too) are dropped. Readies and the other echoes are never dropped, the broadcast needs all of
+ * them to be eventually sent, so the backlog goes over its cap until the peer catches up
+ */
+public class PeerOutbox {
+    public static final int DEFAULT_WINDOW = 32;
+    public static final int DEFAULT_MAX_PENDING = 4096;
+
+    private final BroadcastDispatcher dispatcher;
+    private final int peer;
+    private final int window;
+    private final int maxPending;
+
+    private final Set<Message> pending = new LinkedHashSet<>();
+    private int inFlight = 0;
+    /**
+     * Backlog size at which superseded echoes are looked for, grows while the backlog stays over its cap
+     */
+    private int sweepAt;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    public PeerOutbox(BroadcastDispatcher dispatcher, int peer) {
+        this(dispatcher, peer, DEFAULT_WINDOW, DEFAULT_MAX_PENDING);
+    }
+
+    public PeerOutbox(BroadcastDispatcher dispatcher, int peer, int window) {
+        this(dispatcher, peer, window, DEFAULT_MAX_PENDING);
+    }
+
+    public PeerOutbox(BroadcastDispatcher dispatcher, int peer, int window, int maxPending) {
+        this.dispatcher = dispatcher;
+        this.peer = peer;
+        this.window = window;
+        this.maxPending = maxPending;
+        this.sweepAt = maxPending;
+    }
+
+    /**
+     * @param send makes the call to the peer, the observer must be notified once the peer acknowledged the message
+     */
+    public void echo(BroadcastInstance<?, ?> instance, Consumer<StreamObserver<Contract.MacReply>> send) {
+        if (instance.isDelivered()) {
+            dropped.incrementAndGet();
+            return;
+        }
+        enqueue(new Message(instance, false, send));
+    }
+
+    /**
+     * @param send makes the call to the peer, the observer must be notified once the peer acknowledged the message
+     */
+    public void ready(BroadcastInstance<?, ?> instance, Consumer<StreamObserver<Contract.MacReply>> send) {
+        enqueue(new Message(instance, true, send));
+    }
+
+    /**
+     * Drops the pending echo of an instance that was just delivered
+     */
+    public void delivered(BroadcastInstance<?, ?> instance) {
+        boolean removed;
+        synchronized (this) {
+            removed = pending.remove(new Message(instance, false, null));
+        }
+        if (removed) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    /**
+     * @return number of messages that didn't need to be queued because the same one was pending
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return number of echoes not sent because the instance was delivered first (or, once the backlog was full,
+     * because its ready was queued)
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return number of messages queued while the backlog was over its cap
+     */
+    public long getOverflowedCount() {
+        return overflowed.get();
+    }
+
+    private void enqueue(Message message) {
+        synchronized (this) {
+            if (pending.contains(message)) {
+                coalesced.incrementAndGet();
+                return;
+            }
+            if (pending.size() < maxPending) {
+                sweepAt = maxPending;
+            } else if (pending.size() >= sweepAt) {
+                dropSuperseded();
+                //Don't look again until the backlog doubles, a peer that far behind holds few superseded echoes
+                sweepAt = Math.max(maxPending, pending.size() * 2);
+            }
+            if (pending.size() >= maxPending) {
+                overflowed.incrementAndGet();
+            }
+            pending.add(message);
+        }
+        drain();
+    }
+
+    /**
+     * Drops the echoes whose instance was delivered or whose ready is queued as well (must hold the lock)
+     */
+    private void dropSuperseded() {
+        Iterator<Message> it = pending.iterator();
+        while (it.hasNext()) {
+            var message = it.next();
+            if (!message.ready && (message.instance.isDelivered() || pending.contains(new Message(message.instance, true, null)))) {
+                it.remove();
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Message message;
+            synchronized (this) {
+                if (inFlight >= window || pending.isEmpty()) {
+                    return;
+                }
+                Iterator<Message> it = pending.iterator();
+                message = it.next();
+                it.remove();
+                inFlight++;
+            }
+            dispatcher.dispatch(peer, () -> send(message));
+        }
+    }
+
+    private void send(Message message) {
+        if (message.isObsolete()) {
+            dropped.incrementAndGet();
+            release();
+            return;
+        }
+        sent.incrementAndGet();
+        message.send.accept(new StreamObserver<>() {
+            //The perfect link completes every attempt but only acknowledges once
+            @Override
+            public void onNext(Contract.MacReply value) {
+                release();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                //Should never happen, the perfect link retries until the peer acknowledges
+                release();
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+    }
+
+    private void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    /**
+     * Equal to the other message of the same kind (echo or ready) for the same instance
+     */
+    private static final class Message {
+        private final BroadcastInstance<?, ?> instance;
+        private final boolean ready;
+        private final Consumer<StreamObserver<Contract.MacReply>> send;
+
+        private Message(BroadcastInstance<?, ?> instance, boolean ready, Consumer<StreamObserver<Contract.MacReply>> send) {
+            this.instance = instance;
+            this.ready = ready;
+            this.send = send;
+        }
+
+        private boolean isObsolete() {
+            return !ready && instance.isDelivered();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Message)) {
+                return false;
+            }
+            var other = (Message) o;
+            return instance == other.instance && ready == other.ready;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(instance) + Boolean.hashCode(ready);
+        }
+    }
+}
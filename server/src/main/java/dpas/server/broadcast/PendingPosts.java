@@ -0,0 +1,202 @@
+package dpas.server.broadcast;
+
+import dpas.common.domain.AnnouncementBoard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Requests for a seq ahead of their board, put aside until the board gets to the seq before theirs.
+ * Clients pipeline their posts, so a post (or its echoes and readies) can arrive before the previous ones were
+ * delivered. Instead of blocking a thread until then, the request is resumed by the delivery that lets it through,
+ * or expired if that doesn't happen in time. Each board holds a bounded number of them.
+ * Resumes and expiries run on the executor given with the request, never on the timer thread, and a delivery that
+ * lets a chain of requests through resumes them one after the other instead of from within each other
+ */
+public class PendingPosts {
+    public static final int DEFAULT_MAX_PENDING = 1024;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    private final int maxPending;
+    private final long timeoutMillis;
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Requests put aside for each board, by seq
+     */
+    private final Map<AnnouncementBoard, TreeMap<Long, List<Pending>>> boards = new IdentityHashMap<>();
+    private final Map<AnnouncementBoard, Integer> counts = new IdentityHashMap<>();
+
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    /**
+     * Requests this thread is resuming, so a resume that delivers a post adds the ones it lets through here
+     * instead of resuming them itself
+     */
+    private final ThreadLocal<ArrayDeque<Pending>> resuming = new ThreadLocal<>();
+
+    public PendingPosts() {
+        this(DEFAULT_MAX_PENDING, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public PendingPosts(int maxPending, long timeoutMillis) {
+        this.maxPending = maxPending;
+        this.timeoutMillis = timeoutMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            var thread = new Thread(task, "dpas-pending-posts");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Puts the request aside if its seq isn't the board's next one yet
+     *
+     * @param executor runs the resume or the expiry
+     * @param resume   handles the request again once the board got to seq - 1
+     * @param expire   rejects the request, if the board doesn't get there in time or too many requests are put aside
+     * @param reject   answers the request instead if the executor can't take its resume or expiry, must be cheap
+     * @return false if the request can be handled now
+     */
+    public boolean defer(AnnouncementBoard board, long seq, Executor executor, Runnable resume, Runnable expire, Runnable reject) {
+        var pending = new Pending(board, seq, executor, resume, expire, reject);
+        synchronized (this) {
+            //Checked under the lock so a delivery can't happen between the check and putting the request aside
+            if (seq <= board.getSeq() + 1) {
+                return false;
+            }
+            int count = counts.getOrDefault(board, 0);
+            if (count < maxPending) {
+                boards.computeIfAbsent(board, b -> new TreeMap<>()).computeIfAbsent(seq, s -> new ArrayList<>()).add(pending);
+                counts.put(board, count + 1);
+                pending.timeout = timer.schedule(() -> expire(pending), timeoutMillis, TimeUnit.MILLISECONDS);
+                deferred.incrementAndGet();
+                return true;
+            }
+        }
+        expired.incrementAndGet();
+        execute(executor, expire, reject);
+        return true;
+    }
+
+    /**
+     * Resumes the requests the board's seq now lets through, must be called after every post to the board
+     */
+    public void seqChanged(AnnouncementBoard board) {
+        List<Pending> ready = new ArrayList<>();
+        synchronized (this) {
+            var bySeq = boards.get(board);
+            if (bySeq == null) {
+                return;
+            }
+            var next = bySeq.headMap(board.getSeq() + 1, true);
+            next.values().forEach(ready::addAll);
+            next.clear();
+            remove(board, bySeq, ready.size());
+        }
+        if (ready.isEmpty()) {
+            return;
+        }
+        var queue = resuming.get();
+        if (queue != null) {
+            //Called from a resume running on this thread, the loop below it resumes these too
+            queue.addAll(ready);
+            return;
+        }
+        queue = new ArrayDeque<>(ready);
+        resuming.set(queue);
+        try {
+            Pending pending;
+            while ((pending = queue.poll()) != null) {
+                pending.timeout.cancel(false);
+                execute(pending.executor, pending.resume, pending.reject);
+            }
+        } finally {
+            resuming.remove();
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public long getDeferredCount() {
+        return deferred.get();
+    }
+
+    /**
+     * @return number of requests rejected because their board didn't get to them in time or was full
+     */
+    public long getExpiredCount() {
+        return expired.get();
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void expire(Pending pending) {
+        synchronized (this) {
+            var bySeq = boards.get(pending.board);
+            var sameSeq = bySeq == null ? null : bySeq.get(pending.seq);
+            if (sameSeq == null || !sameSeq.remove(pending)) {
+                //Already resumed
+                return;
+            }
+            if (sameSeq.isEmpty()) {
+                bySeq.remove(pending.seq);
+            }
+            remove(pending.board, bySeq, 1);
+        }
+        expired.incrementAndGet();
+        execute(pending.executor, pending.expire, pending.reject);
+    }
+
+    private static void execute(Executor executor, Runnable task, Runnable reject) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            reject.run();
+        }
+    }
+
+    private void remove(AnnouncementBoard board, TreeMap<Long, List<Pending>> bySeq, int removed) {
+        if (bySeq.isEmpty()) {
+            boards.remove(board);
+            counts.remove(board);
+        } else {
+            counts.put(board, counts.get(board) - removed);
+        }
+    }
+
+    private static final class Pending {
+        private final AnnouncementBoard board;
+        private final long seq;
+        private final Executor executor;
+        private final Runnable resume;
+        private final Runnable expire;
+        private final Runnable reject;
+        private ScheduledFuture<?> timeout;
+
+        private Pending(AnnouncementBoard board, long seq, Executor executor, Runnable resume, Runnable expire, Runnable reject) {
+            this.board = board;
+            this.seq = seq;
+            this.executor = executor;
+            this.resume = resume;
+            this.expire = expire;
+            this.reject = reject;
+        }
+    }
+}
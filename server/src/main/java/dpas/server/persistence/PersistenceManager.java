@@ -1,6 +1,10 @@
 package dpas.server.persistence;
 
+import dpas.common.domain.SignatureSuite;
 import dpas.common.domain.exception.CommonDomainException;
+import dpas.server.ClientAdmission;
+import dpas.server.ClientExecutor;
+import dpas.server.security.VerificationStage;
 import dpas.server.service.ServiceDPASPersistentImpl;
 import dpas.server.service.ServiceDPASReliableImpl;
 import dpas.server.service.ServiceDPASSafeImpl;
@@ -14,13 +18,10 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.security.GeneralSecurityException;
-import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.*;
 
-import static dpas.common.domain.constants.CryptographicConstants.ASYMMETRIC_KEY_ALGORITHM;
 import static dpas.common.domain.constants.JsonConstants.*;
 
 
@@ -91,6 +92,18 @@ public class PersistenceManager {
         return service;
     }
 
+    /**
+     * Same as {@link #load(PrivateKey, List, String, int)} with the workers shared by the caller (who shuts them down)
+     */
+    public synchronized ServiceDPASReliableImpl load(PrivateKey privateKey, List<PerfectStub> stubs, String serverId, int numFaults,
+                                                     ClientExecutor clientExecutor, ClientAdmission admission,
+                                                     VerificationStage verification) throws GeneralSecurityException, CommonDomainException, IOException {
+        JsonArray jsonArray = readSaveFile();
+        var service = new ServiceDPASReliableImpl(this, privateKey, stubs, serverId, numFaults, clientExecutor, admission, verification);
+        parseJsonArray(jsonArray, service);
+        return service;
+    }
+
     private void parseJsonArray(JsonArray jsonArray, ServiceDPASPersistentImpl service) throws GeneralSecurityException, CommonDomainException {
         Map<PublicKey, Long> userSeqs = new HashMap<>();
         for (int i = 0; i < jsonArray.size(); i++) {
@@ -99,14 +112,14 @@ public class PersistenceManager {
 
             if (operation.getString(OPERATION_TYPE_KEY).equals(REGISTER_OP_TYPE)) {
                 byte[] keyBytes = Base64.getDecoder().decode(operation.getString(PUBLIC_KEY));
-                PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(keyBytes));
+                PublicKey key = SignatureSuite.publicKey(keyBytes);
                 service.addUser(key);
                 userSeqs.put(key, 0L);
             } else if (operation.getString(OPERATION_TYPE_KEY).equals(READ_JSON_KEY)) {
                 service.addNonce(operation.getString(NONCE_KEY));
             } else {
                 byte[] keyBytes = Base64.getDecoder().decode(operation.getString(PUBLIC_KEY));
-                PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(keyBytes));
+                PublicKey key = SignatureSuite.publicKey(keyBytes);
 
                 byte[] signature = Base64.getDecoder().decode(operation.getString(SIGNATURE_KEY));
                 JsonArray jsonReferences = operation.getJsonArray(REFERENCES_KEY);
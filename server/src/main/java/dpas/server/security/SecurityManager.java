@@ -1,18 +1,15 @@
 package dpas.server.security;
 
+import dpas.common.domain.SignatureSuite;
 import dpas.grpc.contract.Contract;
 import dpas.server.security.exception.IllegalMacException;
 import dpas.utils.auth.ByteUtils;
 import dpas.utils.auth.MacVerifier;
-import org.apache.commons.lang3.ArrayUtils;
 
 import java.security.GeneralSecurityException;
-import java.security.KeyFactory;
 import java.security.PublicKey;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.Map;
 
-import static dpas.common.domain.constants.CryptographicConstants.ASYMMETRIC_KEY_ALGORITHM;
 import static dpas.utils.Constants.ECHO;
 import static dpas.utils.Constants.READY;
 
@@ -22,7 +19,7 @@ public final class SecurityManager {
     }
 
     public static void validateRequest(Contract.RegisterRequest request) throws GeneralSecurityException, IllegalMacException {
-        PublicKey publicKey = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
+        PublicKey publicKey = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
         byte[] content = ByteUtils.toByteArray(request);
         byte[] mac = request.getMac().toByteArray();
         validateRequest(mac, content, publicKey);
@@ -41,7 +38,7 @@ public final class SecurityManager {
             throw new IllegalMacException("Ilegal Server Key");
         }
         var mac = request.getMac().toByteArray();
-        var content = ArrayUtils.addAll(request.getRequest().getMac().toByteArray(), ECHO);
+        var content = ByteUtils.content(request.getRequest().getMac(), ECHO);
         if (!MacVerifier.verifyMac(pubKey, content, mac)) {
             throw new IllegalMacException("Invalid Mac For Request");
         }
@@ -54,7 +51,7 @@ public final class SecurityManager {
             throw new IllegalMacException("Ilegal Server Key");
         }
         var mac = request.getMac().toByteArray();
-        var content = ArrayUtils.addAll(request.getRequest().getMac().toByteArray(), READY);
+        var content = ByteUtils.content(request.getRequest().getMac(), READY);
         if (!MacVerifier.verifyMac(pubKey, content, mac)) {
             throw new IllegalMacException("Invalid Mac For Request");
         }
@@ -66,7 +63,7 @@ public final class SecurityManager {
             throw new IllegalMacException("Ilegal Server Key");
         }
         var mac = request.getMac().toByteArray();
-        var content = ArrayUtils.addAll(request.getRequest().getSignature().toByteArray(), READY);
+        var content = ByteUtils.content(request.getRequest().getSignature(), READY);
         if (!MacVerifier.verifyMac(pubKey, content, mac)) {
             throw new IllegalMacException("Invalid Mac For Request");
         }
@@ -78,9 +75,41 @@ public final class SecurityManager {
             throw new IllegalMacException("Ilegal Server Key");
         }
         var mac = request.getMac().toByteArray();
-        var content = ArrayUtils.addAll(request.getRequest().getSignature().toByteArray(), ECHO);
+        var content = ByteUtils.content(request.getRequest().getSignature(), ECHO);
         if (!MacVerifier.verifyMac(pubKey, content, mac)) {
             throw new IllegalMacException("Invalid Mac For Request");
         }
     }
+
+    public static void validateAnnouncement(Contract.EchoAnnouncementBatch request, Map<String, PublicKey> serverKeys) throws IllegalMacException {
+        var pubKey = serverKeys.get(request.getServerKey());
+        if (pubKey == null) {
+            throw new IllegalMacException("Ilegal Server Key");
+        }
+        var mac = request.getMac().toByteArray();
+        var content = ByteUtils.content(request.getRequest(), ECHO);
+        if (!MacVerifier.verifyMac(pubKey, content, mac)) {
+            throw new IllegalMacException("Invalid Mac For Request");
+        }
+    }
+
+    /**
+     * Every mac is kept as the proof of its announcement, so all of them must be valid
+     */
+    public static void validateAnnouncement(Contract.ReadyAnnouncementBatch request, Map<String, PublicKey> serverKeys) throws IllegalMacException {
+        var pubKey = serverKeys.get(request.getServerKey());
+        if (pubKey == null) {
+            throw new IllegalMacException("Ilegal Server Key");
+        }
+        var announcements = request.getRequest().getAnnouncementsList();
+        if (announcements.isEmpty() || announcements.size() != request.getMacsCount()) {
+            throw new IllegalMacException("Invalid Mac For Request");
+        }
+        for (int i = 0; i < announcements.size(); i++) {
+            var content = ByteUtils.content(announcements.get(i).getSignature(), READY);
+            if (!MacVerifier.verifyMac(pubKey, content, request.getMacs(i).toByteArray())) {
+                throw new IllegalMacException("Invalid Mac For Request");
+            }
+        }
+    }
 }
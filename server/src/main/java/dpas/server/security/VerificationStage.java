@@ -0,0 +1,226 @@
+package dpas.server.security;
+
+import dpas.common.domain.exception.CommonDomainException;
+import dpas.server.security.exception.IllegalMacException;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the signature and mac verifications of the requests, one worker per core.
+ * The handlers hand their verifications to the workers and wait for them, so no more verifications than cores run
+ * at once and they don't compete with the threads doing I/O.
+ * Each worker has its own queue (verifications are spread round robin) and takes its queued verifications in batches
+ */
+public class VerificationStage {
+    public static final int MAX_BATCH = 32;
+
+    /**
+     * Verification of a client's request, returns the validated value
+     */
+    @FunctionalInterface
+    public interface Task<T> {
+        T call() throws GeneralSecurityException, CommonDomainException;
+    }
+
+    /**
+     * Verification of the macs of a request
+     */
+    @FunctionalInterface
+    public interface Check {
+        void run() throws GeneralSecurityException, IllegalMacException;
+    }
+
+    private final List<BlockingQueue<Job<?>>> queues;
+    private final List<Worker> workers;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean shutdown = false;
+
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+
+    public VerificationStage() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public VerificationStage(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("Invalid number of workers: " + workers);
+        }
+        this.queues = new ArrayList<>(workers);
+        this.workers = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            var queue = new LinkedBlockingQueue<Job<?>>();
+            var worker = new Worker(queue, i);
+            queues.add(queue);
+            this.workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Runs the task on a worker and waits for it
+     *
+     * @return the task's result
+     */
+    public <T> T verify(Task<T> task) throws GeneralSecurityException, CommonDomainException {
+        try {
+            return submit(task::call);
+        } catch (GeneralSecurityException | CommonDomainException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            //Never happens, the task can't throw it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs the check on a worker and waits for it
+     */
+    public void check(Check check) throws GeneralSecurityException, IllegalMacException {
+        try {
+            submit(() -> {
+                check.run();
+                return null;
+            });
+        } catch (GeneralSecurityException | IllegalMacException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            //Never happens, the check can't throw it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private <T> T submit(Callable<T> task) throws Exception {
+        //A worker never waits for another one, and once shut down the verifications run on the caller
+        if (shutdown || Thread.currentThread() instanceof Worker) {
+            return task.call();
+        }
+        var job = new Job<>(task);
+        var queue = queues.get(Math.floorMod(next.getAndIncrement(), queues.size()));
+        queue.add(job);
+        if (shutdown && queue.remove(job)) {
+            //The worker may have stopped before taking it
+            return task.call();
+        }
+        return job.await();
+    }
+
+    public long getVerifiedCount() {
+        return verified.sum();
+    }
+
+    /**
+     * @return average time a verification waited for a worker, in nanoseconds
+     */
+    public double getAverageQueueWaitNanos() {
+        long count = verified.sum();
+        return count == 0 ? 0 : (double) queueWaitNanos.sum() / count;
+    }
+
+    /**
+     * @return average time a worker took to run a verification, in nanoseconds
+     */
+    public double getAverageVerifyNanos() {
+        long count = verified.sum();
+        return count == 0 ? 0 : (double) verifyNanos.sum() / count;
+    }
+
+    /**
+     * Stops the workers once their queued verifications are done
+     */
+    public void shutdown() {
+        shutdown = true;
+        workers.forEach(Thread::interrupt);
+    }
+
+    private final class Worker extends Thread {
+        private final BlockingQueue<Job<?>> queue;
+
+        private Worker(BlockingQueue<Job<?>> queue, int index) {
+            super("dpas-verify-" + index);
+            this.queue = queue;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            var batch = new ArrayList<Job<?>>(MAX_BATCH);
+            try {
+                while (!shutdown) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    runAll(batch);
+                }
+            } catch (InterruptedException e) {
+                //Shut down
+            }
+            queue.drainTo(batch);
+            runAll(batch);
+        }
+
+        private void runAll(List<Job<?>> batch) {
+            for (var job : batch) {
+                job.run();
+            }
+            batch.clear();
+        }
+    }
+
+    private final class Job<T> {
+        private final Callable<T> task;
+        private final long queuedAt = System.nanoTime();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private T result;
+        private Throwable error;
+
+        private Job(Callable<T> task) {
+            this.task = task;
+        }
+
+        private void run() {
+            long startedAt = System.nanoTime();
+            try {
+                result = task.call();
+            } catch (Throwable e) {
+                error = e;
+            }
+            long finishedAt = System.nanoTime();
+            queueWaitNanos.add(startedAt - queuedAt);
+            verifyNanos.add(finishedAt - startedAt);
+            verified.increment();
+            done.countDown();
+        }
+
+        private T await() throws Exception {
+            //Verifications are short, so the caller waits for it even if interrupted
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (error == null) {
+                return result;
+            }
+            if (error instanceof Exception) {
+                throw (Exception) error;
+            }
+            throw (Error) error;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import dpas.common.domain.Announcement;
 import dpas.common.domain.AnnouncementBoard;
 import dpas.common.domain.GeneralBoard;
 import dpas.common.domain.User;
+import dpas.common.domain.SignatureSuite;
 import dpas.common.domain.exception.CommonDomainException;
 import dpas.common.domain.exception.InvalidReferenceException;
 import dpas.common.domain.exception.InvalidUserException;
@@ -15,18 +16,16 @@ import dpas.grpc.contract.Contract.RegisterRequest;
 import dpas.grpc.contract.ServiceDPASGrpc;
 import io.grpc.stub.StreamObserver;
 
-import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
-import static dpas.common.domain.constants.CryptographicConstants.ASYMMETRIC_KEY_ALGORITHM;
 import static io.grpc.Status.INVALID_ARGUMENT;
 
 
@@ -104,7 +103,7 @@ public class ServiceDPASImpl extends ServiceDPASGrpc.ServiceDPASImplBase {
     @Override
     public void read(ReadRequest request, StreamObserver<ReadReply> responseObserver) {
         try {
-            PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
+            PublicKey key = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
 
             if (!(this.users.containsKey(key))) {
                 responseObserver.onError(INVALID_ARGUMENT.withDescription("User with public key does not exist")
@@ -153,8 +152,20 @@ public class ServiceDPASImpl extends ServiceDPASGrpc.ServiceDPASImplBase {
         return references;
     }
 
+    /**
+     * @return the announcement already delivered for this request (same identifier, board and signature), null if none
+     */
+    protected Announcement getDelivered(Contract.Announcement request, AnnouncementBoard board) {
+        var announcement = this.announcements.get(request.getIdentifier());
+        if (announcement == null || announcement.getBoard() != board
+                || !Arrays.equals(announcement.getSignature(), request.getSignature().toByteArray())) {
+            return null;
+        }
+        return announcement;
+    }
+
     protected Announcement generateAnnouncement(Contract.Announcement request, AnnouncementBoard board) throws NoSuchAlgorithmException, InvalidKeySpecException, CommonDomainException {
-        PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
+        PublicKey key = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
         byte[] signature = request.getSignature().toByteArray();
         String message = request.getMessage();
 
@@ -162,7 +173,7 @@ public class ServiceDPASImpl extends ServiceDPASGrpc.ServiceDPASImplBase {
     }
 
     protected Announcement generateAnnouncement(Contract.Announcement request) throws NoSuchAlgorithmException, InvalidKeySpecException, CommonDomainException {
-        PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
+        PublicKey key = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
         byte[] signature = request.getSignature().toByteArray();
         String message = request.getMessage();
 
@@ -2,6 +2,7 @@ package dpas.server.service;
 
 import dpas.common.domain.Announcement;
 import dpas.common.domain.User;
+import dpas.common.domain.SignatureSuite;
 import dpas.common.domain.exception.CommonDomainException;
 import dpas.common.domain.exception.NullPublicKeyException;
 import dpas.common.domain.exception.NullUserException;
@@ -13,15 +14,12 @@ import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 
 import java.io.IOException;
-import java.security.KeyFactory;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
-import static dpas.common.domain.constants.CryptographicConstants.ASYMMETRIC_KEY_ALGORITHM;
 import static dpas.common.domain.constants.JsonConstants.POST_GENERAL_OP_TYPE;
 import static dpas.common.domain.constants.JsonConstants.POST_OP_TYPE;
 
@@ -37,8 +35,7 @@ public class ServiceDPASPersistentImpl extends ServiceDPASImpl {
     @Override
     public void register(RegisterRequest request, StreamObserver<MacReply> responseObserver) {
         try {
-            PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM)
-                    .generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
+            PublicKey key = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
             User user = new User(key);
 
             User curr = users.putIfAbsent(key, user);
@@ -4,76 +4,186 @@ import com.google.protobuf.ByteString;
 import dpas.common.domain.Announcement;
 import dpas.common.domain.AnnouncementBoard;
 import dpas.common.domain.User;
+import dpas.common.domain.SignatureSuite;
 import dpas.common.domain.constants.JsonConstants;
 import dpas.common.domain.exception.CommonDomainException;
+import dpas.common.domain.exception.InvalidNumberOfPostsException;
 import dpas.common.domain.exception.InvalidSeqException;
+import dpas.common.domain.exception.InvalidSignatureException;
 import dpas.common.domain.exception.InvalidUserException;
+import dpas.common.domain.exception.NullUserException;
 import dpas.grpc.contract.Contract;
 import dpas.grpc.contract.Contract.MacReply;
+import dpas.server.ClientAdmission;
+import dpas.server.ClientExecutor;
+import dpas.server.broadcast.BroadcastDispatcher;
+import dpas.server.broadcast.BroadcastId;
+import dpas.server.broadcast.BroadcastInstance;
+import dpas.server.broadcast.DeliveredReplies;
+import dpas.server.broadcast.PeerOutbox;
+import dpas.server.broadcast.PendingPosts;
 import dpas.server.persistence.PersistenceManager;
 import dpas.server.security.SecurityManager;
+import dpas.server.security.VerificationStage;
 import dpas.server.security.exception.IllegalMacException;
 import dpas.utils.ContractGenerator;
+import dpas.utils.auth.ByteUtils;
 import dpas.utils.auth.CipherUtils;
 import dpas.utils.auth.ErrorGenerator;
 import dpas.utils.auth.MacGenerator;
 import dpas.utils.auth.MacVerifier;
 import dpas.utils.link.PerfectStub;
-import io.grpc.Context;
 import io.grpc.stub.StreamObserver;
 
 import javax.json.Json;
 import javax.json.JsonObject;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
-import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
-import static dpas.common.domain.constants.CryptographicConstants.ASYMMETRIC_KEY_ALGORITHM;
 import static dpas.common.domain.constants.JsonConstants.*;
 import static io.grpc.Status.*;
 
 public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
+    /**
+     * How far ahead of a board a post can be, at least the clients' pipelining window
+     */
+    private static final long MAX_SEQ_AHEAD = 32;
+    /**
+     * Maximum number of announcements broadcast together by a single post batch
+     */
+    public static final int MAX_BATCH_SIZE = 64;
+    private static final String OVERLOADED = "Server overloaded, try again later";
+    private static final String RATE_LIMITED = "Too many requests, try again later";
+
     private final int quorumSize;
     private final int numFaults;
     private final String serverId;
     private final PrivateKey privateKey;
     private final List<PerfectStub> servers;
+    /**
+     * Servers other than the current one
+     */
+    private final List<PerfectStub> peers;
+    private final int selfIndex;
+    /**
+     * Threads the messages to each peer are sent on
+     */
+    private final BroadcastDispatcher dispatcher;
+    /**
+     * Messages waiting to be sent to each peer (same order as peers)
+     */
+    private final List<PeerOutbox> outboxes;
     private final Map<String, PublicKey> serverKeys;
+    private final Map<String, Integer> serverIndexes;
 
     /**
-     * Map of echoes sent by current server
+     * Map of broadcast instances (echoes, readies and proofs received by the current server)
      */
-    private final Map<String, Boolean> sentEchos = new ConcurrentHashMap<>();
-    private final Map<String, Set<String>> echosCount = new ConcurrentHashMap<>();
+    private final Map<BroadcastId, BroadcastInstance<Contract.ReadyAnnouncement, Announcement>> instances = new ConcurrentHashMap<>();
 
     /**
-     * Map of readies sent by current server
+     * Map of batch broadcast instances (the readies carry the proofs of every announcement in the batch)
      */
-    private final Map<String, Boolean> sentReadies = new ConcurrentHashMap<>();
-    private final Map<String, Set<String>> readyCount = new ConcurrentHashMap<>();
-    private final Map<String, Set<Contract.ReadyAnnouncement>> announcementProofs = new ConcurrentHashMap<>();
+    private final Map<BroadcastId, BroadcastInstance<Contract.ReadyAnnouncementBatch, List<Announcement>>> batchInstances = new ConcurrentHashMap<>();
 
     /**
      * Map of messages delivered
      */
-    private final Map<String, CountDownLatch> deliveredMessages = new ConcurrentHashMap<>();
+    private final Map<BroadcastId, CountDownLatch> deliveredMessages = new ConcurrentHashMap<>();
+
+    /**
+     * Replies of the posts and registers already delivered, given again to the clients' retries
+     */
+    private final DeliveredReplies deliveredReplies = new DeliveredReplies();
+
+    /**
+     * Runs the client RPCs, so they never take the threads of the echoes and readies
+     */
+    private final ClientExecutor clientExecutor;
+
+    /**
+     * Rate and concurrency limits of the client RPCs
+     */
+    private final ClientAdmission admission;
+
+    /**
+     * Workers the signature and mac verifications run on
+     */
+    private final VerificationStage verification;
+
+    /**
+     * Whether the workers were created by this service (instead of shared by the caller), so it shuts them down
+     */
+    private final boolean ownsWorkers;
+
+    /**
+     * Requests waiting for the previous posts of their board to be delivered
+     */
+    private final PendingPosts pendingPosts = new PendingPosts();
+
+    /**
+     * Runs the echoes and readies put aside once resumed or expired. Client requests resume on the client executor,
+     * where their handlers wait for the delivery, so the echoes and readies that complete them can't queue behind them
+     */
+    private final ExecutorService peerResumes;
 
     public ServiceDPASReliableImpl(PersistenceManager manager, PrivateKey privKey, List<PerfectStub> servers, String serverId, int numFaults) {
+        this(manager, privKey, servers, serverId, numFaults, new ClientExecutor(), new ClientAdmission(), new VerificationStage(), true);
+    }
+
+    /**
+     * @param clientExecutor executor the client RPCs run on (the replica to replica RPCs run on the server's executor)
+     * @param admission      limits checked before a client RPC is run
+     * @param verification  workers the signature and mac verifications of all RPCs run on
+     */
+    public ServiceDPASReliableImpl(PersistenceManager manager, PrivateKey privKey, List<PerfectStub> servers, String serverId,
+                                   int numFaults, ClientExecutor clientExecutor, ClientAdmission admission,
+                                   VerificationStage verification) {
+        this(manager, privKey, servers, serverId, numFaults, clientExecutor, admission, verification, false);
+    }
+
+    private ServiceDPASReliableImpl(PersistenceManager manager, PrivateKey privKey, List<PerfectStub> servers, String serverId,
+                                    int numFaults, ClientExecutor clientExecutor, ClientAdmission admission,
+                                    VerificationStage verification, boolean ownsWorkers) {
         super(manager);
+        this.ownsWorkers = ownsWorkers;
+        this.clientExecutor = clientExecutor;
+        var count = new AtomicInteger();
+        this.peerResumes = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task -> {
+            var thread = new Thread(task, "dpas-peer-resume-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.admission = admission;
+        this.verification = verification;
         this.privateKey = privKey;
         this.serverId = serverId;
         this.servers = servers;
         this.serverKeys = new HashMap<>();
+        this.serverIndexes = new HashMap<>();
         for (var stub : servers) {
             this.serverKeys.put(stub.getServerId(), stub.getServerKey());
+            this.serverIndexes.put(stub.getServerId(), serverIndexes.size());
         }
+        this.selfIndex = serverIndexes.getOrDefault(serverId, -1);
+        this.peers = servers.stream()
+                .filter(stub -> !stub.getServerId().equals(serverId))
+                .collect(Collectors.toList());
+        this.dispatcher = new BroadcastDispatcher(peers.size());
+        this.outboxes = IntStream.range(0, peers.size())
+                .mapToObj(i -> new PeerOutbox(dispatcher, i))
+                .collect(Collectors.toList());
         this.quorumSize = 2 * numFaults + 1;
         this.numFaults = numFaults;
     }
@@ -83,8 +193,86 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
         this(null, privKey, servers, serverId, numFaults);
     }
 
+    /**
+     * Stops the threads of the broadcast, must be called once the server stopped (before closing the peers' channels).
+     * Workers given to the constructor are left to the caller
+     */
+    public void shutdown() {
+        dispatcher.shutdown();
+        pendingPosts.shutdown();
+        peerResumes.shutdown();
+        if (ownsWorkers) {
+            verification.shutdown();
+            clientExecutor.shutdown();
+        }
+    }
+
+    public VerificationStage getVerification() {
+        return verification;
+    }
+
+    /**
+     * @return the queue of each peer's broadcast messages (peers in the order of the servers, without this one)
+     */
+    public BroadcastDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    /**
+     * @return the backlog of each peer's broadcast messages, in the dispatcher's order
+     */
+    public List<PeerOutbox> getOutboxes() {
+        return outboxes;
+    }
+
+    public PendingPosts getPendingPosts() {
+        return pendingPosts;
+    }
+
+    /**
+     * Runs a client RPC on the client executor if the client is within its limits.
+     * Rejections are not signed (no cryptography is done for them), the client just retries later
+     */
+    private void admit(ByteString client, Runnable call, StreamObserver<?> responseObserver) {
+        if (!admission.tryAcquire(client)) {
+            responseObserver.onError(RESOURCE_EXHAUSTED.withDescription(RATE_LIMITED).asRuntimeException());
+            return;
+        }
+        clientExecutor.execute(() -> {
+            try {
+                call.run();
+            } finally {
+                admission.release(client);
+            }
+        }, () -> {
+            admission.release(client);
+            responseObserver.onError(RESOURCE_EXHAUSTED.withDescription(OVERLOADED).asRuntimeException());
+        });
+    }
+
+    /**
+     * Answers a request already delivered with the reply it was given, without validating it or signing again
+     */
+    private boolean replyDelivered(BroadcastId request, StreamObserver<MacReply> responseObserver) {
+        var reply = deliveredReplies.get(request);
+        if (reply == null) {
+            return false;
+        }
+        responseObserver.onNext(reply);
+        responseObserver.onCompleted();
+        return true;
+    }
+
+    private static ByteString batchClient(Contract.AnnouncementBatch batch) {
+        return batch.getAnnouncementsCount() == 0 ? ByteString.EMPTY : batch.getAnnouncements(0).getPublicKey();
+    }
+
     @Override
     public void read(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> responseObserver) {
+        admit(request.getPublicKey(), () -> handleRead(request, responseObserver), responseObserver);
+    }
+
+    private void handleRead(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> responseObserver) {
         try {
             String nonce = request.getNonce();
             if (isReadRepeated(nonce)) {
@@ -94,7 +282,7 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
             addNonce(nonce);
             save(readObject(nonce));
 
-            PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
+            PublicKey key = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
 
             if (!(users.containsKey(key))) {
                 responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, "User with public key does not exist", request, privateKey));
@@ -103,10 +291,7 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
                 var announcements = users.get(key).getUserBoard().read(request.getNumber());
                 var announcementsGRPC = announcements.stream().map(Announcement::toContract).collect(Collectors.toList());
 
-                responseObserver.onNext(Contract.ReadReply.newBuilder()
-                        .addAllAnnouncements(announcementsGRPC)
-                        .setMac(ByteString.copyFrom(MacGenerator.generateMac(request, announcementsGRPC.size(), privateKey)))
-                        .build());
+                responseObserver.onNext(readReply(request, announcementsGRPC));
                 responseObserver.onCompleted();
             }
         } catch (Exception e) {
@@ -116,6 +301,10 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
 
     @Override
     public void readGeneral(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> responseObserver) {
+        admit(ByteString.EMPTY, () -> handleReadGeneral(request, responseObserver), responseObserver);
+    }
+
+    private void handleReadGeneral(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> responseObserver) {
         try {
             String nonce = request.getNonce();
             if (isReadRepeated(nonce)) {
@@ -128,10 +317,7 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
             var announcements = generalBoard.read(request.getNumber());
             var announcementsGRPC = announcements.stream().map(Announcement::toContract).collect(Collectors.toList());
 
-            responseObserver.onNext(Contract.ReadReply.newBuilder()
-                    .addAllAnnouncements(announcementsGRPC)
-                    .setMac(ByteString.copyFrom(MacGenerator.generateMac(request, announcementsGRPC.size(), privateKey)))
-                    .build());
+            responseObserver.onNext(readReply(request, announcementsGRPC));
             responseObserver.onCompleted();
 
         } catch (Exception e) {
@@ -139,20 +325,48 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
         }
     }
 
+    /**
+     * The announcements read, or only their digest if the client asked for it
+     */
+    private Contract.ReadReply readReply(Contract.ReadRequest request, List<Contract.Announcement> announcements)
+            throws GeneralSecurityException, IOException {
+        if (request.getDigestOnly()) {
+            byte[] digest = MacGenerator.generateDigest(announcements);
+            return Contract.ReadReply.newBuilder()
+                    .setDigest(ByteString.copyFrom(digest))
+                    .setMac(ByteString.copyFrom(MacGenerator.generateMac(request, digest, privateKey)))
+                    .build();
+        }
+        return Contract.ReadReply.newBuilder()
+                .addAllAnnouncements(announcements)
+                .setMac(ByteString.copyFrom(MacGenerator.generateMac(request, announcements.size(), privateKey)))
+                .build();
+    }
+
     @Override
     public void register(Contract.RegisterRequest request, StreamObserver<MacReply> responseObserver) {
+        var id = BroadcastId.of(request.toByteString());
+        if (replyDelivered(id, responseObserver)) {
+            return;
+        }
+        admit(request.getPublicKey(), () -> handleRegister(request, id, responseObserver), responseObserver);
+    }
+
+    private void handleRegister(Contract.RegisterRequest request, BroadcastId id, StreamObserver<MacReply> responseObserver) {
         try {
-            SecurityManager.validateRequest(request);
+            verification.check(() -> SecurityManager.validateRequest(request));
             //to validate the public key
             brbRegister(request);
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac().toByteArray(), privateKey));
+            var reply = ContractGenerator.generateMacReply(request.getMac(), privateKey);
+            deliveredReplies.put(id, reply);
+            responseObserver.onNext(reply);
             responseObserver.onCompleted();
 
-        } catch (IllegalMacException e) {
+        } catch (IllegalMacException | CommonDomainException e) {
             responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
         } catch (GeneralSecurityException e) {
             responseObserver.onError(ErrorGenerator.generate(CANCELLED, "Invalid security values provided", request, privateKey));
-        } catch (InterruptedException e) {
+        } catch (IOException | InterruptedException e) {
             //Should never happen
             responseObserver.onError(ErrorGenerator.generate(CANCELLED, "An Error occurred in the server", request, privateKey));
         }
@@ -161,11 +375,27 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
 
     @Override
     public void post(Contract.Announcement request, StreamObserver<MacReply> responseObserver) {
+        var id = BroadcastId.of(request.toByteString());
+        if (replyDelivered(id, responseObserver)) {
+            return;
+        }
+        admit(request.getPublicKey(), () -> handlePost(request, id, responseObserver), responseObserver);
+    }
+
+    private void handlePost(Contract.Announcement request, BroadcastId id, StreamObserver<MacReply> responseObserver) {
+        if (deferred(userBoard(request.getPublicKey()), request.getSeq(),
+                clientExecutor, () -> handlePost(request, id, responseObserver),
+                () -> responseObserver.onError(ErrorGenerator.generate(UNAUTHENTICATED, "Invalid seq", request, privateKey)),
+                responseObserver)) {
+            return;
+        }
         try {
             var announcement = generateAnnouncement(request, privateKey); //validate request
             brbAnnouncement(request, announcement);
 
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getSignature().toByteArray(), privateKey));
+            var reply = ContractGenerator.generateMacReply(request.getSignature(), privateKey);
+            deliveredReplies.put(id, reply);
+            responseObserver.onNext(reply);
             responseObserver.onCompleted();
 
         } catch (InvalidSeqException | InvalidUserException e) {
@@ -174,7 +404,7 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
             responseObserver.onError(ErrorGenerator.generate(CANCELLED, "Invalid security values provided", request, privateKey));
         } catch (CommonDomainException | IllegalArgumentException e) {
             responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
-        } catch (InterruptedException e) {
+        } catch (IOException | InterruptedException e) {
             //Never happens
             responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, "An Error occurred in the server", request, privateKey));
         }
@@ -183,11 +413,27 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
 
     @Override
     public void postGeneral(Contract.Announcement request, StreamObserver<MacReply> responseObserver) {
+        var id = BroadcastId.of(request.toByteString());
+        if (replyDelivered(id, responseObserver)) {
+            return;
+        }
+        admit(request.getPublicKey(), () -> handlePostGeneral(request, id, responseObserver), responseObserver);
+    }
+
+    private void handlePostGeneral(Contract.Announcement request, BroadcastId id, StreamObserver<MacReply> responseObserver) {
+        if (deferred(generalBoard, request.getSeq(),
+                clientExecutor, () -> handlePostGeneral(request, id, responseObserver),
+                () -> responseObserver.onError(ErrorGenerator.generate(UNAUTHENTICATED, "Invalid seq", request, privateKey)),
+                responseObserver)) {
+            return;
+        }
         try {
             var announcement = generateAnnouncement(request, generalBoard, privateKey);
             brbAnnouncementGeneral(request, announcement);
 
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getSignature().toByteArray(), privateKey));
+            var reply = ContractGenerator.generateMacReply(request.getSignature(), privateKey);
+            deliveredReplies.put(id, reply);
+            responseObserver.onNext(reply);
             responseObserver.onCompleted();
 
         } catch (InvalidSeqException | InvalidUserException e) {
@@ -196,59 +442,92 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
             responseObserver.onError(ErrorGenerator.generate(CANCELLED, "Invalid security values provided", request, privateKey));
         } catch (CommonDomainException | IllegalArgumentException e) {
             responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
-        } catch (InterruptedException e) {
+        } catch (IOException | InterruptedException e) {
             //Never happens
             responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, "An Error occurred in the server", request, privateKey));
         }
     }
 
 
+    /**
+     * All the announcements of the batch are delivered by a single broadcast, each one keeps its own signature,
+     * identifier and seq (the first one must follow the board, the others follow it)
+     */
+    @Override
+    public void postBatch(Contract.AnnouncementBatch request, StreamObserver<MacReply> responseObserver) {
+        var id = BroadcastId.of(request.toByteString());
+        if (replyDelivered(id, responseObserver)) {
+            return;
+        }
+        admit(batchClient(request), () -> handlePostBatch(request, id, responseObserver), responseObserver);
+    }
+
+    private void handlePostBatch(Contract.AnnouncementBatch request, BroadcastId id, StreamObserver<MacReply> responseObserver) {
+        if (deferred(userBoard(batchClient(request)), batchSeq(request),
+                clientExecutor, () -> handlePostBatch(request, id, responseObserver),
+                () -> responseObserver.onError(ErrorGenerator.generate(UNAUTHENTICATED, "Invalid seq", request, privateKey)),
+                responseObserver)) {
+            return;
+        }
+        try {
+            var announcements = generateAnnouncements(request, privateKey); //validate request
+            brbAnnouncementBatch(request, announcements);
+
+            var reply = ContractGenerator.generateMacReply(ByteUtils.content(request), privateKey);
+            deliveredReplies.put(id, reply);
+            responseObserver.onNext(reply);
+            responseObserver.onCompleted();
+
+        } catch (InvalidSeqException | InvalidUserException e) {
+            responseObserver.onError(ErrorGenerator.generate(UNAUTHENTICATED, e.getMessage(), request, privateKey));
+        } catch (GeneralSecurityException e) {
+            responseObserver.onError(ErrorGenerator.generate(CANCELLED, "Invalid security values provided", request, privateKey));
+        } catch (CommonDomainException | IllegalArgumentException e) {
+            responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
+        } catch (IOException | InterruptedException e) {
+            //Never happens
+            responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, "An Error occurred in the server", request, privateKey));
+        }
+    }
+
     @Override
     public void echoRegister(Contract.EchoRegister request, StreamObserver<MacReply> responseObserver) {
         try {
-            SecurityManager.validateRequest(request, serverKeys);
-            var id = request.getRequest().getMac().toStringUtf8();
-
-            Set<String> echos;
-            synchronized (echos = echosCount.computeIfAbsent(id, key -> Collections.synchronizedSet(new HashSet<>()))) {
-                boolean notExisted = echos.add(request.getMac().toStringUtf8());
-                if (notExisted) {
-                    //First time seeing this echo
-                    if (echos.size() == quorumSize) {
-                        broadcastReadyRegister(request.getRequest());
-                    }
-                }
-            }
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac().toByteArray(), privateKey));
+            verification.check(() -> SecurityManager.validateRequest(request, serverKeys));
+            var instance = getInstance(BroadcastId.of(request.getRequest().getMac()));
+
+            if (instance.addEcho(serverIndexes.get(request.getServerKey())) == quorumSize) {
+                broadcastReadyRegister(request.getRequest(), instance);
+            }
+            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac(), privateKey));
             responseObserver.onCompleted();
         } catch (IllegalMacException e) {
             responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
+        } catch (IOException e) {
+            responseObserver.onError(ErrorGenerator.generate(CANCELLED, "An Error occurred in the server", request, privateKey));
         } catch (GeneralSecurityException e) {
             responseObserver.onError(ErrorGenerator.generate(CANCELLED, "Invalid security values provided", request, privateKey));
+        } catch (CommonDomainException e) {
+            //This never happens by the security manager
+            responseObserver.onError(ErrorGenerator.generate(CANCELLED, e.getMessage(), request, privateKey));
         }
     }
 
     @Override
     public void readyRegister(Contract.ReadyRegister request, StreamObserver<MacReply> responseObserver) {
         try {
-            SecurityManager.validateRequest(request, serverKeys);
-
-            String id = request.getRequest().getMac().toStringUtf8();
-
-            Set<String> countSet;
-            synchronized (countSet = readyCount.computeIfAbsent(id, key -> Collections.synchronizedSet(new HashSet<>()))) {
-                boolean notExisted = countSet.add(request.getMac().toStringUtf8());
-                if (notExisted) {
-                    if (countSet.size() == numFaults + 1) {
-                        //Amplification Step
-                        broadcastReadyRegister(request.getRequest());
-                    }
-                    if (countSet.size() == quorumSize) {
-                        deliverRegister(request.getRequest());
-                    }
-                }
-            }
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac().toByteArray(), privateKey));
+            verification.check(() -> SecurityManager.validateRequest(request, serverKeys));
+            var instance = getInstance(BroadcastId.of(request.getRequest().getMac()));
+
+            int readies = instance.addReady(serverIndexes.get(request.getServerKey()));
+            if (readies == numFaults + 1) {
+                //Amplification Step
+                broadcastReadyRegister(request.getRequest(), instance);
+            }
+            if (readies == quorumSize && markDelivered(instance)) {
+                deliverRegister(request.getRequest());
+            }
+            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac(), privateKey));
             responseObserver.onCompleted();
         } catch (IllegalMacException e) {
             responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
@@ -265,26 +544,24 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
     @Override
     public void echoAnnouncement(Contract.EchoAnnouncement request, StreamObserver<MacReply> responseObserver) {
         try {
-            SecurityManager.validateAnnouncement(request, serverKeys);
-
-            var announcement = generateAnnouncement(request.getRequest(), privateKey);
-
-            String id = request.getRequest().getSignature().toStringUtf8();
+            verification.check(() -> SecurityManager.validateAnnouncement(request, serverKeys));
+            if (deferred(userBoard(request.getRequest().getPublicKey()), request.getRequest().getSeq(), peerResumes, () -> echoAnnouncement(request, responseObserver),
+                    () -> responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, "Invalid seq", request, privateKey)),
+                    responseObserver)) {
+                return;
+            }
+            var instance = getInstance(BroadcastId.of(request.getRequest().getSignature()));
+            var announcement = getValidatedAnnouncement(request.getRequest(), instance);
 
-            Set<String> echos;
-            synchronized (echos = echosCount.computeIfAbsent(id, key -> Collections.synchronizedSet(new HashSet<>()))) {
-                boolean notExisted = echos.add(request.getMac().toStringUtf8());
-                if (notExisted) {
-                    //First time seeing this echo
-                    if (echos.size() == quorumSize) {
-                        broadcastReadyAnnouncement(request.getRequest(), announcement);
-                    }
-                }
+            if (instance.addEcho(serverIndexes.get(request.getServerKey())) == quorumSize) {
+                broadcastReadyAnnouncement(request.getRequest(), announcement, instance);
             }
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac().toByteArray(), privateKey));
+            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac(), privateKey));
             responseObserver.onCompleted();
         } catch (IllegalMacException | CommonDomainException e) {
             responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
+        } catch (IOException e) {
+            responseObserver.onError(ErrorGenerator.generate(CANCELLED, "An Error occurred in the server", request, privateKey));
         } catch (GeneralSecurityException e) {
             responseObserver.onError(ErrorGenerator.generate(CANCELLED, "Invalid security values provided", request, privateKey));
         }
@@ -293,28 +570,24 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
     @Override
     public void readyAnnouncement(Contract.ReadyAnnouncement request, StreamObserver<MacReply> responseObserver) {
         try {
-            SecurityManager.validateAnnouncement(request, serverKeys);
-
-            var announcement = generateAnnouncement(request.getRequest(), privateKey);
-            String id = request.getRequest().getSignature().toStringUtf8();
-
-            Set<String> countSet;
-            synchronized (countSet = readyCount.computeIfAbsent(id, key -> Collections.synchronizedSet(new HashSet<>()))) {
-                boolean notExisted = countSet.add(request.getMac().toStringUtf8());
-                if (notExisted) {
-                    //New Proof
-                    announcementProofs.computeIfAbsent(id, key -> Collections.synchronizedSet(new HashSet<>())).add(request);
-
-                    if (countSet.size() == numFaults + 1) {
-                        //Amplification Step
-                        broadcastReadyAnnouncement(request.getRequest(), announcement);
-                    }
-                    if (countSet.size() == quorumSize) {
-                        deliverAnnouncement(request.getRequest());
-                    }
-                }
-            }
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac().toByteArray(), privateKey));
+            verification.check(() -> SecurityManager.validateAnnouncement(request, serverKeys));
+            if (deferred(userBoard(request.getRequest().getPublicKey()), request.getRequest().getSeq(), peerResumes, () -> readyAnnouncement(request, responseObserver),
+                    () -> responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, "Invalid seq", request, privateKey)),
+                    responseObserver)) {
+                return;
+            }
+            var instance = getInstance(BroadcastId.of(request.getRequest().getSignature()));
+            var announcement = getValidatedAnnouncement(request.getRequest(), instance);
+
+            int readies = instance.addReady(serverIndexes.get(request.getServerKey()), request);
+            if (readies == numFaults + 1) {
+                //Amplification Step
+                broadcastReadyAnnouncement(request.getRequest(), announcement, instance);
+            }
+            if (readies == quorumSize && markDelivered(instance)) {
+                deliverAnnouncement(request.getRequest(), announcement, instance);
+            }
+            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac(), privateKey));
             responseObserver.onCompleted();
         } catch (IllegalMacException e) {
             responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
@@ -331,25 +604,24 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
     @Override
     public void echoAnnouncementGeneral(Contract.EchoAnnouncement request, StreamObserver<MacReply> responseObserver) {
         try {
-            SecurityManager.validateAnnouncement(request, serverKeys);
-
-            var announcement = generateAnnouncement(request.getRequest(), generalBoard, privateKey);
-            var id = request.getRequest().getSignature().toStringUtf8();
-
-            Set<String> echos;
-            synchronized (echos = echosCount.computeIfAbsent(id, key -> Collections.synchronizedSet(new HashSet<>()))) {
-                boolean notExisted = echos.add(request.getMac().toStringUtf8());
-                if (notExisted) {
-                    //First time seeing this echo
-                    if (echos.size() == quorumSize) {
-                        broadcastReadyAnnouncementGeneral(request.getRequest(), announcement);
-                    }
-                }
-            }
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac().toByteArray(), privateKey));
+            verification.check(() -> SecurityManager.validateAnnouncement(request, serverKeys));
+            if (deferred(generalBoard, request.getRequest().getSeq(), peerResumes, () -> echoAnnouncementGeneral(request, responseObserver),
+                    () -> responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, "Invalid seq", request, privateKey)),
+                    responseObserver)) {
+                return;
+            }
+            var instance = getInstance(BroadcastId.of(request.getRequest().getSignature()));
+            var announcement = getValidatedAnnouncementGeneral(request.getRequest(), instance);
+
+            if (instance.addEcho(serverIndexes.get(request.getServerKey())) == quorumSize) {
+                broadcastReadyAnnouncementGeneral(request.getRequest(), announcement, instance);
+            }
+            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac(), privateKey));
             responseObserver.onCompleted();
         } catch (IllegalMacException | CommonDomainException e) {
             responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
+        } catch (IOException e) {
+            responseObserver.onError(ErrorGenerator.generate(CANCELLED, "An Error occurred in the server", request, privateKey));
         } catch (GeneralSecurityException e) {
             responseObserver.onError(ErrorGenerator.generate(CANCELLED, "Invalid security values provided", request, privateKey));
         }
@@ -358,27 +630,24 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
     @Override
     public void readyAnnouncementGeneral(Contract.ReadyAnnouncement request, StreamObserver<MacReply> responseObserver) {
         try {
-            SecurityManager.validateAnnouncement(request, serverKeys);
-
-            var announcement = generateAnnouncement(request.getRequest(), generalBoard, privateKey);
-            var id = request.getRequest().getSignature().toStringUtf8();
-
-            Set<String> countSet;
-            synchronized (countSet = readyCount.computeIfAbsent(id, key -> Collections.synchronizedSet(new HashSet<>()))) {
-                var notExisted = countSet.add(request.getMac().toStringUtf8());
-                if (notExisted) {
-                    //New Proof
-                    announcementProofs.computeIfAbsent(id, key -> Collections.synchronizedSet(new HashSet<>())).add(request);
-                    if (countSet.size() == numFaults + 1) {
-                        //Amplification Step
-                        broadcastReadyAnnouncementGeneral(request.getRequest(), announcement);
-                    }
-                    if (countSet.size() == quorumSize) {
-                        deliverAnnouncementGeneral(request.getRequest());
-                    }
-                }
-            }
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac().toByteArray(), privateKey));
+            verification.check(() -> SecurityManager.validateAnnouncement(request, serverKeys));
+            if (deferred(generalBoard, request.getRequest().getSeq(), peerResumes, () -> readyAnnouncementGeneral(request, responseObserver),
+                    () -> responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, "Invalid seq", request, privateKey)),
+                    responseObserver)) {
+                return;
+            }
+            var instance = getInstance(BroadcastId.of(request.getRequest().getSignature()));
+            var announcement = getValidatedAnnouncementGeneral(request.getRequest(), instance);
+
+            int readies = instance.addReady(serverIndexes.get(request.getServerKey()), request);
+            if (readies == numFaults + 1) {
+                //Amplification Step
+                broadcastReadyAnnouncementGeneral(request.getRequest(), announcement, instance);
+            }
+            if (readies == quorumSize && markDelivered(instance)) {
+                deliverAnnouncementGeneral(request.getRequest(), announcement, instance);
+            }
+            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac(), privateKey));
             responseObserver.onCompleted();
         } catch (IllegalMacException e) {
             responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
@@ -393,6 +662,74 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
     }
 
 
+    @Override
+    public void echoAnnouncementBatch(Contract.EchoAnnouncementBatch request, StreamObserver<MacReply> responseObserver) {
+        try {
+            verification.check(() -> SecurityManager.validateAnnouncement(request, serverKeys));
+            if (deferred(userBoard(batchClient(request.getRequest())), batchSeq(request.getRequest()), peerResumes, () -> echoAnnouncementBatch(request, responseObserver),
+                    () -> responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, "Invalid seq", request, privateKey)),
+                    responseObserver)) {
+                return;
+            }
+            var instance = getBatchInstance(batchId(request.getRequest()));
+            var announcements = getValidatedAnnouncements(request.getRequest(), instance);
+
+            if (instance.addEcho(serverIndexes.get(request.getServerKey())) == quorumSize) {
+                broadcastReadyAnnouncementBatch(request.getRequest(), announcements, instance);
+            }
+            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac(), privateKey));
+            responseObserver.onCompleted();
+        } catch (IllegalMacException | CommonDomainException | IllegalArgumentException e) {
+            responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
+        } catch (IOException e) {
+            responseObserver.onError(ErrorGenerator.generate(CANCELLED, "An Error occurred in the server", request, privateKey));
+        } catch (GeneralSecurityException e) {
+            responseObserver.onError(ErrorGenerator.generate(CANCELLED, "Invalid security values provided", request, privateKey));
+        }
+    }
+
+    @Override
+    public void readyAnnouncementBatch(Contract.ReadyAnnouncementBatch request, StreamObserver<MacReply> responseObserver) {
+        try {
+            verification.check(() -> SecurityManager.validateAnnouncement(request, serverKeys));
+            if (deferred(userBoard(batchClient(request.getRequest())), batchSeq(request.getRequest()), peerResumes, () -> readyAnnouncementBatch(request, responseObserver),
+                    () -> responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, "Invalid seq", request, privateKey)),
+                    responseObserver)) {
+                return;
+            }
+            var instance = getBatchInstance(batchId(request.getRequest()));
+            var announcements = getValidatedAnnouncements(request.getRequest(), instance);
+
+            int readies = instance.addReady(serverIndexes.get(request.getServerKey()), request);
+            if (readies == numFaults + 1) {
+                //Amplification Step
+                broadcastReadyAnnouncementBatch(request.getRequest(), announcements, instance);
+            }
+            if (readies == quorumSize && markDelivered(instance)) {
+                deliverAnnouncementBatch(request.getRequest(), announcements, instance);
+            }
+            responseObserver.onNext(ContractGenerator.generateMacReply(ByteUtils.content(request.getRequest()), privateKey));
+            responseObserver.onCompleted();
+        } catch (IllegalMacException | CommonDomainException | IllegalArgumentException e) {
+            responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, e.getMessage(), request, privateKey));
+        } catch (IOException e) {
+            responseObserver.onError(ErrorGenerator.generate(CANCELLED, "An Error occurred in the server", request, privateKey));
+        } catch (GeneralSecurityException e) {
+            responseObserver.onError(ErrorGenerator.generate(CANCELLED, "Invalid security values provided", request, privateKey));
+        }
+    }
+
+    /**
+     * @return true if the caller is the first to deliver the instance, its echoes still waiting for a peer are dropped
+     */
+    private boolean markDelivered(BroadcastInstance<?, ?> instance) {
+        if (!instance.markDelivered()) {
+            return false;
+        }
+        outboxes.forEach(outbox -> outbox.delivered(instance));
+        return true;
+    }
+
     //Don't want to save when testing
     private void save(JsonObject object) throws IOException {
         if (manager != null) {
@@ -400,277 +737,534 @@ public class ServiceDPASReliableImpl extends ServiceDPASPersistentImpl {
         }
     }
 
-    private void broadcastEchoRegister(Contract.RegisterRequest request) throws GeneralSecurityException {
-        var curr = sentEchos.putIfAbsent(request.getMac().toStringUtf8(), true);
-        if (curr == null) {
-            //First time broadcasting
-            var echo = ContractGenerator.generateEchoRegister(request, privateKey, serverId);
+    private BroadcastInstance<Contract.ReadyAnnouncement, Announcement> getInstance(BroadcastId id) {
+        return instances.computeIfAbsent(id, key -> new BroadcastInstance<>(servers.size()));
+    }
 
-            //If we don't do this we get an error because we can't send RPCs from an RPC
-            Context ctx = Context.current().fork();
-            ctx.run(() -> {
-                for (var stub : servers) {
-                    stub.echoRegister(echo, new StreamObserver<>() {
-                        @Override
-                        public void onNext(MacReply value) {
-                        }
+    private BroadcastInstance<Contract.ReadyAnnouncementBatch, List<Announcement>> getBatchInstance(BroadcastId id) {
+        return batchInstances.computeIfAbsent(id, key -> new BroadcastInstance<>(servers.size()));
+    }
 
-                        @Override
-                        public void onError(Throwable t) {
-                        }
+    private static BroadcastId batchId(Contract.AnnouncementBatch batch) {
+        return BroadcastId.of(ByteString.copyFrom(ByteUtils.toByteArray(batch)));
+    }
 
-                        @Override
-                        public void onCompleted() {
-                        }
-                    });
-                }
-            });
+    private void broadcastEchoRegister(Contract.RegisterRequest request, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (instance.markEchoSent()) {
+            //First time broadcasting
+            var echo = ContractGenerator.generateEchoRegister(request, privateKey, serverId);
+            for (int i = 0; i < peers.size(); i++) {
+                var stub = peers.get(i);
+                outboxes.get(i).echo(instance, observer -> stub.echoRegister(echo, observer));
+            }
+            localEchoRegister(request, instance);
         }
     }
 
-    private void broadcastEchoAnnouncement(Contract.Announcement request, Announcement announcement) throws GeneralSecurityException {
-        var curr = sentEchos.putIfAbsent(request.getSignature().toStringUtf8(), true);
-        if (curr == null) {
+    private void broadcastEchoAnnouncement(Contract.Announcement request, Announcement announcement, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (instance.markEchoSent()) {
             //First time broadcasting
+            var echo = ContractGenerator.generateEchoAnnouncement(request, privateKey, serverId);
+            for (int i = 0; i < peers.size(); i++) {
+                var stub = peers.get(i);
+                outboxes.get(i).echo(instance, observer -> {
+                    var peerEcho = echo.toBuilder().setRequest(cipherForPeer(request, announcement, stub)).build();
+                    stub.echoAnnouncement(peerEcho, observer);
+                });
+            }
+            localEchoAnnouncement(request, announcement, instance);
+        }
+    }
 
-            for (var stub : servers) {
-                //Server always send the message ciphered with the receiver's public key
-                var message = CipherUtils.cipherAndEncode(announcement.getMessage().getBytes(), stub.getServerKey());
-                request = request.toBuilder().setMessage(message).build();
-                var echo = ContractGenerator.generateEchoAnnouncement(request, privateKey, serverId);
-                //If we don't do this we get an error because we can't send RPCs from an RPC
-                Context ctx = Context.current().fork();
-                ctx.run(() -> stub.echoAnnouncement(echo, new StreamObserver<>() {
-                    @Override
-                    public void onNext(MacReply value) {
-                    }
+    private void broadcastEchoAnnouncementGeneral(Contract.Announcement request, Announcement announcement, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (instance.markEchoSent()) {
+            //First time broadcasting
+            var echo = ContractGenerator.generateEchoAnnouncement(request, privateKey, serverId);
+            for (int i = 0; i < peers.size(); i++) {
+                var stub = peers.get(i);
+                outboxes.get(i).echo(instance, observer -> {
+                    var peerEcho = echo.toBuilder().setRequest(cipherForPeer(request, announcement, stub)).build();
+                    stub.echoAnnouncementGeneral(peerEcho, observer);
+                });
+            }
+            localEchoAnnouncementGeneral(request, announcement, instance);
+        }
+    }
 
-                    @Override
-                    public void onError(Throwable t) {
-                    }
 
-                    @Override
-                    public void onCompleted() {
-                    }
-                }));
+    private void broadcastEchoAnnouncementBatch(Contract.AnnouncementBatch request, List<Announcement> announcements, BroadcastInstance<Contract.ReadyAnnouncementBatch, List<Announcement>> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (instance.markEchoSent()) {
+            //First time broadcasting
+            var echo = ContractGenerator.generateEchoAnnouncementBatch(request, privateKey, serverId);
+            for (int i = 0; i < peers.size(); i++) {
+                var stub = peers.get(i);
+                outboxes.get(i).echo(instance, observer -> {
+                    var peerEcho = echo.toBuilder().setRequest(cipherForPeer(request, announcements, stub)).build();
+                    stub.echoAnnouncementBatch(peerEcho, observer);
+                });
             }
+            localEchoAnnouncementBatch(request, announcements, instance);
         }
     }
 
-    private void broadcastEchoAnnouncementGeneral(Contract.Announcement request, Announcement announcement) throws GeneralSecurityException {
-        var curr = sentEchos.putIfAbsent(request.getSignature().toStringUtf8(), true);
-        if (curr == null) {
+    private void broadcastReadyRegister(Contract.RegisterRequest request, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (instance.markReadySent()) {
             //First time broadcasting
+            var ready = ContractGenerator.generateReadyRegister(request, privateKey, serverId);
+            for (int i = 0; i < peers.size(); i++) {
+                var stub = peers.get(i);
+                outboxes.get(i).ready(instance, observer -> stub.readyRegister(ready, observer));
+            }
+            localReadyRegister(request, instance);
+        }
+    }
 
-            for (var stub : servers) {
-                var message = CipherUtils.cipherAndEncode(announcement.getMessage().getBytes(), stub.getServerKey());
-                request = request.toBuilder().setMessage(message).build();
-                var echo = ContractGenerator.generateEchoAnnouncement(request, privateKey, serverId);
-                //If we don't do this we get an error because we can't send RPCs from an RPC
-                Context ctx = Context.current().fork();
-                ctx.run(() -> stub.echoAnnouncementGeneral(echo, new StreamObserver<>() {
-                    @Override
-                    public void onNext(MacReply value) {
-                    }
+    private void broadcastReadyAnnouncement(Contract.Announcement request, Announcement announcement, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (instance.markReadySent()) {
+            //First time broadcasting
+            var ready = ContractGenerator.generateReadyAnnouncement(request, privateKey, serverId);
+            for (int i = 0; i < peers.size(); i++) {
+                var stub = peers.get(i);
+                outboxes.get(i).ready(instance, observer -> {
+                    var peerReady = ready.toBuilder().setRequest(cipherForPeer(request, announcement, stub)).build();
+                    stub.readyAnnouncement(peerReady, observer);
+                });
+            }
+            localReadyAnnouncement(ready, announcement, instance);
+        }
+    }
 
-                    @Override
-                    public void onError(Throwable t) {
-                    }
+    private void broadcastReadyAnnouncementGeneral(Contract.Announcement request, Announcement announcement, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (instance.markReadySent()) {
+            //First time broadcasting
+            var ready = ContractGenerator.generateReadyAnnouncement(request, privateKey, serverId);
+            for (int i = 0; i < peers.size(); i++) {
+                var stub = peers.get(i);
+                outboxes.get(i).ready(instance, observer -> {
+                    var peerReady = ready.toBuilder().setRequest(cipherForPeer(request, announcement, stub)).build();
+                    stub.readyAnnouncementGeneral(peerReady, observer);
+                });
+            }
+            localReadyAnnouncementGeneral(ready, announcement, instance);
+        }
+    }
 
-                    @Override
-                    public void onCompleted() {
-                    }
-                }));
+    private void broadcastReadyAnnouncementBatch(Contract.AnnouncementBatch request, List<Announcement> announcements, BroadcastInstance<Contract.ReadyAnnouncementBatch, List<Announcement>> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (instance.markReadySent()) {
+            //First time broadcasting
+            var ready = ContractGenerator.generateReadyAnnouncementBatch(request, privateKey, serverId);
+            for (int i = 0; i < peers.size(); i++) {
+                var stub = peers.get(i);
+                outboxes.get(i).ready(instance, observer -> {
+                    var peerReady = ready.toBuilder().setRequest(cipherForPeer(request, announcements, stub)).build();
+                    stub.readyAnnouncementBatch(peerReady, observer);
+                });
             }
+            localReadyAnnouncementBatch(ready, announcements, instance);
         }
     }
 
+    /**
+     * Server always send the message ciphered with the receiver's public key
+     */
+    private static Contract.Announcement cipherForPeer(Contract.Announcement request, Announcement announcement, PerfectStub stub) {
+        try {
+            var message = CipherUtils.cipherAndEncode(announcement.getMessage().getBytes(), stub.getServerKey());
+            return request.toBuilder().setMessage(message).build();
+        } catch (GeneralSecurityException e) {
+            //Should never happen, the peer's key was already used to build the stub
+            throw new IllegalStateException(e);
+        }
+    }
 
-    private void broadcastReadyRegister(Contract.RegisterRequest request) throws GeneralSecurityException {
-        var curr = sentReadies.putIfAbsent(request.getMac().toStringUtf8(), true);
-        if (curr == null) {
-            //First time broadcasting
-            var ready = ContractGenerator.generateReadyRegister(request, privateKey, serverId);
-            //If we don't do this we get an error because we can't send RPCs from an RPC
-            Context ctx = Context.current().fork();
-            ctx.run(() -> {
-                for (var stub : servers) {
-                    stub.readyRegister(ready, new StreamObserver<>() {
-                        @Override
-                        public void onNext(MacReply value) {
-                        }
-
-                        @Override
-                        public void onError(Throwable t) {
-                        }
-
-                        @Override
-                        public void onCompleted() {
-                        }
-                    });
-                }
-            });
-        }
-    }
-
-    private void broadcastReadyAnnouncement(Contract.Announcement request, Announcement announcement) throws GeneralSecurityException {
-        var curr = sentReadies.putIfAbsent(request.getSignature().toStringUtf8(), true);
-        if (curr == null) {
-            //First time broadcasting
+    private static Contract.AnnouncementBatch cipherForPeer(Contract.AnnouncementBatch request, List<Announcement> announcements, PerfectStub stub) {
+        var batch = Contract.AnnouncementBatch.newBuilder();
+        for (int i = 0; i < announcements.size(); i++) {
+            batch.addAnnouncements(cipherForPeer(request.getAnnouncements(i), announcements.get(i), stub));
+        }
+        return batch.build();
+    }
 
-            for (var stub : servers) {
-                //Server always send the message ciphered with the receiver's public key
-                var message = CipherUtils.cipherAndEncode(announcement.getMessage().getBytes(), stub.getServerKey());
-                request = request.toBuilder().setMessage(message).build();
-                var echo = ContractGenerator.generateReadyAnnouncement(request, privateKey, serverId);
-                //If we don't do this we get an error because we can't send RPCs from an RPC
-                Context ctx = Context.current().fork();
-                ctx.run(() -> stub.readyAnnouncement(echo, new StreamObserver<>() {
-                    @Override
-                    public void onNext(MacReply value) {
-                    }
+    /**
+     * The current server's own echoes and readies don't go through the network (nor through the cipher and mac checks),
+     * they are applied directly to the broadcast instance
+     */
+    private void localEchoRegister(Contract.RegisterRequest request, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (selfIndex != -1 && instance.addEcho(selfIndex) == quorumSize) {
+            broadcastReadyRegister(request, instance);
+        }
+    }
 
-                    @Override
-                    public void onError(Throwable t) {
-                    }
+    private void localEchoAnnouncement(Contract.Announcement request, Announcement announcement, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (selfIndex != -1 && instance.addEcho(selfIndex) == quorumSize) {
+            broadcastReadyAnnouncement(request, announcement, instance);
+        }
+    }
 
-                    @Override
-                    public void onCompleted() {
-                    }
-                }));
-            }
+    private void localEchoAnnouncementGeneral(Contract.Announcement request, Announcement announcement, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (selfIndex != -1 && instance.addEcho(selfIndex) == quorumSize) {
+            broadcastReadyAnnouncementGeneral(request, announcement, instance);
         }
     }
 
-    private void broadcastReadyAnnouncementGeneral(Contract.Announcement request, Announcement announcement) throws GeneralSecurityException {
-        var curr = sentReadies.putIfAbsent(request.getSignature().toStringUtf8(), true);
-        if (curr == null) {
-            //First time broadcasting
+    private void localEchoAnnouncementBatch(Contract.AnnouncementBatch request, List<Announcement> announcements, BroadcastInstance<Contract.ReadyAnnouncementBatch, List<Announcement>> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (selfIndex != -1 && instance.addEcho(selfIndex) == quorumSize) {
+            broadcastReadyAnnouncementBatch(request, announcements, instance);
+        }
+    }
+
+    //Local readies are only applied after the ready was sent, so there is no amplification step
+    private void localReadyRegister(Contract.RegisterRequest request, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException, IOException {
+        if (selfIndex != -1 && instance.addReady(selfIndex) == quorumSize && markDelivered(instance)) {
+            deliverRegister(request);
+        }
+    }
 
-            for (var stub : servers) {
-                //Server always send the message ciphered with the receiver's public key
-                var message = CipherUtils.cipherAndEncode(announcement.getMessage().getBytes(), stub.getServerKey());
-                request = request.toBuilder().setMessage(message).build();
-                var echo = ContractGenerator.generateReadyAnnouncement(request, privateKey, serverId);
-                //If we don't do this we get an error because we can't send RPCs from an RPC
-                Context ctx = Context.current().fork();
-                ctx.run(() -> stub.readyAnnouncementGeneral(echo, new StreamObserver<>() {
-                    @Override
-                    public void onNext(MacReply value) {
-                    }
+    private void localReadyAnnouncement(Contract.ReadyAnnouncement ready, Announcement announcement, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws CommonDomainException, IOException {
+        if (selfIndex != -1 && instance.addReady(selfIndex, ready) == quorumSize && markDelivered(instance)) {
+            deliverAnnouncement(ready.getRequest(), announcement, instance);
+        }
+    }
 
-                    @Override
-                    public void onError(Throwable t) {
-                    }
+    private void localReadyAnnouncementGeneral(Contract.ReadyAnnouncement ready, Announcement announcement, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws CommonDomainException, IOException {
+        if (selfIndex != -1 && instance.addReady(selfIndex, ready) == quorumSize && markDelivered(instance)) {
+            deliverAnnouncementGeneral(ready.getRequest(), announcement, instance);
+        }
+    }
 
-                    @Override
-                    public void onCompleted() {
-                    }
-                }));
-            }
+    private void localReadyAnnouncementBatch(Contract.ReadyAnnouncementBatch ready, List<Announcement> announcements, BroadcastInstance<Contract.ReadyAnnouncementBatch, List<Announcement>> instance) throws CommonDomainException, IOException {
+        if (selfIndex != -1 && instance.addReady(selfIndex, ready) == quorumSize && markDelivered(instance)) {
+            deliverAnnouncementBatch(ready.getRequest(), announcements, instance);
         }
     }
 
     private void deliverRegister(Contract.RegisterRequest request) throws GeneralSecurityException, CommonDomainException, IOException {
-        PublicKey pubKey = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
+        PublicKey pubKey = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
         User user = new User(pubKey);
         var curr = users.putIfAbsent(pubKey, user);
         if (curr == null) {
             save(user.toJson());
         }
-        deliveredMessages.putIfAbsent(request.getMac().toStringUtf8(), new CountDownLatch(1));
-        deliveredMessages.get(request.getMac().toStringUtf8()).countDown();
+        deliveredMessages.computeIfAbsent(BroadcastId.of(request.getMac()), key -> new CountDownLatch(1)).countDown();
     }
 
-    private void deliverAnnouncement(Contract.Announcement request) throws CommonDomainException, GeneralSecurityException, IOException {
+    private void deliverAnnouncement(Contract.Announcement request, Announcement announcement, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws CommonDomainException, IOException {
         //Is called only one time
-        var announcement = generateAnnouncement(request, privateKey);
-        Set<Contract.ReadyAnnouncement> proofs;
-        synchronized (proofs = announcementProofs.get(request.getSignature().toStringUtf8())) {
-            proofs.forEach(proof -> announcement.addProof(proof.getServerKey(), Base64.getEncoder().encodeToString(proof.getMac().toByteArray())));
+        instance.getReadyProofs().forEach(proof -> announcement.addProof(proof.getServerKey(), Base64.getEncoder().encodeToString(proof.getMac().toByteArray())));
+        //An identifier already delivered (by a batch) isn't posted again
+        if (announcements.putIfAbsent(request.getIdentifier(), announcement) == null) {
+            save(announcement.toJson(POST_OP_TYPE));
+            announcement.getUser().getUserBoard().post(announcement);
         }
-        announcements.putIfAbsent(request.getIdentifier(), announcement);
-        save(announcement.toJson(POST_OP_TYPE));
-        announcement.getUser().getUserBoard().post(announcement);
-        deliveredMessages.computeIfAbsent(request.getIdentifier(), key -> new CountDownLatch(1)).countDown();
-
+        deliveredMessages.computeIfAbsent(BroadcastId.of(request.getIdentifier()), key -> new CountDownLatch(1)).countDown();
+        pendingPosts.seqChanged(announcement.getUser().getUserBoard());
     }
 
-    private void deliverAnnouncementGeneral(Contract.Announcement request) throws GeneralSecurityException, CommonDomainException, IOException {
+    private void deliverAnnouncementGeneral(Contract.Announcement request, Announcement announcement, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws CommonDomainException, IOException {
         //Is called only one time
-        var announcement = generateAnnouncement(request, generalBoard, privateKey);
-        Set<Contract.ReadyAnnouncement> proofs;
-        synchronized (proofs = announcementProofs.get(request.getSignature().toStringUtf8())) {
-            proofs.forEach(proof -> announcement.addProof(proof.getServerKey(), Base64.getEncoder().encodeToString(proof.getMac().toByteArray())));
+        instance.getReadyProofs().forEach(proof -> announcement.addProof(proof.getServerKey(), Base64.getEncoder().encodeToString(proof.getMac().toByteArray())));
+        if (announcements.putIfAbsent(request.getIdentifier(), announcement) == null) {
+            save(announcement.toJson(POST_GENERAL_OP_TYPE));
+            generalBoard.post(announcement);
         }
-        announcements.putIfAbsent(request.getIdentifier(), announcement);
-        save(announcement.toJson(POST_GENERAL_OP_TYPE));
-        generalBoard.post(announcement);
-        deliveredMessages.computeIfAbsent(request.getIdentifier(), key -> new CountDownLatch(1)).countDown();
+        deliveredMessages.computeIfAbsent(BroadcastId.of(request.getIdentifier()), key -> new CountDownLatch(1)).countDown();
+        pendingPosts.seqChanged(generalBoard);
     }
 
+    private void deliverAnnouncementBatch(Contract.AnnouncementBatch request, List<Announcement> batch, BroadcastInstance<Contract.ReadyAnnouncementBatch, List<Announcement>> instance) throws CommonDomainException, IOException {
+        //Is called only one time
+        var proofs = instance.getReadyProofs();
+        for (int i = 0; i < batch.size(); i++) {
+            var announcement = batch.get(i);
+            for (var proof : proofs) {
+                announcement.addProof(proof.getServerKey(), Base64.getEncoder().encodeToString(proof.getMacs(i).toByteArray()));
+            }
+            var identifier = request.getAnnouncements(i).getIdentifier();
+            //Identifiers already delivered (by a single post or an overlapping batch) aren't posted again
+            if (announcements.putIfAbsent(identifier, announcement) == null) {
+                save(announcement.toJson(POST_OP_TYPE));
+                announcement.getUser().getUserBoard().post(announcement);
+            }
+            //Single posts of the same announcement (write backs) don't broadcast it again
+            deliveredMessages.computeIfAbsent(BroadcastId.of(identifier), key -> new CountDownLatch(1)).countDown();
+        }
+        deliveredMessages.computeIfAbsent(batchId(request), key -> new CountDownLatch(1)).countDown();
+        pendingPosts.seqChanged(batch.get(0).getUser().getUserBoard());
+    }
 
-    private void brbRegister(Contract.RegisterRequest request) throws GeneralSecurityException, InterruptedException {
-        broadcastEchoRegister(request); //Received Message start RBR Echo
-        deliveredMessages.computeIfAbsent(request.getMac().toStringUtf8(), key -> new CountDownLatch(1)).await();
-        deliveredMessages.get(request.getMac().toStringUtf8()).await();
+    private void brbRegister(Contract.RegisterRequest request) throws GeneralSecurityException, CommonDomainException, IOException, InterruptedException {
+        var id = BroadcastId.of(request.getMac());
+        broadcastEchoRegister(request, getInstance(id)); //Received Message start RBR Echo
+        deliveredMessages.computeIfAbsent(id, key -> new CountDownLatch(1)).await();
     }
 
-    private void brbAnnouncement(Contract.Announcement request, Announcement announcement) throws GeneralSecurityException, InterruptedException {
-        var curr = deliveredMessages.putIfAbsent(request.getIdentifier(), new CountDownLatch(1));
+    private void brbAnnouncement(Contract.Announcement request, Announcement announcement) throws GeneralSecurityException, CommonDomainException, IOException, InterruptedException {
+        var instance = getInstance(BroadcastId.of(request.getSignature()));
+        instance.setValueIfAbsent(announcement);
+        var latch = new CountDownLatch(1);
+        var curr = deliveredMessages.putIfAbsent(BroadcastId.of(request.getIdentifier()), latch);
         if (curr == null) {
-            broadcastEchoAnnouncement(request, announcement); //Received Message start RBR Echo
+            broadcastEchoAnnouncement(request, announcement, instance); //Received Message start RBR Echo
+        } else {
+            latch = curr;
         }
-        deliveredMessages.get(request.getIdentifier()).await();
+        latch.await();
 
     }
 
-    private void brbAnnouncementGeneral(Contract.Announcement request, Announcement announcement) throws GeneralSecurityException, InterruptedException {
-        var curr = deliveredMessages.putIfAbsent(request.getIdentifier(), new CountDownLatch(1));
+    private void brbAnnouncementGeneral(Contract.Announcement request, Announcement announcement) throws GeneralSecurityException, CommonDomainException, IOException, InterruptedException {
+        var instance = getInstance(BroadcastId.of(request.getSignature()));
+        instance.setValueIfAbsent(announcement);
+        var latch = new CountDownLatch(1);
+        var curr = deliveredMessages.putIfAbsent(BroadcastId.of(request.getIdentifier()), latch);
         if (curr == null) {
-            broadcastEchoAnnouncementGeneral(request, announcement); //Received Message start RBR Echo
+            broadcastEchoAnnouncementGeneral(request, announcement, instance); //Received Message start RBR Echo
+        } else {
+            latch = curr;
         }
-        deliveredMessages.get(request.getIdentifier()).await();
+        latch.await();
     }
 
+    private void brbAnnouncementBatch(Contract.AnnouncementBatch request, List<Announcement> announcements) throws GeneralSecurityException, CommonDomainException, IOException, InterruptedException {
+        var id = batchId(request);
+        var instance = getBatchInstance(id);
+        instance.setValueIfAbsent(announcements);
+        var latch = new CountDownLatch(1);
+        var curr = deliveredMessages.putIfAbsent(id, latch);
+        if (curr == null) {
+            broadcastEchoAnnouncementBatch(request, announcements, instance); //Received Message start RBR Echo
+        } else {
+            latch = curr;
+        }
+        latch.await();
+    }
+
+    /**
+     * Only the first echo or ready of a broadcast instance pays for deciphering and verifying the announcement,
+     * the following ones (already authenticated by the sending server's mac) reuse the validated announcement.
+     * The server's mac and the instance only cover the signature, so the other fields of the request must match the
+     * validated announcement
+     */
+    private Announcement getValidatedAnnouncement(Contract.Announcement request, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException {
+        var announcement = instance.getValue();
+        if (announcement == null || announcement.getBoard() == generalBoard) {
+            var generated = generateAnnouncement(request, privateKey);
+            announcement = instance.setValueIfAbsent(generated);
+            if (announcement.getBoard() == generalBoard) {
+                return generated;
+            }
+        }
+        checkMatches(request, announcement);
+        return announcement;
+    }
+
+    private Announcement getValidatedAnnouncementGeneral(Contract.Announcement request, BroadcastInstance<Contract.ReadyAnnouncement, Announcement> instance) throws GeneralSecurityException, CommonDomainException {
+        var announcement = instance.getValue();
+        if (announcement == null || announcement.getBoard() != generalBoard) {
+            var generated = generateAnnouncement(request, generalBoard, privateKey);
+            announcement = instance.setValueIfAbsent(generated);
+            if (announcement.getBoard() != generalBoard) {
+                return generated;
+            }
+        }
+        checkMatches(request, announcement);
+        return announcement;
+    }
+
+    private List<Announcement> getValidatedAnnouncements(Contract.AnnouncementBatch request, BroadcastInstance<Contract.ReadyAnnouncementBatch, List<Announcement>> instance) throws GeneralSecurityException, CommonDomainException {
+        var announcements = instance.getValue();
+        if (announcements == null) {
+            announcements = instance.setValueIfAbsent(generateAnnouncements(request, privateKey));
+        }
+        if (announcements.size() != request.getAnnouncementsCount()) {
+            throw new InvalidSignatureException("Invalid Signature: Does not match the announcement");
+        }
+        for (int i = 0; i < announcements.size(); i++) {
+            checkMatches(request.getAnnouncements(i), announcements.get(i));
+        }
+        return announcements;
+    }
 
+    /**
+     * Rejects a request carrying the signature of a validated announcement with other fields
+     */
+    private static void checkMatches(Contract.Announcement request, Announcement announcement) throws InvalidSignatureException {
+        if (request.getSeq() != announcement.getSeq()
+                || !request.getIdentifier().equals(announcement.getIdentifier())
+                || !request.getPublicKey().equals(ByteString.copyFrom(announcement.getUser().getPublicKey().getEncoded()))
+                || !new HashSet<>(request.getReferencesList()).equals(Announcement.getReferenceStrings(announcement.getReferences()))) {
+            throw new InvalidSignatureException("Invalid Signature: Does not match the announcement");
+        }
+    }
+
+    /**
+     * Cheap checks run first (user, seq, identifier, already delivered) so a bad or repeated request is
+     * rejected or answered without deciphering the message or verifying its signature
+     */
     protected Announcement generateAnnouncement(Contract.Announcement request, AnnouncementBoard board, PrivateKey privKey) throws GeneralSecurityException, CommonDomainException {
-        PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
-        byte[] signature = request.getSignature().toByteArray();
-        String message = new String(CipherUtils.decodeAndDecipher(request.getMessage(), privKey));
-        if (request.getSeq() > board.getSeq() + 1) {
-            //Invalid Seq (General Board is a (N,N) register so it can't be higher than curr + 1
-            throw new InvalidSeqException("Invalid seq");
+        PublicKey key = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
+        User user = users.get(key);
+        if (user == null) {
+            throw new NullUserException("Invalid User provided: Does Not Exist");
         }
+        //Invalid Seq (General Board is a (N,N) register so it can't be higher than curr + 1
+        checkSeqNext(board, request.getSeq());
 
         if (!MacVerifier.verifySeq(request.getSeq(), request.getPublicKey().toByteArray(),
                 board.getIdentifier(), request.getIdentifier())) {
             throw new InvalidSeqException("Invalid identifier");
         }
+        var delivered = getDelivered(request, board);
+        if (delivered != null) {
+            return delivered;
+        }
 
-        return new Announcement(signature, users.get(key), message, getReferences(request.getReferencesList()), board, request.getSeq());
+        return verification.verify(() -> {
+            byte[] signature = request.getSignature().toByteArray();
+            String message = new String(CipherUtils.decodeAndDecipher(request.getMessage(), privKey));
+            return new Announcement(signature, user, message, getReferences(request.getReferencesList()), board, request.getSeq());
+        });
     }
 
     protected Announcement generateAnnouncement(Contract.Announcement request, PrivateKey privKey) throws GeneralSecurityException, CommonDomainException {
-        PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
-        byte[] signature = request.getSignature().toByteArray();
-        String message = new String(CipherUtils.decodeAndDecipher(request.getMessage(), privKey));
+        PublicKey key = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
+        User user = users.get(key);
+        if (user == null) {
+            throw new InvalidUserException("User does not exist");
+        }
+        var board = user.getUserBoard();
+        //Invalid Seq (User Board is a (1,N) register so it must be curr + 1 (or a past one that is repeated)
+        checkSeqNext(board, request.getSeq());
+
+        if (!MacVerifier.verifySeq(request.getSeq(), request.getPublicKey().toByteArray(),
+                board.getIdentifier(), request.getIdentifier())) {
+            throw new InvalidSeqException("Invalid identifier");
+        }
+        var delivered = getDelivered(request, board);
+        if (delivered != null) {
+            return delivered;
+        }
+
+        return verification.verify(() -> {
+            byte[] signature = request.getSignature().toByteArray();
+            String message = new String(CipherUtils.decodeAndDecipher(request.getMessage(), privKey));
+            return new Announcement(signature, user, message, getReferences(request.getReferencesList()), board, request.getSeq());
+        });
+    }
 
+    /**
+     * A batch is either delivered as a whole already (and answered from the board) or must start at the board's next seq
+     */
+    protected List<Announcement> generateAnnouncements(Contract.AnnouncementBatch request, PrivateKey privKey) throws GeneralSecurityException, CommonDomainException {
+        var requests = request.getAnnouncementsList();
+        if (requests.isEmpty() || requests.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Invalid batch size");
+        }
+        var first = requests.get(0);
+        PublicKey key = SignatureSuite.publicKey(first.getPublicKey().toByteArray());
         User user = users.get(key);
         if (user == null) {
             throw new InvalidUserException("User does not exist");
         }
-        if (request.getSeq() > user.getUserBoard().getSeq() + 1) {
-            //Invalid Seq (User Board is a (1,N) register so it must be curr + 1 (or a past one that is repeated)
+        var board = user.getUserBoard();
+        //Cheap checks of the whole batch before deciphering or verifying any of it
+        for (int i = 0; i < requests.size(); i++) {
+            var curr = requests.get(i);
+            if (!curr.getPublicKey().equals(first.getPublicKey())) {
+                throw new InvalidUserException("Batch must have a single author");
+            }
+            if (curr.getSeq() != first.getSeq() + i) {
+                throw new InvalidSeqException("Invalid seq");
+            }
+            if (!MacVerifier.verifySeq(curr.getSeq(), curr.getPublicKey().toByteArray(),
+                    board.getIdentifier(), curr.getIdentifier())) {
+                throw new InvalidSeqException("Invalid identifier");
+            }
+        }
+        var delivered = getDelivered(requests, board);
+        if (delivered != null) {
+            return delivered;
+        }
+        //A batch must start right after the board: it can't overlap posts already delivered
+        if (first.getSeq() != nextSeq(board)) {
             throw new InvalidSeqException("Invalid seq");
         }
 
-        if (!MacVerifier.verifySeq(request.getSeq(), request.getPublicKey().toByteArray(),
-                Base64.getEncoder().encodeToString(request.getPublicKey().toByteArray()), request.getIdentifier())) {
-            throw new InvalidSeqException("Invalid identifier");
+        var announcements = new ArrayList<Announcement>(requests.size());
+        for (var curr : requests) {
+            announcements.add(verification.verify(() -> {
+                String message = new String(CipherUtils.decodeAndDecipher(curr.getMessage(), privKey));
+                return new Announcement(curr.getSignature().toByteArray(), user, message,
+                        getReferences(curr.getReferencesList()), board, curr.getSeq());
+            }));
+        }
+        return announcements;
+    }
+
+    /**
+     * @return the announcements of a batch that was already delivered as a whole, null if any of them wasn't
+     */
+    private List<Announcement> getDelivered(List<Contract.Announcement> requests, AnnouncementBoard board) {
+        var delivered = new ArrayList<Announcement>(requests.size());
+        for (var request : requests) {
+            var announcement = getDelivered(request, board);
+            if (announcement == null) {
+                return null;
+            }
+            delivered.add(announcement);
         }
+        return delivered;
+    }
+
+    /**
+     * @return the seq of the board's next post (the board's seq is 0 both before and after its first post)
+     */
+    private static long nextSeq(AnnouncementBoard board) throws InvalidNumberOfPostsException {
+        return board.read(1).isEmpty() ? 0 : board.getSeq() + 1;
+    }
+
+    /**
+     * Rejects a post ahead of the board (it should have been put aside until the board caught up)
+     */
+    private void checkSeqNext(AnnouncementBoard board, long seq) throws InvalidSeqException {
+        if (seq > board.getSeq() + 1) {
+            throw new InvalidSeqException("Invalid seq");
+        }
+    }
+
+    /**
+     * Clients pipeline their posts, so a post can arrive before the previous ones were delivered.
+     * Instead of making the client retry (or blocking the thread), the request is put aside and handled again
+     * once the board catches up, see {@link PendingPosts}. Unknown boards and seqs outside the window are
+     * handled (and rejected) right away.
+     * If the executor can't take the resume or the expiry the request is told to retry later
+     *
+     * @param executor runs the resume and the expiry
+     * @return true if the request was put aside
+     */
+    private boolean deferred(AnnouncementBoard board, long seq, Executor executor, Runnable resume, Runnable expire,
+                             StreamObserver<?> responseObserver) {
+        if (board == null || seq > board.getSeq() + 1 + MAX_SEQ_AHEAD) {
+            return false;
+        }
+        return pendingPosts.defer(board, seq, executor, resume, expire,
+                () -> responseObserver.onError(RESOURCE_EXHAUSTED.withDescription(OVERLOADED).asRuntimeException()));
+    }
+
+    /**
+     * @return the board of the user, null if the user doesn't exist
+     */
+    private AnnouncementBoard userBoard(ByteString publicKey) {
+        try {
+            var user = users.get(SignatureSuite.publicKey(publicKey.toByteArray()));
+            return user == null ? null : user.getUserBoard();
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return null;
+        }
+    }
 
-        return new Announcement(signature, user, message, getReferences(request.getReferencesList()), user.getUserBoard(), request.getSeq());
+    private static long batchSeq(Contract.AnnouncementBatch batch) {
+        return batch.getAnnouncementsCount() == 0 ? 0 : batch.getAnnouncements(0).getSeq();
     }
 
     private static JsonObject readObject(String nonce) {
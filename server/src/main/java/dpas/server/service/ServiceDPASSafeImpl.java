@@ -4,9 +4,11 @@ import com.google.protobuf.ByteString;
 import dpas.common.domain.Announcement;
 import dpas.common.domain.AnnouncementBoard;
 import dpas.common.domain.User;
+import dpas.common.domain.SignatureSuite;
 import dpas.common.domain.exception.CommonDomainException;
 import dpas.common.domain.exception.InvalidSeqException;
 import dpas.common.domain.exception.InvalidUserException;
+import dpas.common.domain.exception.NullUserException;
 import dpas.grpc.contract.Contract;
 import dpas.grpc.contract.Contract.MacReply;
 import dpas.server.persistence.PersistenceManager;
@@ -22,14 +24,11 @@ import io.grpc.stub.StreamObserver;
 import javax.json.JsonObject;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
-import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.PublicKey;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
 import java.util.stream.Collectors;
 
-import static dpas.common.domain.constants.CryptographicConstants.ASYMMETRIC_KEY_ALGORITHM;
 import static dpas.common.domain.constants.JsonConstants.POST_GENERAL_OP_TYPE;
 import static dpas.common.domain.constants.JsonConstants.POST_OP_TYPE;
 import static io.grpc.Status.*;
@@ -56,7 +55,7 @@ public class ServiceDPASSafeImpl extends ServiceDPASPersistentImpl {
     @Override
     public void read(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> responseObserver) {
         try {
-            PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
+            PublicKey key = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
 
             if (!(users.containsKey(key))) {
                 responseObserver.onError(ErrorGenerator.generate(INVALID_ARGUMENT, "User with public key does not exist", request, privateKey));
@@ -99,13 +98,13 @@ public class ServiceDPASSafeImpl extends ServiceDPASPersistentImpl {
         try {
             SecurityManager.validateRequest(request);
 
-            PublicKey pubKey = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
+            PublicKey pubKey = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
             User user = new User(pubKey);
             var curr = users.putIfAbsent(pubKey, user);
             if (curr == null) {
                 save(user.toJson());
             }
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac().toByteArray(), privateKey));
+            responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac(), privateKey));
             responseObserver.onCompleted();
 
         } catch (CommonDomainException | IllegalMacException e) {
@@ -129,7 +128,7 @@ public class ServiceDPASSafeImpl extends ServiceDPASPersistentImpl {
                 save(announcement.toJson(POST_OP_TYPE));
                 announcement.getUser().getUserBoard().post(announcement);
             }
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getSignature().toByteArray(), privateKey));
+            responseObserver.onNext(ContractGenerator.generateMacReply(request.getSignature(), privateKey));
             responseObserver.onCompleted();
 
         } catch (InvalidSeqException | InvalidUserException e) {
@@ -155,7 +154,7 @@ public class ServiceDPASSafeImpl extends ServiceDPASPersistentImpl {
                 save(announcement.toJson(POST_GENERAL_OP_TYPE));
                 generalBoard.post(announcement);
             }
-            responseObserver.onNext(ContractGenerator.generateMacReply(request.getSignature().toByteArray(), privateKey));
+            responseObserver.onNext(ContractGenerator.generateMacReply(request.getSignature(), privateKey));
             responseObserver.onCompleted();
 
         } catch (InvalidSeqException | InvalidUserException e) {
@@ -169,10 +168,16 @@ public class ServiceDPASSafeImpl extends ServiceDPASPersistentImpl {
         }
     }
 
+    /**
+     * Cheap checks run first (user, seq, identifier, already delivered) so a bad or repeated request is
+     * rejected or answered without deciphering the message or verifying its signature
+     */
     protected Announcement generateAnnouncement(Contract.Announcement request, AnnouncementBoard board, PrivateKey privKey) throws GeneralSecurityException, CommonDomainException {
-        PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
-        byte[] signature = request.getSignature().toByteArray();
-        String message = new String(CipherUtils.decodeAndDecipher(request.getMessage(), privKey));
+        PublicKey key = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
+        User user = users.get(key);
+        if (user == null) {
+            throw new NullUserException("Invalid User provided: Does Not Exist");
+        }
         if (request.getSeq() > board.getSeq() + 1) {
             //Invalid Seq (General Board is a (N,N) register so it can't be higher than curr + 1
             throw new InvalidSeqException("Invalid seq");
@@ -182,15 +187,18 @@ public class ServiceDPASSafeImpl extends ServiceDPASPersistentImpl {
                 board.getIdentifier(), request.getIdentifier())) {
             throw new InvalidSeqException("Invalid identifier");
         }
+        var delivered = getDelivered(request, board);
+        if (delivered != null) {
+            return delivered;
+        }
 
-        return new Announcement(signature, users.get(key), message, getReferences(request.getReferencesList()), board, request.getSeq());
-    }
-
-    protected Announcement generateAnnouncement(Contract.Announcement request, PrivateKey privKey) throws GeneralSecurityException, CommonDomainException {
-        PublicKey key = KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(request.getPublicKey().toByteArray()));
         byte[] signature = request.getSignature().toByteArray();
         String message = new String(CipherUtils.decodeAndDecipher(request.getMessage(), privKey));
+        return new Announcement(signature, user, message, getReferences(request.getReferencesList()), board, request.getSeq());
+    }
 
+    protected Announcement generateAnnouncement(Contract.Announcement request, PrivateKey privKey) throws GeneralSecurityException, CommonDomainException {
+        PublicKey key = SignatureSuite.publicKey(request.getPublicKey().toByteArray());
         User user = users.get(key);
         if (user == null) {
             throw new InvalidUserException("User does not exist");
@@ -204,7 +212,13 @@ public class ServiceDPASSafeImpl extends ServiceDPASPersistentImpl {
                 Base64.getEncoder().encodeToString(request.getPublicKey().toByteArray()), request.getIdentifier())) {
             throw new InvalidSeqException("Invalid identifier");
         }
+        var delivered = getDelivered(request, user.getUserBoard());
+        if (delivered != null) {
+            return delivered;
+        }
 
+        byte[] signature = request.getSignature().toByteArray();
+        String message = new String(CipherUtils.decodeAndDecipher(request.getMessage(), privKey));
         return new Announcement(signature, user, message, getReferences(request.getReferencesList()), user.getUserBoard(), request.getSeq());
     }
 
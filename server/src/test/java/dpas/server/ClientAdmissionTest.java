@@ -0,0 +1,80 @@
+package dpas.server;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ClientAdmissionTest {
+
+    private static final ByteString CLIENT = ByteString.copyFromUtf8("client");
+    private static final ByteString OTHER = ByteString.copyFromUtf8("other");
+
+    @Test
+    public void rateLimitedPerClient() {
+        var clock = new AtomicLong();
+        var admission = new ClientAdmission(10, 2, 100, 100, clock::get);
+        assertTrue(admission.tryAcquire(CLIENT));
+        assertTrue(admission.tryAcquire(CLIENT));
+        assertFalse(admission.tryAcquire(CLIENT));
+        //Other clients have their own bucket
+        assertTrue(admission.tryAcquire(OTHER));
+
+        //10 per second, one token every 100ms
+        clock.set(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(admission.tryAcquire(CLIENT));
+        assertFalse(admission.tryAcquire(CLIENT));
+        assertEquals(2, admission.getRejectedCount());
+    }
+
+    @Test
+    public void concurrencyPerClient() {
+        var admission = new ClientAdmission(1000, 1000, 2, 100, () -> 0);
+        assertTrue(admission.tryAcquire(CLIENT));
+        assertTrue(admission.tryAcquire(CLIENT));
+        assertFalse(admission.tryAcquire(CLIENT));
+        admission.release(CLIENT);
+        assertTrue(admission.tryAcquire(CLIENT));
+    }
+
+    @Test
+    public void globalConcurrency() {
+        var admission = new ClientAdmission(1000, 1000, 100, 2, () -> 0);
+        assertTrue(admission.tryAcquire(CLIENT));
+        assertTrue(admission.tryAcquire(ByteString.EMPTY));
+        assertFalse(admission.tryAcquire(OTHER));
+        assertFalse(admission.tryAcquire(ByteString.EMPTY));
+        admission.release(ByteString.EMPTY);
+        assertTrue(admission.tryAcquire(OTHER));
+    }
+
+    @Test
+    public void idleClientsEvictedIncrementally() {
+        var clock = new AtomicLong();
+        var admission = new ClientAdmission(1000, 1, 100, 1000, 4, clock::get);
+        for (int i = 0; i < 8; i++) {
+            var client = ByteString.copyFromUtf8("client" + i);
+            assertTrue(admission.tryAcquire(client));
+            admission.release(client);
+        }
+        //Clients have their tokens back, so they are idle
+        clock.set(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(admission.tryAcquire(CLIENT));
+        assertEquals(1, admission.getClientCount());
+
+        //Busy clients are kept
+        assertTrue(admission.tryAcquire(OTHER));
+        for (int i = 0; i < 8; i++) {
+            assertTrue(admission.tryAcquire(ByteString.copyFromUtf8("busy" + i)));
+        }
+        assertEquals(10, admission.getClientCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidLimits() {
+        new ClientAdmission(0, 1, 1, 1);
+    }
+}
@@ -0,0 +1,60 @@
+package dpas.server;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClientExecutorTest {
+
+    @Test
+    public void rejectsWhenQueueFull() throws InterruptedException {
+        var executor = new ClientExecutor(1, 1);
+        var release = new CountDownLatch(1);
+        var started = new CountDownLatch(1);
+        var ran = new AtomicInteger();
+        var rejected = new AtomicInteger();
+
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ran.incrementAndGet();
+        }, rejected::incrementAndGet);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        //One call waits in the queue, the next one is rejected
+        var done = new CountDownLatch(1);
+        executor.execute(() -> {
+            ran.incrementAndGet();
+            done.countDown();
+        }, rejected::incrementAndGet);
+        executor.execute(ran::incrementAndGet, rejected::incrementAndGet);
+        assertEquals(1, rejected.get());
+        assertEquals(1, executor.getRejectedCount());
+        assertEquals(1, executor.getQueueDepth());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, ran.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void rejectsAfterShutdown() {
+        var executor = new ClientExecutor(1, 1);
+        var rejected = new AtomicInteger();
+        executor.shutdown();
+        //A client call arriving while the server stops is rejected instead of lost
+        executor.execute(() -> {
+        }, rejected::incrementAndGet);
+        assertEquals(1, rejected.get());
+    }
+}
@@ -0,0 +1,127 @@
+package dpas.server;
+
+import dpas.grpc.contract.Contract;
+import dpas.grpc.contract.ServiceDPASGrpc;
+import dpas.server.service.ServiceDPASImpl;
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of each executor mode: a client keeps a number of reads of the general board in flight against a server
+ * whose handler blocks for a while (as the non reliable services block a handler until they answer) or not at all.
+ * Not a test, run it with the test classpath: java dpas.server.ServerExecutorBenchmark [seconds] [in flight] [threads]
+ * (on Java 21 or later to include the virtual mode)
+ */
+public final class ServerExecutorBenchmark {
+
+    private static final int PORT = 9500;
+    private static final long[] BLOCK_MILLIS = {0, 5};
+
+    private ServerExecutorBenchmark() {
+    }
+
+    /**
+     * Blocks every read of the general board before answering it
+     */
+    private static final class BlockingService extends ServiceDPASImpl {
+        private final long blockMillis;
+
+        private BlockingService(long blockMillis) {
+            this.blockMillis = blockMillis;
+        }
+
+        @Override
+        public void readGeneral(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> responseObserver) {
+            if (blockMillis > 0) {
+                try {
+                    Thread.sleep(blockMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            super.readGeneral(request, responseObserver);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int inFlight = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : ServerExecutor.DEFAULT_THREADS;
+
+        List<String> modes = new ArrayList<>(List.of("cached", "bounded", "direct"));
+        if (ServerExecutor.virtualThreadsAvailable()) {
+            modes.add("virtual");
+        }
+        System.out.printf("Java %d, %d calls in flight, %d bounded threads, %d s per run%n",
+                Runtime.version().feature(), inFlight, threads, seconds);
+        System.out.printf("%-8s %10s %12s %14s%n", "mode", "block (ms)", "calls/s", "latency (ms)");
+        for (long blockMillis : BLOCK_MILLIS) {
+            for (var mode : modes) {
+                //Warm up, then measure
+                run(mode, threads, blockMillis, inFlight, 1);
+                var result = run(mode, threads, blockMillis, inFlight, seconds);
+                System.out.printf("%-8s %10d %12.0f %14.2f%n", mode, blockMillis, result[0], result[1]);
+            }
+        }
+    }
+
+    /**
+     * @return calls per second and mean latency in milliseconds
+     */
+    private static double[] run(String mode, int threads, long blockMillis, int inFlight, int seconds) throws Exception {
+        var executor = ServerExecutor.of(mode, threads);
+        var server = executor.configure(NettyServerBuilder.forPort(PORT)).addService(new BlockingService(blockMillis)).build();
+        server.start();
+        ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", PORT).usePlaintext().build();
+        try {
+            var stub = ServiceDPASGrpc.newStub(channel);
+            var request = Contract.ReadRequest.newBuilder().setNumber(1).build();
+            var slots = new Semaphore(inFlight);
+            var completed = new AtomicLong();
+            var latency = new AtomicLong();
+
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(seconds);
+            while (System.nanoTime() < end) {
+                if (!slots.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+                long sent = System.nanoTime();
+                stub.readGeneral(request, new StreamObserver<>() {
+                    @Override
+                    public void onNext(Contract.ReadReply value) {
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        slots.release();
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        latency.addAndGet(System.nanoTime() - sent);
+                        completed.incrementAndGet();
+                        slots.release();
+                    }
+                });
+            }
+            long elapsed = System.nanoTime() - start;
+            //Let the calls in flight finish before the server goes away
+            slots.tryAcquire(inFlight, 30, TimeUnit.SECONDS);
+            long calls = completed.get();
+            return new double[]{calls * 1e9 / elapsed, calls == 0 ? 0 : latency.get() / 1e6 / calls};
+        } finally {
+            channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+            executor.shutdown();
+        }
+    }
+}
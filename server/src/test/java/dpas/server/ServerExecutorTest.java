@@ -0,0 +1,44 @@
+package dpas.server;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ServerExecutorTest {
+
+    @Test
+    public void modesByName() throws InterruptedException {
+        for (var mode : new String[]{"cached", "BOUNDED", "Direct"}) {
+            var executor = ServerExecutor.of(mode, 2);
+            assertEquals(ServerExecutor.Mode.valueOf(mode.toUpperCase()), executor.getMode());
+            executor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidThreads() {
+        ServerExecutor.bounded(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMode() {
+        ServerExecutor.of("unknown", 1);
+    }
+
+    @Test
+    public void virtualMode() throws InterruptedException {
+        if (ServerExecutor.virtualThreadsAvailable()) {
+            var executor = ServerExecutor.of("virtual", 1);
+            assertEquals(ServerExecutor.Mode.VIRTUAL, executor.getMode());
+            executor.shutdown();
+        } else {
+            try {
+                ServerExecutor.of("virtual", 1);
+                fail();
+            } catch (IllegalArgumentException e) {
+                //Expected, the JVM has no virtual threads
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package dpas.server.broadcast;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BroadcastDispatcherTest {
+
+    @Test
+    public void tasksRunInOrderPerPeer() throws InterruptedException {
+        var dispatcher = new BroadcastDispatcher(2);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        var latch = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            final int value = i;
+            dispatcher.dispatch(0, () -> {
+                order.add(value);
+                latch.countDown();
+            });
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+        assertEquals(100, dispatcher.getDispatchedCount(0));
+        assertEquals(0, dispatcher.getDispatchedCount(1));
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void slowPeerDoesNotBlockOthers() throws InterruptedException {
+        var dispatcher = new BroadcastDispatcher(2);
+        var blockPeer = new CountDownLatch(1);
+        dispatcher.dispatch(0, () -> {
+            try {
+                blockPeer.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        var other = new CountDownLatch(1);
+        dispatcher.dispatch(1, other::countDown);
+        assertTrue(other.await(10, TimeUnit.SECONDS));
+        blockPeer.countDown();
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void queueDepthTracked() throws InterruptedException {
+        var dispatcher = new BroadcastDispatcher(1);
+        var blockPeer = new CountDownLatch(1);
+        var done = new CountDownLatch(4);
+        dispatcher.dispatch(0, () -> {
+            try {
+                blockPeer.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch(0, done::countDown);
+        }
+        //The first task went straight to the peer's thread, the others wait behind it
+        assertEquals(3, dispatcher.getQueueDepth(0));
+        blockPeer.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, dispatcher.getQueueDepth(0));
+        assertEquals(3, dispatcher.getMaxQueueDepth(0));
+        assertEquals(4, dispatcher.getDispatchedCount(0));
+        dispatcher.shutdown();
+    }
+}
@@ -0,0 +1,38 @@
+package dpas.server.broadcast;
+
+import com.google.protobuf.ByteString;
+import org.junit.Test;
+
+import java.util.Base64;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class BroadcastIdTest {
+
+    @Test
+    public void sameContentSameId() {
+        var first = BroadcastId.of(ByteString.copyFrom(new byte[]{1, 2, 3}));
+        var second = BroadcastId.of(ByteString.copyFrom(new byte[]{1, 2, 3}));
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+
+        var map = new HashMap<BroadcastId, Integer>();
+        map.put(first, 1);
+        assertEquals(Integer.valueOf(1), map.get(second));
+    }
+
+    @Test
+    public void differentContentDifferentId() {
+        var first = BroadcastId.of(ByteString.copyFrom(new byte[]{1, 2, 3}));
+        var second = BroadcastId.of(ByteString.copyFrom(new byte[]{1, 2, 4}));
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void fixedSize() {
+        var id = BroadcastId.of(ByteString.copyFrom(new byte[512]));
+        assertEquals(BroadcastId.SIZE, Base64.getDecoder().decode(id.toString()).length);
+        assertEquals(BroadcastId.SIZE, Base64.getDecoder().decode(BroadcastId.of("identifier").toString()).length);
+    }
+}
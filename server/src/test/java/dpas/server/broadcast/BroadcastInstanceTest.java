@@ -0,0 +1,79 @@
+package dpas.server.broadcast;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BroadcastInstanceTest {
+
+    @Test
+    public void repeatedEcho() {
+        var instance = new BroadcastInstance<>(4);
+        assertEquals(1, instance.addEcho(2));
+        assertEquals(0, instance.addEcho(2));
+        assertEquals(2, instance.addEcho(0));
+        assertEquals(2, instance.getEchoCount());
+    }
+
+    @Test
+    public void repeatedReady() {
+        var instance = new BroadcastInstance<>(4);
+        assertEquals(1, instance.addReady(3));
+        assertEquals(0, instance.addReady(3));
+        assertEquals(1, instance.getReadyCount());
+        assertTrue(instance.getReadyProofs().isEmpty());
+    }
+
+    @Test
+    public void moreThan64Servers() {
+        var instance = new BroadcastInstance<>(130);
+        assertEquals(1, instance.addEcho(0));
+        assertEquals(2, instance.addEcho(64));
+        assertEquals(3, instance.addEcho(129));
+        assertEquals(0, instance.addEcho(64));
+    }
+
+    @Test
+    public void flagsAreSetOnce() {
+        var instance = new BroadcastInstance<>(4);
+        assertTrue(instance.markEchoSent());
+        assertFalse(instance.markEchoSent());
+        assertTrue(instance.markReadySent());
+        assertFalse(instance.markReadySent());
+        assertFalse(instance.isDelivered());
+        assertTrue(instance.markDelivered());
+        assertFalse(instance.markDelivered());
+        assertTrue(instance.isDelivered());
+    }
+
+    @Test
+    public void concurrentThresholdIsCrossedOnce() throws InterruptedException {
+        final int numServers = 64;
+        final int threshold = 43;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int round = 0; round < 50; round++) {
+            var instance = new BroadcastInstance<>(numServers);
+            var crossed = new AtomicInteger();
+            var latch = new CountDownLatch(numServers * 2);
+            for (int i = 0; i < numServers * 2; i++) {
+                final int server = i % numServers;
+                executor.submit(() -> {
+                    if (instance.addEcho(server) == threshold) {
+                        crossed.incrementAndGet();
+                    }
+                    latch.countDown();
+                });
+            }
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertEquals(1, crossed.get());
+            assertEquals(numServers, instance.getEchoCount());
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,50 @@
+package dpas.server.broadcast;
+
+import com.google.protobuf.ByteString;
+import dpas.grpc.contract.Contract.MacReply;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DeliveredRepliesTest {
+
+    private static BroadcastId id(int value) {
+        return BroadcastId.of(ByteString.copyFrom(new byte[]{(byte) value}));
+    }
+
+    private static MacReply reply(int value) {
+        return MacReply.newBuilder().setMac(ByteString.copyFrom(new byte[]{(byte) value})).build();
+    }
+
+    @Test
+    public void repeatedRequest() {
+        var replies = new DeliveredReplies();
+        assertNull(replies.get(id(1)));
+        assertEquals(0, replies.getHitCount());
+
+        replies.put(id(1), reply(1));
+        assertEquals(reply(1), replies.get(id(1)));
+        assertEquals(reply(1), replies.get(id(1)));
+        assertNull(replies.get(id(2)));
+        assertEquals(2, replies.getHitCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedDropped() {
+        var replies = new DeliveredReplies(2);
+        replies.put(id(1), reply(1));
+        replies.put(id(2), reply(2));
+        //1 is now the most recently used
+        assertNotNull(replies.get(id(1)));
+        replies.put(id(3), reply(3));
+
+        assertNotNull(replies.get(id(1)));
+        assertNull(replies.get(id(2)));
+        assertNotNull(replies.get(id(3)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCapacity() {
+        new DeliveredReplies(0);
+    }
+}
@@ -0,0 +1,171 @@
+package dpas.server.broadcast;
+
+import dpas.grpc.contract.Contract;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+public class PeerOutboxTest {
+
+    private BroadcastDispatcher dispatcher;
+
+    @Before
+    public void setup() {
+        dispatcher = new BroadcastDispatcher(1);
+    }
+
+    @After
+    public void teardown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    public void windowLimitsInFlight() throws InterruptedException {
+        var outbox = new PeerOutbox(dispatcher, 0, 2);
+        List<StreamObserver<Contract.MacReply>> unacked = Collections.synchronizedList(new ArrayList<>());
+        var sent = new CountDownLatch(2);
+        for (int i = 0; i < 5; i++) {
+            outbox.echo(new BroadcastInstance<>(4), observer -> {
+                unacked.add(observer);
+                sent.countDown();
+            });
+        }
+        assertTrue(sent.await(10, TimeUnit.SECONDS));
+        assertEquals(2, outbox.getInFlightCount());
+        assertEquals(3, outbox.getPendingCount());
+
+        //Acknowledging lets the next ones through
+        var next = new ArrayList<>(unacked);
+        unacked.clear();
+        next.forEach(observer -> observer.onNext(Contract.MacReply.getDefaultInstance()));
+        waitFor(() -> outbox.getSentCount() == 4);
+        assertEquals(1, outbox.getPendingCount());
+    }
+
+    @Test
+    public void echoAndReadyAreBothSent() throws InterruptedException {
+        var outbox = new PeerOutbox(dispatcher, 0, 1);
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        var instance = new BroadcastInstance<>(4);
+        //Hold the window so the others stay pending
+        List<StreamObserver<Contract.MacReply>> blocker = Collections.synchronizedList(new ArrayList<>());
+        outbox.echo(new BroadcastInstance<>(4), blocker::add);
+        waitFor(() -> blocker.size() == 1);
+
+        outbox.echo(instance, observer -> {
+            sent.add("echo");
+            observer.onNext(Contract.MacReply.getDefaultInstance());
+        });
+        outbox.echo(instance, observer -> sent.add("echo again"));
+        outbox.ready(instance, observer -> {
+            sent.add("ready");
+            observer.onNext(Contract.MacReply.getDefaultInstance());
+        });
+        outbox.ready(instance, observer -> sent.add("ready again"));
+        assertEquals(2, outbox.getPendingCount());
+        assertEquals(2, outbox.getCoalescedCount());
+
+        blocker.get(0).onNext(Contract.MacReply.getDefaultInstance());
+        waitFor(() -> outbox.getSentCount() == 3);
+        assertEquals(List.of("echo", "ready"), sent);
+    }
+
+    @Test
+    public void deliveryDropsPendingEcho() throws InterruptedException {
+        var outbox = new PeerOutbox(dispatcher, 0, 1);
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        List<StreamObserver<Contract.MacReply>> blocker = Collections.synchronizedList(new ArrayList<>());
+        outbox.echo(new BroadcastInstance<>(4), blocker::add);
+        waitFor(() -> blocker.size() == 1);
+
+        var instance = new BroadcastInstance<>(4);
+        outbox.echo(instance, observer -> fail());
+        outbox.ready(instance, observer -> {
+            sent.add("ready");
+            observer.onNext(Contract.MacReply.getDefaultInstance());
+        });
+        instance.markDelivered();
+        outbox.delivered(instance);
+        assertEquals(1, outbox.getPendingCount());
+        assertEquals(1, outbox.getDroppedCount());
+
+        //Echoes of delivered instances aren't queued at all
+        outbox.echo(instance, observer -> fail());
+        assertEquals(1, outbox.getPendingCount());
+
+        blocker.get(0).onNext(Contract.MacReply.getDefaultInstance());
+        waitFor(() -> outbox.getSentCount() == 2);
+        assertEquals(List.of("ready"), sent);
+    }
+
+    @Test
+    public void readiesAreNeverDropped() throws InterruptedException {
+        var outbox = new PeerOutbox(dispatcher, 0, 1, 3);
+        List<StreamObserver<Contract.MacReply>> blocker = Collections.synchronizedList(new ArrayList<>());
+        outbox.echo(new BroadcastInstance<>(4), blocker::add);
+        waitFor(() -> blocker.size() == 1);
+
+        for (int i = 0; i < 5; i++) {
+            outbox.ready(new BroadcastInstance<>(4), observer -> observer.onNext(Contract.MacReply.getDefaultInstance()));
+        }
+        assertEquals(5, outbox.getPendingCount());
+        assertEquals(2, outbox.getOverflowedCount());
+        assertEquals(0, outbox.getDroppedCount());
+    }
+
+    @Test
+    public void fullBacklogDropsSupersededEchoes() throws InterruptedException {
+        var outbox = new PeerOutbox(dispatcher, 0, 1, 3);
+        List<StreamObserver<Contract.MacReply>> blocker = Collections.synchronizedList(new ArrayList<>());
+        outbox.echo(new BroadcastInstance<>(4), blocker::add);
+        waitFor(() -> blocker.size() == 1);
+
+        var superseded = new BroadcastInstance<>(4);
+        outbox.echo(superseded, observer -> fail());
+        outbox.ready(superseded, observer -> observer.onNext(Contract.MacReply.getDefaultInstance()));
+        outbox.echo(new BroadcastInstance<>(4), observer -> observer.onNext(Contract.MacReply.getDefaultInstance()));
+        //The echo of the instance whose ready is queued makes room
+        outbox.ready(new BroadcastInstance<>(4), observer -> observer.onNext(Contract.MacReply.getDefaultInstance()));
+        assertEquals(3, outbox.getPendingCount());
+        assertEquals(1, outbox.getDroppedCount());
+        assertEquals(0, outbox.getOverflowedCount());
+
+        blocker.get(0).onNext(Contract.MacReply.getDefaultInstance());
+        waitFor(() -> outbox.getSentCount() == 4);
+    }
+
+    @Test
+    public void echoOfDeliveredInstanceIsDropped() throws InterruptedException {
+        var outbox = new PeerOutbox(dispatcher, 0, 1);
+        List<StreamObserver<Contract.MacReply>> blocker = Collections.synchronizedList(new ArrayList<>());
+        outbox.echo(new BroadcastInstance<>(4), blocker::add);
+        waitFor(() -> blocker.size() == 1);
+
+        var instance = new BroadcastInstance<>(4);
+        outbox.echo(instance, observer -> fail());
+        instance.markDelivered();
+
+        blocker.get(0).onNext(Contract.MacReply.getDefaultInstance());
+        waitFor(() -> outbox.getDroppedCount() == 1);
+        waitFor(() -> outbox.getInFlightCount() == 0);
+        assertEquals(1, outbox.getSentCount());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+}
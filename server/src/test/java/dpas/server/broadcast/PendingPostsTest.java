@@ -0,0 +1,158 @@
+package dpas.server.broadcast;
+
+import dpas.common.domain.Announcement;
+import dpas.common.domain.AnnouncementBoard;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class PendingPostsTest {
+
+    private static final class Board implements AnnouncementBoard {
+        private long seq = 0;
+
+        @Override
+        public String getIdentifier() {
+            return "board";
+        }
+
+        @Override
+        public void post(Announcement announcement) {
+            seq++;
+        }
+
+        @Override
+        public List<Announcement> read(int number) {
+            return List.of();
+        }
+
+        @Override
+        public long getSeq() {
+            return seq;
+        }
+    }
+
+    @Test
+    public void nextSeqIsNotDeferred() {
+        var pending = new PendingPosts();
+        var board = new Board();
+        assertFalse(pending.defer(board, 1, Runnable::run, () -> fail(), () -> fail(), () -> fail()));
+        assertFalse(pending.defer(board, 0, Runnable::run, () -> fail(), () -> fail(), () -> fail()));
+        assertEquals(0, pending.getPendingCount());
+        pending.shutdown();
+    }
+
+    @Test
+    public void resumedInSeqOrder() {
+        var pending = new PendingPosts();
+        var board = new Board();
+        List<Long> resumed = new ArrayList<>();
+        assertTrue(pending.defer(board, 3, Runnable::run, () -> resumed.add(3L), () -> fail(), () -> fail()));
+        assertTrue(pending.defer(board, 2, Runnable::run, () -> resumed.add(2L), () -> fail(), () -> fail()));
+        assertEquals(2, pending.getPendingCount());
+
+        board.post(null);
+        pending.seqChanged(board);
+        assertEquals(List.of(2L), resumed);
+        board.post(null);
+        pending.seqChanged(board);
+        assertEquals(List.of(2L, 3L), resumed);
+        assertEquals(0, pending.getPendingCount());
+        assertEquals(0, pending.getExpiredCount());
+        pending.shutdown();
+    }
+
+    @Test
+    public void expiredWhenBoardDoesNotCatchUp() throws InterruptedException {
+        var pending = new PendingPosts(16, 50);
+        var board = new Board();
+        var expired = new CountDownLatch(1);
+        assertTrue(pending.defer(board, 5, Runnable::run, () -> fail(), expired::countDown, () -> fail()));
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, pending.getExpiredCount());
+        assertEquals(0, pending.getPendingCount());
+        pending.shutdown();
+    }
+
+    @Test
+    public void fullBoardExpiresImmediately() {
+        var pending = new PendingPosts(1, 10_000);
+        var board = new Board();
+        int[] expired = {0};
+        assertTrue(pending.defer(board, 2, Runnable::run, () -> {
+        }, () -> expired[0]++, () -> fail()));
+        assertTrue(pending.defer(board, 3, Runnable::run, () -> fail(), () -> expired[0]++, () -> fail()));
+        assertEquals(1, expired[0]);
+        assertEquals(1, pending.getPendingCount());
+        pending.shutdown();
+    }
+
+    @Test
+    public void chainResumedWithoutRecursion() {
+        var pending = new PendingPosts(2048, 10_000);
+        var board = new Board();
+        int chain = 1000;
+        int[] depth = {0, 0};
+        List<Long> resumed = new ArrayList<>();
+        for (long seq = 2; seq <= chain; seq++) {
+            final long current = seq;
+            //Each resume delivers its post, which lets the next one through
+            assertTrue(pending.defer(board, seq, Runnable::run, () -> {
+                depth[0]++;
+                depth[1] = Math.max(depth[1], depth[0]);
+                resumed.add(current);
+                board.post(null);
+                pending.seqChanged(board);
+                depth[0]--;
+            }, () -> fail(), () -> fail()));
+        }
+        board.post(null);
+        pending.seqChanged(board);
+        assertEquals(chain - 1, resumed.size());
+        assertEquals(1, depth[1]);
+        assertEquals(0, pending.getPendingCount());
+        pending.shutdown();
+    }
+
+    @Test
+    public void rejectedWhenExecutorFull() {
+        var pending = new PendingPosts();
+        var board = new Board();
+        int[] rejected = {0};
+        Executor full = task -> {
+            throw new RejectedExecutionException();
+        };
+        assertTrue(pending.defer(board, 2, full, () -> fail(), () -> fail(), () -> rejected[0]++));
+        board.post(null);
+        pending.seqChanged(board);
+        assertEquals(1, rejected[0]);
+        assertEquals(0, pending.getPendingCount());
+        pending.shutdown();
+    }
+
+    @Test
+    public void expiredOnExecutor() throws InterruptedException {
+        var pending = new PendingPosts(16, 50);
+        var board = new Board();
+        var executor = Executors.newSingleThreadExecutor(task -> new Thread(task, "expiry"));
+        var thread = new AtomicReference<String>();
+        var expired = new CountDownLatch(1);
+        assertTrue(pending.defer(board, 5, executor, () -> fail(), () -> {
+            thread.set(Thread.currentThread().getName());
+            expired.countDown();
+        }, () -> fail()));
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertEquals("expiry", thread.get());
+        pending.shutdown();
+        executor.shutdown();
+    }
+}
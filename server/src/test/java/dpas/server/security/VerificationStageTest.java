@@ -0,0 +1,86 @@
+package dpas.server.security;
+
+import dpas.common.domain.exception.InvalidReferenceException;
+import dpas.server.security.exception.IllegalMacException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+public class VerificationStageTest {
+
+    private VerificationStage stage;
+
+    @Before
+    public void setup() {
+        stage = new VerificationStage(2);
+    }
+
+    @After
+    public void teardown() {
+        stage.shutdown();
+    }
+
+    @Test
+    public void runsOnWorkers() throws Exception {
+        var caller = Thread.currentThread().getName();
+        var name = stage.verify(() -> Thread.currentThread().getName());
+        assertNotEquals(caller, name);
+        assertTrue(name.startsWith("dpas-verify-"));
+        assertEquals(1, stage.getVerifiedCount());
+        assertTrue(stage.getAverageVerifyNanos() >= 0);
+        assertTrue(stage.getAverageQueueWaitNanos() >= 0);
+    }
+
+    @Test
+    public void spreadsOverWorkers() throws InterruptedException {
+        var names = ConcurrentHashMap.<String>newKeySet();
+        var threads = new ArrayList<Thread>();
+        var start = new CountDownLatch(1);
+        for (int i = 0; i < 8; i++) {
+            var thread = new Thread(() -> {
+                try {
+                    start.await();
+                    names.add(stage.verify(() -> Thread.currentThread().getName()));
+                } catch (Exception e) {
+                    fail();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(Set.of("dpas-verify-0", "dpas-verify-1"), names);
+        assertEquals(8, stage.getVerifiedCount());
+    }
+
+    @Test(expected = InvalidReferenceException.class)
+    public void rethrowsDomainException() throws Exception {
+        stage.verify(() -> {
+            throw new InvalidReferenceException("Invalid reference");
+        });
+    }
+
+    @Test(expected = IllegalMacException.class)
+    public void rethrowsMacException() throws Exception {
+        stage.check(() -> {
+            throw new IllegalMacException("Invalid Mac For Request");
+        });
+    }
+
+    @Test
+    public void runsOnCallerAfterShutdown() throws Exception {
+        stage.shutdown();
+        var caller = Thread.currentThread().getName();
+        assertEquals(caller, stage.verify(() -> Thread.currentThread().getName()));
+    }
+}
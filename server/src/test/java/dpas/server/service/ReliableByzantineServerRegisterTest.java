@@ -168,6 +168,9 @@ public class ReliableByzantineServerRegisterTest {
             _servers[i].shutdownNow();
 
         }
+        for (var impl : _impls) {
+            impl.shutdown();
+        }
     }
 
     @Test
@@ -238,6 +238,9 @@ public class ReliableByzantineServicePostGeneralTest {
             _servers[i].shutdownNow();
 
         }
+        for (var impl : _impls) {
+            impl.shutdown();
+        }
     }
 
     @Test
@@ -237,6 +237,9 @@ public class ReliableByzantineServicePostTest {
             _servers[i].shutdownNow();
 
         }
+        for (var impl : _impls) {
+            impl.shutdown();
+        }
     }
 
     @Test
@@ -162,6 +162,9 @@ public class ReliableCrashServerPostGeneralTest {
                 _servers[i].shutdownNow();
 
         }
+        for (var impl : _impls) {
+            impl.shutdown();
+        }
     }
 
     @Test
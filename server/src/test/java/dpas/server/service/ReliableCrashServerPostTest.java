@@ -163,6 +163,9 @@ public class ReliableCrashServerPostTest {
                 _servers[i].shutdownNow();
 
         }
+        for (var impl : _impls) {
+            impl.shutdown();
+        }
     }
 
     @Test
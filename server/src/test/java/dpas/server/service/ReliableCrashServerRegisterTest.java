@@ -100,8 +100,8 @@ public class ReliableCrashServerRegisterTest {
             _servers[i] = NettyServerBuilder.forPort(port + i).addService(impl).build();
             if (i != 3) {
                 _servers[i].start();
-                _impls[i] = impl;
             }
+            _impls[i] = impl;
         }
         _stub = new QuorumStub(Arrays.asList(_stubs), 1);
     }
@@ -114,6 +114,9 @@ public class ReliableCrashServerRegisterTest {
             if (i != 3)
                 _servers[i].shutdownNow();
         }
+        for (var impl : _impls) {
+            impl.shutdown();
+        }
     }
 
     @Test
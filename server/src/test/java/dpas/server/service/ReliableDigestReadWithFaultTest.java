@@ -0,0 +1,165 @@
+package dpas.server.service;
+
+import com.google.protobuf.ByteString;
+import dpas.common.domain.exception.CommonDomainException;
+import dpas.grpc.contract.Contract;
+import dpas.grpc.contract.ServiceDPASGrpc;
+import dpas.utils.ContractGenerator;
+import dpas.utils.auth.CipherUtils;
+import dpas.utils.link.PerfectStub;
+import dpas.utils.link.QuorumStub;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioSocketChannel;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.security.*;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Digest read with 7 servers (2 faults): the server sending the announcements never answers full reads and
+ * another server crashed, so only a quorum of digests ever arrives
+ */
+public class ReliableDigestReadWithFaultTest {
+    private static final int NUMBER_SERVERS = 7;
+    private static final int NUMBER_FAULTS = 2;
+    private static final int SILENT = 0;
+    private static final int CRASHED = NUMBER_SERVERS - 1;
+
+    private PerfectStub[] _stubs;
+
+    private Server[] _servers;
+    private ServiceDPASReliableImpl[] _impls;
+    private QuorumStub _stub;
+
+    private static PublicKey[] _serverPubKey;
+    private static PrivateKey[] _serverPrivKey;
+
+    private static PublicKey _pubKey;
+    private static PrivateKey _privKey;
+
+    private ManagedChannel[] _channels;
+
+    private ExecutorService[] _executors;
+
+    private static Contract.Announcement _request;
+
+    private static final String MESSAGE = "MESSAGE";
+
+    private static final String host = "localhost";
+    private static final int port = 9000;
+
+    /**
+     * Answers digest reads but never full reads
+     */
+    private static class SilentReadService extends ServiceDPASReliableImpl {
+        private SilentReadService(PrivateKey privKey, PerfectStub[] servers, String serverId) {
+            super(privKey, Arrays.asList(servers), serverId, NUMBER_FAULTS);
+        }
+
+        @Override
+        public void read(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> responseObserver) {
+            if (request.getDigestOnly()) {
+                super.read(request, responseObserver);
+            }
+        }
+    }
+
+    @BeforeClass
+    public static void oneTimeSetup() throws GeneralSecurityException, CommonDomainException {
+        KeyPairGenerator keygen = KeyPairGenerator.getInstance("RSA");
+        keygen.initialize(2048);
+        _serverPubKey = new PublicKey[NUMBER_SERVERS];
+        _serverPrivKey = new PrivateKey[NUMBER_SERVERS];
+        for (int i = 0; i < NUMBER_SERVERS; i++) {
+            KeyPair keyPair = keygen.generateKeyPair();
+            _serverPubKey[i] = keyPair.getPublic();
+            _serverPrivKey[i] = keyPair.getPrivate();
+        }
+        KeyPair keyPair = keygen.generateKeyPair();
+        _pubKey = keyPair.getPublic();
+        _privKey = keyPair.getPrivate();
+        _request = ContractGenerator.generateAnnouncement(_pubKey, _privKey,
+                MESSAGE, 0, CipherUtils.keyToString(_pubKey), null);
+    }
+
+    @Before
+    public void setup() throws IOException, GeneralSecurityException, InterruptedException {
+        _stubs = new PerfectStub[NUMBER_SERVERS];
+        _impls = new ServiceDPASReliableImpl[NUMBER_SERVERS];
+        _servers = new Server[NUMBER_SERVERS];
+        _channels = new ManagedChannel[NUMBER_SERVERS];
+        _executors = new ExecutorService[NUMBER_SERVERS];
+        for (int i = 0; i < NUMBER_SERVERS; i++) {
+            var executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+            var eventGroup = new NioEventLoopGroup(1); //One thread for each channel
+            executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+            _channels[i] = NettyChannelBuilder
+                    .forAddress(host, port + i)
+                    .executor(executor)
+                    .channelType(NioSocketChannel.class)
+                    .eventLoopGroup(eventGroup)
+                    .usePlaintext()
+                    .build();
+            _stubs[i] = new PerfectStub(ServiceDPASGrpc.newStub(_channels[i]), _serverPubKey[i]);
+            _executors[i] = executor;
+        }
+        for (int i = 0; i < NUMBER_SERVERS; i++) {
+            var serverId = Base64.getEncoder().encodeToString(_serverPubKey[i].getEncoded());
+            var impl = i == SILENT
+                    ? new SilentReadService(_serverPrivKey[i], _stubs, serverId)
+                    : new ServiceDPASReliableImpl(_serverPrivKey[i], Arrays.asList(_stubs), serverId, NUMBER_FAULTS);
+            _servers[i] = NettyServerBuilder.forPort(port + i).addService(impl).build();
+            if (i != CRASHED) {
+                _servers[i].start();
+            }
+            _impls[i] = impl;
+        }
+        _stub = new QuorumStub(Arrays.asList(_stubs), NUMBER_FAULTS);
+
+        _stub.register(ContractGenerator.generateRegisterRequest(_pubKey, _privKey));
+    }
+
+    @After
+    public void teardown() {
+        for (int i = 0; i < NUMBER_SERVERS; i++) {
+            _channels[i].shutdownNow();
+            _executors[i].shutdownNow();
+            if (i != CRASHED)
+                _servers[i].shutdownNow();
+        }
+        for (var impl : _impls) {
+            impl.shutdown();
+        }
+    }
+
+    @Test
+    public void fallsBackAfterQuorumOfDigests() throws Exception {
+        _stub.post(_request);
+
+        var request = Contract.ReadRequest.newBuilder()
+                .setPublicKey(ByteString.copyFrom(_pubKey.getEncoded()))
+                .setNumber(0)
+                .build();
+        //Only 5 of the 6 other servers send their digest, the read must not wait for the sixth
+        var replies = _stub.readReliableDigestAsync(request).get(30, TimeUnit.SECONDS);
+        var reply = QuorumStub.mostRecent(replies);
+        assertEquals(1, reply.getAnnouncementsCount());
+        assertEquals(MESSAGE, reply.getAnnouncements(0).getMessage());
+    }
+}
@@ -32,6 +32,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(Parameterized.class)
 public class ReliableServerPostGeneralTest {
@@ -161,6 +162,9 @@ public class ReliableServerPostGeneralTest {
             _servers[i].shutdownNow();
 
         }
+        for (var impl : _impls) {
+            impl.shutdown();
+        }
     }
 
     @Test
@@ -197,6 +201,15 @@ public class ReliableServerPostGeneralTest {
             });
         }
         latch.await();
+
+        //Every server sent its ready to each of the others before delivering
+        for (var impl : _impls) {
+            assertEquals(3, impl.getOutboxes().size());
+            for (int i = 0; i < 3; i++) {
+                assertTrue(impl.getDispatcher().getDispatchedCount(i) >= 1);
+                assertTrue(impl.getOutboxes().get(i).getSentCount() >= 1);
+            }
+        }
     }
 
     @Test
@@ -10,6 +10,8 @@ import dpas.utils.link.PerfectStub;
 import dpas.utils.link.QuorumStub;
 import io.grpc.ManagedChannel;
 import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
 import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
 import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
@@ -32,6 +34,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 @RunWith(Parameterized.class)
 public class ReliableServerPostTest {
@@ -161,6 +164,9 @@ public class ReliableServerPostTest {
             _servers[i].shutdownNow();
 
         }
+        for (var impl : _impls) {
+            impl.shutdown();
+        }
     }
 
     @Test
@@ -200,6 +206,23 @@ public class ReliableServerPostTest {
         latch.await();
     }
 
+    @Test
+    public void forgedEchoRejected() throws GeneralSecurityException, CommonDomainException, InterruptedException {
+        _stub.post(_request);
+
+        //A faulty server echoes the delivered signature with the seq and identifier of the next post
+        var next = ContractGenerator.generateAnnouncement(_pubKey, _privKey, MESSAGE, _seq + 1, CipherUtils.keyToString(_pubKey), null);
+        var forged = _request.toBuilder().setSeq(next.getSeq()).setIdentifier(next.getIdentifier()).build();
+        var echo = ContractGenerator.generateEchoAnnouncement(forged, _serverPrivKey[1],
+                Base64.getEncoder().encodeToString(_serverPubKey[1].getEncoded()));
+        try {
+            ServiceDPASGrpc.newBlockingStub(_channels[0]).echoAnnouncement(echo);
+            fail();
+        } catch (StatusRuntimeException e) {
+            assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+        }
+    }
+
     @Test
     public void validRepeatedPost() throws GeneralSecurityException, InterruptedException {
         _stub.post(_request);
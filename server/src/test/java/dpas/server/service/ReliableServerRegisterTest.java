@@ -121,6 +121,9 @@ public class ReliableServerRegisterTest {
             _servers[i].shutdownNow();
 
         }
+        for (var impl : _impls) {
+            impl.shutdown();
+        }
     }
 
     @Test
@@ -1,6 +1,9 @@
 package dpas.server.service;
 
+import com.google.protobuf.ByteString;
+import dpas.common.domain.MerkleSignature;
 import dpas.common.domain.exception.CommonDomainException;
+import dpas.grpc.contract.Contract;
 import dpas.grpc.contract.ServiceDPASGrpc;
 import dpas.utils.link.PerfectStub;
 import dpas.utils.link.QuorumStub;
@@ -14,20 +17,26 @@ import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioSocketChannel;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.Timeout;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import java.io.IOException;
 import java.security.*;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 @RunWith(Parameterized.class)
@@ -56,6 +65,12 @@ public class ReliableServiceConcurrencyTest {
     private static final int NUMBER_THREADS = 4;
     private static final int NUMBER_POSTS = NUMBER_THREADS * 5;
 
+    /**
+     * The register stub blocks until a quorum answers, a broken server must fail the test instead of hanging it
+     */
+    @Rule
+    public Timeout timeout = Timeout.seconds(120);
+
     @Parameterized.Parameters
     public static Object[][] data() {
         return new Object[5][0];
@@ -129,6 +144,9 @@ public class ReliableServiceConcurrencyTest {
             _servers[i].shutdownNow();
 
         }
+        for (var impl : _impls) {
+            impl.shutdown();
+        }
     }
 
 
@@ -200,4 +218,101 @@ public class ReliableServiceConcurrencyTest {
             assertEquals(reply.length, NUMBER_POSTS / NUMBER_THREADS);
         }
     }
+
+    @Test
+    public void pipelinedPostTest() throws InterruptedException, GeneralSecurityException, ExecutionException {
+        PublicKey pub = _users[0].getPublic();
+        PrivateKey priv = _users[0].getPrivate();
+        var posts = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < NUMBER_POSTS; i++) {
+            posts.add(_stub.postAsync(pub, priv, MESSAGE, null));
+        }
+        CompletableFuture.allOf(posts.toArray(new CompletableFuture[0])).get();
+
+        var reply = _stub.read(pub, 0);
+        //Posts were in flight at the same time but must all be delivered in order
+        assertEquals(NUMBER_POSTS, reply.length);
+        for (int i = 0; i < reply.length; i++) {
+            assertEquals(i, reply[i].getSeq());
+        }
+    }
+
+    @Test
+    public void batchPostTest() throws InterruptedException, GeneralSecurityException, CommonDomainException {
+        PublicKey pub = _users[0].getPublic();
+        PrivateKey priv = _users[0].getPrivate();
+        var messages = new ArrayList<String>();
+        for (int i = 0; i < NUMBER_THREADS; i++) {
+            messages.add(MESSAGE + i);
+        }
+        _stub.post(pub, priv, MESSAGE, null);
+        _stub.postBatch(pub, priv, messages);
+        _stub.postBatch(pub, priv, messages);
+
+        //Reads validate the proofs, so each announcement of a batch must have its own
+        var reply = _stub.read(pub, 0);
+        assertEquals(2 * NUMBER_THREADS + 1, reply.length);
+        for (int i = 0; i < reply.length; i++) {
+            assertEquals(i, reply[i].getSeq());
+        }
+        assertEquals(MESSAGE + (NUMBER_THREADS - 1), reply[reply.length - 1].getMessage());
+    }
+
+    @Test
+    public void batchPostToEmptyBoardTest() throws InterruptedException, GeneralSecurityException, CommonDomainException {
+        PublicKey pub = _users[0].getPublic();
+        PrivateKey priv = _users[0].getPrivate();
+        var messages = new ArrayList<String>();
+        for (int i = 0; i < NUMBER_THREADS; i++) {
+            messages.add(MESSAGE + i);
+        }
+        //The board's first post is part of the batch
+        _stub.postBatch(pub, priv, messages);
+
+        var reply = _stub.read(pub, 0);
+        assertEquals(NUMBER_THREADS, reply.length);
+        for (int i = 0; i < reply.length; i++) {
+            assertEquals(i, reply[i].getSeq());
+            assertEquals(MESSAGE + i, reply[i].getMessage());
+        }
+    }
+
+    @Test
+    public void digestReadTest() throws Exception {
+        PublicKey pub = _users[0].getPublic();
+        PrivateKey priv = _users[0].getPrivate();
+        for (int i = 0; i < NUMBER_POSTS; i++) {
+            _stub.post(pub, priv, MESSAGE + i, null);
+        }
+        var request = Contract.ReadRequest.newBuilder()
+                .setPublicKey(ByteString.copyFrom(pub.getEncoded()))
+                .setNumber(0)
+                .build();
+        var replies = new QuorumStub(Arrays.asList(_stubs), 1).readReliableDigestAsync(request).get();
+        var reply = QuorumStub.mostRecent(replies);
+        assertEquals(NUMBER_POSTS, reply.getAnnouncementsCount());
+        for (int i = 0; i < NUMBER_POSTS; i++) {
+            assertEquals(MESSAGE + i, reply.getAnnouncements(i).getMessage());
+        }
+    }
+
+    @Test
+    public void merkleSignedBatchPostTest() throws InterruptedException, GeneralSecurityException, CommonDomainException {
+        PublicKey pub = _users[0].getPublic();
+        PrivateKey priv = _users[0].getPrivate();
+        var messages = new ArrayList<String>();
+        for (int i = 0; i < NUMBER_POSTS; i++) {
+            messages.add(MESSAGE + i);
+        }
+        _stub.postBatch(pub, priv, messages, true);
+        _stub.post(pub, priv, MESSAGE, null);
+
+        var reply = _stub.read(pub, 0);
+        assertEquals(NUMBER_POSTS + 1, reply.length);
+        for (int i = 0; i < NUMBER_POSTS; i++) {
+            assertEquals(i, reply[i].getSeq());
+            assertEquals(MESSAGE + i, reply[i].getMessage());
+            assertTrue(MerkleSignature.isMerkle(reply[i].getSignature().toByteArray()));
+        }
+    }
 }
@@ -1,21 +1,25 @@
 package dpas.utils;
 
 import com.google.protobuf.ByteString;
+import dpas.common.domain.ContentWriter.Content;
+import dpas.common.domain.MerkleSignature;
 import dpas.common.domain.exception.CommonDomainException;
 import dpas.grpc.contract.Contract;
 import dpas.grpc.contract.Contract.Announcement;
 import dpas.grpc.contract.Contract.MacReply;
 import dpas.grpc.contract.Contract.RegisterRequest;
+import dpas.utils.auth.ByteUtils;
 import dpas.utils.auth.CipherUtils;
 import dpas.utils.auth.MacGenerator;
-import org.apache.commons.lang3.ArrayUtils;
 
 import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -73,6 +77,30 @@ public final class ContractGenerator {
                 .build();
     }
 
+    /**
+     * Consecutive announcements (starting at seq) signed together with a single signature over their Merkle root
+     */
+    public static List<Announcement> generateMerkleSignedAnnouncements(PublicKey pubKey, PrivateKey privKey, List<String> messages,
+                                                                       long seq, String boardIdentifier) throws CommonDomainException {
+        List<byte[]> contents = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            contents.add(dpas.common.domain.Announcement.generateMessageBytes(messages.get(i), Set.of(), boardIdentifier, seq + i));
+        }
+        List<byte[]> signatures = MerkleSignature.sign(privKey, contents);
+
+        List<Announcement> announcements = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            announcements.add(Announcement.newBuilder()
+                    .setPublicKey(ByteString.copyFrom(pubKey.getEncoded()))
+                    .setMessage(messages.get(i))
+                    .setSignature(ByteString.copyFrom(signatures.get(i)))
+                    .setSeq(seq + i)
+                    .setIdentifier(generateIdentifier(pubKey, seq + i, boardIdentifier))
+                    .build());
+        }
+        return announcements;
+    }
+
     private static String generateIdentifier(PublicKey authorKey, long seq, String boardIdentifier) {
         try {
             var content = seq +
@@ -103,10 +131,21 @@ public final class ContractGenerator {
                 .build();
     }
 
+    public static MacReply generateMacReply(ByteString mac, PrivateKey privateKey) throws GeneralSecurityException {
+        return generateMacReply(writer -> writer.write(mac), privateKey);
+    }
+
+    public static MacReply generateMacReply(Content content, PrivateKey privateKey) throws GeneralSecurityException {
+        byte[] replyMac = MacGenerator.generateMac(content, privateKey);
+        return MacReply.newBuilder()
+                .setMac(ByteString.copyFrom(replyMac))
+                .build();
+    }
+
     public static Contract.EchoRegister generateEchoRegister(Contract.RegisterRequest request, PrivateKey serverKey, String serverId) throws GeneralSecurityException {
         return Contract.EchoRegister.newBuilder()
                 .setRequest(request)
-                .setMac(ByteString.copyFrom(MacGenerator.generateMac(ArrayUtils.addAll(request.getMac().toByteArray(), ECHO), serverKey)))
+                .setMac(ByteString.copyFrom(MacGenerator.generateMac(ByteUtils.content(request.getMac(), ECHO), serverKey)))
                 .setServerKey(serverId)
                 .build();
     }
@@ -114,7 +153,7 @@ public final class ContractGenerator {
     public static Contract.EchoAnnouncement generateEchoAnnouncement(Contract.Announcement request, PrivateKey serverKey, String serverId) throws GeneralSecurityException {
         return Contract.EchoAnnouncement.newBuilder()
                 .setRequest(request)
-                .setMac(ByteString.copyFrom(MacGenerator.generateMac(ArrayUtils.addAll(request.getSignature().toByteArray(), ECHO), serverKey)))
+                .setMac(ByteString.copyFrom(MacGenerator.generateMac(ByteUtils.content(request.getSignature(), ECHO), serverKey)))
                 .setServerKey(serverId)
                 .build();
     }
@@ -122,7 +161,7 @@ public final class ContractGenerator {
     public static Contract.ReadyRegister generateReadyRegister(Contract.RegisterRequest request, PrivateKey serverKey, String serverId) throws GeneralSecurityException {
         return Contract.ReadyRegister.newBuilder()
                 .setRequest(request)
-                .setMac(ByteString.copyFrom(MacGenerator.generateMac(ArrayUtils.addAll(request.getMac().toByteArray(), READY), serverKey)))
+                .setMac(ByteString.copyFrom(MacGenerator.generateMac(ByteUtils.content(request.getMac(), READY), serverKey)))
                 .setServerKey(serverId)
                 .build();
     }
@@ -130,8 +169,30 @@ public final class ContractGenerator {
     public static Contract.ReadyAnnouncement generateReadyAnnouncement(Contract.Announcement request, PrivateKey serverKey, String serverId) throws GeneralSecurityException {
         return Contract.ReadyAnnouncement.newBuilder()
                 .setRequest(request)
-                .setMac(ByteString.copyFrom(MacGenerator.generateMac(ArrayUtils.addAll(request.getSignature().toByteArray(), READY), serverKey)))
+                .setMac(ByteString.copyFrom(MacGenerator.generateMac(ByteUtils.content(request.getSignature(), READY), serverKey)))
+                .setServerKey(serverId)
+                .build();
+    }
+
+    public static Contract.EchoAnnouncementBatch generateEchoAnnouncementBatch(Contract.AnnouncementBatch request, PrivateKey serverKey, String serverId) throws GeneralSecurityException {
+        return Contract.EchoAnnouncementBatch.newBuilder()
+                .setRequest(request)
+                .setMac(ByteString.copyFrom(MacGenerator.generateMac(ByteUtils.content(request, ECHO), serverKey)))
                 .setServerKey(serverId)
                 .build();
     }
+
+    /**
+     * The ready of a batch carries the same mac as the ready of each of its announcements,
+     * so every delivered announcement keeps a proof that readers can verify on its own
+     */
+    public static Contract.ReadyAnnouncementBatch generateReadyAnnouncementBatch(Contract.AnnouncementBatch request, PrivateKey serverKey, String serverId) throws GeneralSecurityException {
+        var ready = Contract.ReadyAnnouncementBatch.newBuilder()
+                .setRequest(request)
+                .setServerKey(serverId);
+        for (var announcement : request.getAnnouncementsList()) {
+            ready.addMacs(ByteString.copyFrom(MacGenerator.generateMac(ByteUtils.content(announcement.getSignature(), READY), serverKey)));
+        }
+        return ready.build();
+    }
 }
@@ -1,33 +1,95 @@
 package dpas.utils.auth;
 
+import com.google.protobuf.ByteString;
+import dpas.common.domain.ContentWriter;
+import dpas.common.domain.ContentWriter.Content;
 import dpas.grpc.contract.Contract;
-import dpas.utils.NumberUtils;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.security.PublicKey;
+import java.util.List;
 import java.util.Set;
 
+/**
+ * Inputs of the macs. Each one is a {@link Content} streamed into the mac, the byte arrays are only built for the
+ * inputs that are also sent or used as identifiers
+ */
 public final class ByteUtils {
 
     private ByteUtils() {
     }
 
+    public static Content content(Contract.Announcement request) {
+        return writer -> {
+            writer.writeLong(request.getSeq())
+                    .write(request.getPublicKey())
+                    .writeString(request.getMessage())
+                    .write(request.getSignature());
+            for (int i = 0; i < request.getReferencesCount(); i++) {
+                writer.writeString(request.getReferences(i));
+            }
+        };
+    }
+
+    /**
+     * A batch is identified by the signatures of its announcements, in order
+     */
+    public static Content content(Contract.AnnouncementBatch batch) {
+        return writer -> {
+            for (int i = 0; i < batch.getAnnouncementsCount(); i++) {
+                writer.write(batch.getAnnouncements(i).getSignature());
+            }
+        };
+    }
+
+    /**
+     * What an echo or ready of a request signs: the request's mac or signature followed by the tag of the message
+     */
+    public static Content content(ByteString request, byte[] tag) {
+        return writer -> writer.write(request).write(tag);
+    }
+
+    public static Content content(Contract.AnnouncementBatch batch, byte[] tag) {
+        var content = content(batch);
+        return writer -> {
+            content.writeTo(writer);
+            writer.write(tag);
+        };
+    }
+
+    public static Content content(Contract.ReadRequest request, int announcementCount) {
+        return writer -> writer.write(request).writeInt(announcementCount);
+    }
+
+    public static Content content(Contract.ReadRequest request, byte[] digest) {
+        return writer -> writer.write(request).write(digest);
+    }
+
+    /**
+     * What a digest read compares: the number of announcements and the seq and identifier of each
+     */
+    public static Content content(List<Contract.Announcement> announcements) {
+        return writer -> {
+            writer.writeInt(announcements.size());
+            for (var announcement : announcements) {
+                var identifier = announcement.getIdentifier();
+                writer.writeLong(announcement.getSeq())
+                        .writeInt(ContentWriter.utf8Length(identifier))
+                        .writeString(identifier);
+            }
+        };
+    }
+
+    public static Content content(String nonce, long seq, PublicKey pubKey) {
+        return writer -> writer.writeLong(seq).writeString(nonce).write(pubKey.getEncoded());
+    }
+
     public static byte[] toByteArray(Contract.Announcement request) {
-        byte[] seq = NumberUtils.longToBytes(request.getSeq());
-        byte[] pubKey = request.getPublicKey().toByteArray();
-        byte[] message = request.getMessage().getBytes();
-        byte[] signature = request.getSignature().toByteArray();
-        try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
-            stream.writeBytes(seq);
-            stream.writeBytes(pubKey);
-            stream.writeBytes(message);
-            stream.writeBytes(signature);
-            request.getReferencesList().stream().map(String::getBytes).forEach(stream::writeBytes);
-            return stream.toByteArray();
-        } catch (IOException e) {
-            return new byte[0];
-        }
+        return ContentWriter.toByteArray(content(request));
+    }
+
+    public static byte[] toByteArray(Contract.AnnouncementBatch batch) {
+        return ContentWriter.toByteArray(content(batch));
     }
 
     public static byte[] toByteArray(Contract.RegisterRequest request) {
@@ -35,38 +97,29 @@ public final class ByteUtils {
     }
 
     public static byte[] toByteArray(Contract.ReadRequest request, int announcementCount) throws IOException {
-        try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
-            stream.writeBytes(request.toByteArray());
-            stream.writeBytes(NumberUtils.intToBytes(announcementCount));
-            return stream.toByteArray();
-        }
+        return ContentWriter.toByteArray(content(request, announcementCount));
+    }
+
+    public static byte[] toByteArray(Contract.ReadRequest request, byte[] digest) throws IOException {
+        return ContentWriter.toByteArray(content(request, digest));
+    }
+
+    public static byte[] toByteArray(List<Contract.Announcement> announcements) throws IOException {
+        return ContentWriter.toByteArray(content(announcements));
     }
 
     public static byte[] toByteArray(String nonce, long seq, PublicKey pubKey) throws IOException {
-        try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
-            stream.writeBytes(NumberUtils.longToBytes(seq));
-            stream.writeBytes(nonce.getBytes());
-            stream.writeBytes(pubKey.getEncoded());
-            return stream.toByteArray();
-        }
+        return ContentWriter.toByteArray(content(nonce, seq, pubKey));
     }
 
     public static byte[] toByteArray(String nonce, long seq) throws IOException {
-        try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
-            stream.writeBytes(NumberUtils.longToBytes(seq));
-            stream.writeBytes(nonce.getBytes());
-            return stream.toByteArray();
-        }
+        return ContentWriter.toByteArray(writer -> writer.writeLong(seq).writeString(nonce));
     }
 
     public static byte[] toByteArray(long seq, PublicKey pubKey, String message, byte[] signature, Set<String> references) throws IOException {
-        try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
-            stream.writeBytes(NumberUtils.longToBytes(seq));
-            stream.writeBytes(pubKey.getEncoded());
-            stream.writeBytes(message.getBytes());
-            stream.writeBytes(signature);
-            references.stream().map(String::getBytes).forEach(stream::writeBytes);
-            return stream.toByteArray();
-        }
+        return ContentWriter.toByteArray(writer -> {
+            writer.writeLong(seq).write(pubKey.getEncoded()).writeString(message).write(signature);
+            references.forEach(writer::writeString);
+        });
     }
 }
@@ -1,11 +1,11 @@
 package dpas.utils.auth;
 
+import dpas.common.domain.SignatureSuite;
+
 import javax.crypto.Cipher;
 import java.security.*;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.Base64;
 
-import static dpas.common.domain.constants.CryptographicConstants.ASYMMETRIC_KEY_ALGORITHM;
 import static dpas.common.domain.constants.CryptographicConstants.CIPHER_ALGORITHM;
 
 public final class CipherUtils {
@@ -37,8 +37,11 @@ public final class CipherUtils {
         return Base64.getEncoder().encodeToString(key.getEncoded());
     }
 
+    /**
+     * @return the public key of any signature suite, only RSA keys can be used to cipher
+     */
     public static PublicKey keyFromBytes(byte[] key) throws GeneralSecurityException {
-        return KeyFactory.getInstance(ASYMMETRIC_KEY_ALGORITHM).generatePublic(new X509EncodedKeySpec(key));
+        return SignatureSuite.publicKey(key);
     }
 
 }
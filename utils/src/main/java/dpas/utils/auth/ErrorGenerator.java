@@ -1,5 +1,6 @@
 package dpas.utils.auth;
 
+import dpas.common.domain.ContentWriter;
 import dpas.grpc.contract.Contract;
 import dpas.utils.Constants;
 import io.grpc.Metadata;
@@ -7,14 +8,34 @@ import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import org.apache.commons.lang3.ArrayUtils;
 
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.PrivateKey;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static dpas.common.domain.constants.CryptographicConstants.DIGEST_ALGORITHM;
 
 public final class ErrorGenerator {
 
     public static final Metadata.Key<byte[]> contentKey = Metadata.Key.of(Constants.REQ_KEY, Metadata.BINARY_BYTE_MARSHALLER);
     public static final Metadata.Key<byte[]> macKey = Metadata.Key.of(Constants.MAC_KEY, Metadata.BINARY_BYTE_MARSHALLER);
 
+    /**
+     * Errors signed per second (and at once) by each server
+     */
+    private static final double SIGNATURE_RATE = 100;
+    private static final int SIGNATURE_BURST = 200;
+    private static final int MAX_CACHED_ERRORS = 1024;
+
+    private static final Map<PrivateKey, ErrorSigner> signers = new ConcurrentHashMap<>();
+    private static final AtomicLong signed = new AtomicLong();
+
     private ErrorGenerator() {
     }
 
@@ -53,12 +74,43 @@ public final class ErrorGenerator {
         return fillMetadata(request.getSignature().toByteArray(), privKey, statusException);
     }
 
+    /**
+     * The trailer carries the digest of the batch, its signatures could be bigger than the headers allow
+     */
+    public static StatusRuntimeException generate(Status status, String message, Contract.AnnouncementBatch request, PrivateKey privKey) {
+        var statusException = status.withDescription(message).asRuntimeException(new Metadata());
+        return fillMetadata(ContentWriter.digest(ByteUtils.content(request)), privKey, statusException);
+    }
+
+    public static StatusRuntimeException generate(Status status, String message, Contract.EchoAnnouncementBatch request, PrivateKey privKey) {
+        var statusException = status.withDescription(message).asRuntimeException(new Metadata());
+        return fillMetadata(request.getMac().toByteArray(), privKey, statusException);
+    }
+
+    public static StatusRuntimeException generate(Status status, String message, Contract.ReadyAnnouncementBatch request, PrivateKey privKey) {
+        var statusException = status.withDescription(message).asRuntimeException(new Metadata());
+        return fillMetadata(ContentWriter.digest(ByteUtils.content(request.getRequest())), privKey, statusException);
+    }
+
+    /**
+     * @return number of error trailers actually signed (not taken from the cache)
+     */
+    public static long getSignedCount() {
+        return signed.get();
+    }
+
+    /**
+     * The mac is left out if the server already signed too many errors recently (see {@link ErrorSigner})
+     */
     private static StatusRuntimeException fillMetadata(byte[] content, PrivateKey privKey, StatusRuntimeException e) {
         var toSign = ArrayUtils.addAll(content, e.getMessage().getBytes());
         Metadata metadata = e.getTrailers();
         metadata.put(contentKey, content);
         try {
-            metadata.put(macKey, MacGenerator.generateMac(toSign, privKey));
+            var mac = signers.computeIfAbsent(privKey, ErrorSigner::new).sign(toSign);
+            if (mac != null) {
+                metadata.put(macKey, mac);
+            }
         } catch (GeneralSecurityException ex) {
             //Should never happen
             //leave the mac empty
@@ -66,4 +118,56 @@ public final class ErrorGenerator {
         }
         return e;
     }
+
+    /**
+     * Signs the errors of a single server.
+     * Repeated identical errors (a client retrying a bad request) reuse the mac of the first one, and new macs are
+     * limited by a token bucket, so a flood of bad requests costs at most SIGNATURE_RATE private key operations a second.
+     * Clients don't need the mac of an error to retry, it is only evidence of what the server answered
+     */
+    private static final class ErrorSigner {
+        private final PrivateKey privKey;
+        private final Map<ByteBuffer, byte[]> macs = Collections.synchronizedMap(
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<ByteBuffer, byte[]> eldest) {
+                        return size() > MAX_CACHED_ERRORS;
+                    }
+                });
+        private double tokens = SIGNATURE_BURST;
+        private long refilledAt = System.nanoTime();
+
+        private ErrorSigner(PrivateKey privKey) {
+            this.privKey = privKey;
+        }
+
+        /**
+         * @return the mac of the content, null if too many errors were signed recently
+         */
+        private byte[] sign(byte[] content) throws GeneralSecurityException {
+            var key = ByteBuffer.wrap(MessageDigest.getInstance(DIGEST_ALGORITHM).digest(content));
+            var mac = macs.get(key);
+            if (mac != null) {
+                return mac;
+            }
+            if (!tryAcquire()) {
+                return null;
+            }
+            mac = MacGenerator.generateMac(content, privKey);
+            signed.incrementAndGet();
+            macs.put(key, mac);
+            return mac;
+        }
+
+        private synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(SIGNATURE_BURST, tokens + (now - refilledAt) * SIGNATURE_RATE / TimeUnit.SECONDS.toNanos(1));
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
 }
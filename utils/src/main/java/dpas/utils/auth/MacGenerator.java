@@ -1,16 +1,18 @@
 package dpas.utils.auth;
 
+import dpas.common.domain.ContentWriter;
+import dpas.common.domain.ContentWriter.Content;
+import dpas.common.domain.SignatureSuite;
 import dpas.grpc.contract.Contract;
 
 import javax.crypto.Cipher;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
-import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.List;
 
 import static dpas.common.domain.constants.CryptographicConstants.CIPHER_ALGORITHM;
-import static dpas.common.domain.constants.CryptographicConstants.DIGEST_ALGORITHM;
 
 public final class MacGenerator {
 
@@ -22,20 +24,47 @@ public final class MacGenerator {
     }
 
     public static byte[] generateMac(String nonce, long seq, PublicKey pubKey, PrivateKey privKey) throws IOException, GeneralSecurityException {
-        return generateMac(ByteUtils.toByteArray(nonce, seq, pubKey), privKey);
+        return generateMac(ByteUtils.content(nonce, seq, pubKey), privKey);
     }
 
     public static byte[] generateMac(Contract.ReadRequest request, int announcementCount, PrivateKey privKey) throws GeneralSecurityException, IOException {
-        return generateMac(ByteUtils.toByteArray(request, announcementCount), privKey);
+        return generateMac(ByteUtils.content(request, announcementCount), privKey);
+    }
+
+    public static byte[] generateMac(Contract.ReadRequest request, byte[] digest, PrivateKey privKey) throws GeneralSecurityException, IOException {
+        return generateMac(ByteUtils.content(request, digest), privKey);
+    }
+
+    /**
+     * @return the digest a server replies with to a digest only read of these announcements
+     */
+    public static byte[] generateDigest(List<Contract.Announcement> announcements) throws GeneralSecurityException, IOException {
+        return ContentWriter.digest(ByteUtils.content(announcements));
     }
 
     public static byte[] generateMac(Contract.Announcement request, PrivateKey privKey) throws GeneralSecurityException {
-        return generateMac(ByteUtils.toByteArray(request), privKey);
+        return generateMac(ByteUtils.content(request), privKey);
     }
 
+    /**
+     * RSA keys encrypt the content's hash, keys of the other suites sign the content
+     */
     public static byte[] generateMac(byte[] content, PrivateKey privKey) throws GeneralSecurityException {
-        MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
-        byte[] hash = digest.digest(content);
+        return generateMac(writer -> writer.write(content), privKey);
+    }
+
+    /**
+     * The content is streamed into the hash (or signature), it is never built as an array
+     */
+    public static byte[] generateMac(Content content, PrivateKey privKey) throws GeneralSecurityException {
+        var suite = SignatureSuite.of(privKey);
+        if (suite != SignatureSuite.RSA) {
+            var sign = suite.newSignature();
+            sign.initSign(privKey);
+            ContentWriter.update(sign, content);
+            return sign.sign();
+        }
+        byte[] hash = ContentWriter.digest(content);
 
         Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
         cipher.init(Cipher.ENCRYPT_MODE, privKey);
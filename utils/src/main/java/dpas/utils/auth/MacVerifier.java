@@ -1,16 +1,19 @@
 package dpas.utils.auth;
 
+import com.google.protobuf.ByteString;
 import dpas.common.domain.Announcement;
+import dpas.common.domain.ContentWriter;
+import dpas.common.domain.ContentWriter.Content;
 import dpas.common.domain.GeneralBoard;
+import dpas.common.domain.MerkleSignature;
+import dpas.common.domain.SignatureSuite;
 import dpas.grpc.contract.Contract;
 import io.grpc.Metadata;
 import io.grpc.StatusRuntimeException;
 import org.apache.commons.lang3.ArrayUtils;
 
 import javax.crypto.Cipher;
-import java.io.IOException;
 import java.security.*;
-import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -25,70 +28,88 @@ public final class MacVerifier {
     }
 
     public static boolean verifyMac(Contract.RegisterRequest request, Contract.MacReply reply, PublicKey serverKey) {
-        try {
-            byte[] mac = reply.getMac().toByteArray();
-            Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, serverKey);
-            byte[] hash = cipher.doFinal(mac);
+        return verifyMac(serverKey, request.getMac(), reply.getMac().toByteArray());
+    }
 
-            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
-            byte[] content = digest.digest(request.getMac().toByteArray());
 
-            return Arrays.equals(content, hash);
-        } catch (GeneralSecurityException e) {
-            return false;
-        }
+    /**
+     * See {@link MacGenerator#generateMac(byte[], PrivateKey)}
+     */
+    public static boolean verifyMac(PublicKey pubKey, byte[] content, byte[] mac) {
+        return verifyMac(pubKey, writer -> writer.write(content), mac);
     }
 
+    public static boolean verifyMac(PublicKey pubKey, ByteString content, byte[] mac) {
+        return verifyMac(pubKey, writer -> writer.write(content), mac);
+    }
 
-    public static boolean verifyMac(PublicKey pubKey, byte[] content, byte[] mac) {
+    /**
+     * The content is streamed into the hash (or signature), it is never built as an array
+     */
+    public static boolean verifyMac(PublicKey pubKey, Content content, byte[] mac) {
         try {
+            var suite = SignatureSuite.of(pubKey);
+            if (suite != SignatureSuite.RSA) {
+                var sign = suite.newSignature();
+                sign.initVerify(pubKey);
+                ContentWriter.update(sign, content);
+                return sign.verify(mac);
+            }
             Cipher cipher = Cipher.getInstance(CIPHER_ALGORITHM);
             cipher.init(Cipher.DECRYPT_MODE, pubKey);
             byte[] hash = cipher.doFinal(mac);
 
-            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
-            return Arrays.equals(digest.digest(content), hash);
+            return MessageDigest.isEqual(ContentWriter.digest(content), hash);
         } catch (GeneralSecurityException e) {
             return false;
         }
     }
 
     public static boolean verifyMac(Contract.ReadRequest request, Contract.ReadReply reply, PublicKey serverKey) {
-        try {
-            return verifyMac(serverKey, ByteUtils.toByteArray(request, reply.getAnnouncementsCount()), reply.getMac().toByteArray());
-        } catch (IOException e) {
-            return false;
-        }
+        return verifyMac(serverKey, ByteUtils.content(request, reply.getAnnouncementsCount()), reply.getMac().toByteArray());
     }
 
     public static boolean verifyMac(Contract.EchoRegister request, Contract.MacReply reply, PublicKey serverKey) {
-        return verifyMac(serverKey, request.getMac().toByteArray(), reply.getMac().toByteArray());
+        return verifyMac(serverKey, request.getMac(), reply.getMac().toByteArray());
     }
 
     public static boolean verifyMac(Contract.EchoAnnouncement request, Contract.MacReply reply, PublicKey serverKey) {
-        return verifyMac(serverKey, request.getMac().toByteArray(), reply.getMac().toByteArray());
+        return verifyMac(serverKey, request.getMac(), reply.getMac().toByteArray());
     }
 
     public static boolean verifyMac(Contract.ReadyRegister request, Contract.MacReply reply, PublicKey serverKey) {
-        return verifyMac(serverKey, request.getMac().toByteArray(), reply.getMac().toByteArray());
+        return verifyMac(serverKey, request.getMac(), reply.getMac().toByteArray());
     }
 
     public static boolean verifyMac(Contract.ReadyAnnouncement request, Contract.MacReply reply, PublicKey serverKey) {
-        return verifyMac(serverKey, request.getMac().toByteArray(), reply.getMac().toByteArray());
+        return verifyMac(serverKey, request.getMac(), reply.getMac().toByteArray());
+    }
+
+    public static boolean verifyMac(Contract.EchoAnnouncementBatch request, Contract.MacReply reply, PublicKey serverKey) {
+        return verifyMac(serverKey, request.getMac(), reply.getMac().toByteArray());
+    }
+
+    public static boolean verifyMac(Contract.ReadyAnnouncementBatch request, Contract.MacReply reply, PublicKey serverKey) {
+        return verifyMac(serverKey, ByteUtils.content(request.getRequest()), reply.getMac().toByteArray());
     }
 
     public static boolean verifyMac(PublicKey key, StatusRuntimeException e) {
         Metadata data = e.getTrailers();
         byte[] content = ArrayUtils.addAll(data.get(ErrorGenerator.contentKey), e.getMessage().getBytes());
         byte[] mac = data.get(ErrorGenerator.macKey);
+        if (mac == null) {
+            //The server was signing too many errors and left this one unsigned
+            return false;
+        }
         return MacVerifier.verifyMac(key, content, mac);
     }
 
     public static boolean verifyMac(PublicKey pubKey, Contract.MacReply reply, Contract.Announcement request) {
-        byte[] content = request.getSignature().toByteArray();
-        byte[] mac = reply.getMac().toByteArray();
-        return verifyMac(pubKey, content, mac);
+        return verifyMac(pubKey, request.getSignature(), reply.getMac().toByteArray());
+    }
+
+    public static boolean verifyMac(PublicKey pubKey, Contract.MacReply reply, Contract.AnnouncementBatch request) {
+        return verifyMac(pubKey, ByteUtils.content(request), reply.getMac().toByteArray());
     }
 
     public static boolean verifySignature(Contract.Announcement announcement, PublicKey authorKey, String boardIdentifier) {
@@ -96,14 +117,19 @@ public final class MacVerifier {
             var references = Stream.ofNullable(announcement.getReferencesList())
                     .flatMap(List::stream)
                     .collect(Collectors.toSet());
-            byte[] messageBytes = Announcement.generateMessageBytes(announcement.getMessage(), references, boardIdentifier, announcement.getSeq());
-
-            Signature sign = Signature.getInstance(SIGNATURE_ALGORITHM);
-            sign.initVerify(authorKey);
-            sign.update(messageBytes);
-
-            if (!sign.verify(announcement.getSignature().toByteArray())) {
-                return false;
+            String message = announcement.getMessage();
+            long seq = announcement.getSeq();
+            byte[] signature = announcement.getSignature().toByteArray();
+
+            if (!MerkleSignature.isMerkle(signature)
+                    || !MerkleSignature.verify(authorKey, Announcement.generateMessageBytes(message, references, boardIdentifier, seq), signature)) {
+                Signature sign = SignatureSuite.of(authorKey).newSignature();
+                sign.initVerify(authorKey);
+                ContentWriter.update(sign, writer -> Announcement.writeMessage(writer, message, references, boardIdentifier, seq));
+
+                if (!sign.verify(signature)) {
+                    return false;
+                }
             }
             if (!verifySeq(announcement.getSeq(), authorKey.getEncoded(), boardIdentifier, announcement.getIdentifier())) {
                 return false;
@@ -2,9 +2,7 @@ package dpas.utils.auth;
 
 import dpas.grpc.contract.Contract;
 import dpas.utils.Constants;
-import org.apache.commons.lang3.ArrayUtils;
 
-import java.io.IOException;
 import java.security.PublicKey;
 import java.util.Base64;
 import java.util.HashSet;
@@ -18,34 +16,30 @@ public final class ReplyValidator {
 
     public static boolean validateReadReply(Contract.ReadRequest request, Contract.ReadReply reply, PublicKey serverKey,
                                             PublicKey authorKey, Map<String, PublicKey> serverKeys, int quorumSize) {
-        try {
-            Set<String> seen = new HashSet<>();
-            if (!MacVerifier.verifyMac(serverKey, ByteUtils.toByteArray(request, reply.getAnnouncementsCount()), reply.getMac().toByteArray())) {
+        Set<String> seen = new HashSet<>();
+        if (!MacVerifier.verifyMac(serverKey, ByteUtils.content(request, reply.getAnnouncementsCount()), reply.getMac().toByteArray())) {
+            return false;
+        }
+
+        if (request.getNumber() != 0) {
+            if (reply.getAnnouncementsCount() > request.getNumber()) {
                 return false;
             }
+        }
 
-            if (request.getNumber() != 0) {
-                if (reply.getAnnouncementsCount() > request.getNumber()) {
-                    return false;
-                }
+        for (Contract.Announcement announcement : reply.getAnnouncementsList()) {
+            if (!MacVerifier.verifySignature(announcement, authorKey, Base64.getEncoder().encodeToString(authorKey.getEncoded()))) {
+                return false;
             }
-
-            for (Contract.Announcement announcement : reply.getAnnouncementsList()) {
-                if (!MacVerifier.verifySignature(announcement, authorKey, Base64.getEncoder().encodeToString(authorKey.getEncoded()))) {
-                    return false;
-                }
-                if (seen.contains(announcement.getIdentifier())) {
-                    return false;
-                }
-                seen.add(announcement.getIdentifier());
-                if (!validateProofs(announcement, serverKeys, quorumSize)) {
-                    return false;
-                }
+            if (seen.contains(announcement.getIdentifier())) {
+                return false;
+            }
+            seen.add(announcement.getIdentifier());
+            if (!validateProofs(announcement, serverKeys, quorumSize)) {
+                return false;
             }
-            return true;
-        } catch (IOException e) {
-            return false;
         }
+        return true;
     }
 
     public static boolean validateReadGeneralReply(Contract.ReadRequest request, Contract.ReadReply reply,
@@ -80,6 +74,17 @@ public final class ReplyValidator {
         }
     }
 
+    /**
+     * A digest only reply has no announcements, just the digest and the mac binding it to the request
+     */
+    public static boolean validateDigestReply(Contract.ReadRequest request, Contract.ReadReply reply, PublicKey serverKey) {
+        if (!request.getDigestOnly() || reply.getAnnouncementsCount() != 0 || reply.getDigest().isEmpty()) {
+            return false;
+        }
+        var digest = reply.getDigest().toByteArray();
+        return MacVerifier.verifyMac(serverKey, ByteUtils.content(request, digest), reply.getMac().toByteArray());
+    }
+
     public static boolean validateProofs(Contract.Announcement announcement, Map<String, PublicKey> serverKeys, int quorumSize) {
         var proofs = announcement.getReadyProofMap();
 
@@ -93,7 +98,7 @@ public final class ReplyValidator {
             if (pubKey == null) {
                 return false;
             }
-            var content = ArrayUtils.addAll(announcement.getSignature().toByteArray(), Constants.READY);
+            var content = ByteUtils.content(announcement.getSignature(), Constants.READY);
             var mac = Base64.getDecoder().decode(entry.getValue());
             if (!MacVerifier.verifyMac(pubKey, content, mac)) {
                 return false;
@@ -104,31 +109,27 @@ public final class ReplyValidator {
 
 
     public static boolean validateReadReply(Contract.ReadRequest request, Contract.ReadReply reply, PublicKey serverKey, PublicKey authorKey) {
-        try {
-            Set<String> seen = new HashSet<>();
-            if (!MacVerifier.verifyMac(serverKey, ByteUtils.toByteArray(request, reply.getAnnouncementsCount()), reply.getMac().toByteArray())) {
+        Set<String> seen = new HashSet<>();
+        if (!MacVerifier.verifyMac(serverKey, ByteUtils.content(request, reply.getAnnouncementsCount()), reply.getMac().toByteArray())) {
+            return false;
+        }
+
+        if (request.getNumber() != 0) {
+            if (reply.getAnnouncementsCount() > request.getNumber()) {
                 return false;
             }
+        }
 
-            if (request.getNumber() != 0) {
-                if (reply.getAnnouncementsCount() > request.getNumber()) {
-                    return false;
-                }
+        for (Contract.Announcement announcement : reply.getAnnouncementsList()) {
+            if (!MacVerifier.verifySignature(announcement, authorKey, Base64.getEncoder().encodeToString(authorKey.getEncoded()))) {
+                return false;
             }
-
-            for (Contract.Announcement announcement : reply.getAnnouncementsList()) {
-                if (!MacVerifier.verifySignature(announcement, authorKey, Base64.getEncoder().encodeToString(authorKey.getEncoded()))) {
-                    return false;
-                }
-                if (seen.contains(announcement.getIdentifier())) {
-                    return false;
-                }
-                seen.add(announcement.getIdentifier());
+            if (seen.contains(announcement.getIdentifier())) {
+                return false;
             }
-            return true;
-        } catch (IOException e) {
-            return false;
+            seen.add(announcement.getIdentifier());
         }
+        return true;
     }
 
     public static boolean validateReadGeneralReply(Contract.ReadRequest request, Contract.ReadReply reply, PublicKey serverKey) {
@@ -0,0 +1,127 @@
+package dpas.utils.link;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for a single server.
+ * After enough consecutive failures the circuit opens and calls are held back, once it has been open
+ * long enough a single probe is let through (half open) and its outcome closes or reopens the circuit.
+ * A probe that doesn't return within the probe timeout counts as a failure
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    public static final long DEFAULT_PROBE_TIMEOUT_MILLIS = 5000;
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long probeTimeoutMillis;
+    private final LongSupplier clock;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong();
+    private final AtomicLong probeStartedAt = new AtomicLong();
+    private final AtomicLong timedOutProbes = new AtomicLong();
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, DEFAULT_PROBE_TIMEOUT_MILLIS);
+    }
+
+    public CircuitBreaker(int failureThreshold, long openMillis, long probeTimeoutMillis) {
+        this(failureThreshold, openMillis, probeTimeoutMillis, System::currentTimeMillis);
+    }
+
+    //Use with tests only
+    CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this(failureThreshold, openMillis, DEFAULT_PROBE_TIMEOUT_MILLIS, clock);
+    }
+
+    //Use with tests only
+    CircuitBreaker(int failureThreshold, long openMillis, long probeTimeoutMillis, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.probeTimeoutMillis = probeTimeoutMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return true if a call can be made now, if the circuit has been open long enough the caller becomes the probe
+     */
+    public boolean allowRequest() {
+        long now = clock.getAsLong();
+        switch (state.get()) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openedAt.get() < openMillis) {
+                    return false;
+                }
+                probeStartedAt.set(now);
+                return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+            default:
+                //A probe is already in flight, unless it took too long
+                if (now - probeStartedAt.get() >= probeTimeoutMillis) {
+                    openedAt.set(now);
+                    if (state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+                        timedOutProbes.incrementAndGet();
+                    }
+                }
+                return false;
+        }
+    }
+
+    /**
+     * @return time until the circuit lets a probe through (0 if closed)
+     */
+    public long millisUntilProbe() {
+        switch (state.get()) {
+            case CLOSED:
+                return 0;
+            case HALF_OPEN:
+                //Until the probe in flight times out
+                return Math.max(0, probeStartedAt.get() + probeTimeoutMillis - clock.getAsLong());
+            default:
+                return Math.max(0, openedAt.get() + openMillis - clock.getAsLong());
+        }
+    }
+
+    /**
+     * The server answered, so it is reachable
+     */
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+    }
+
+    /**
+     * The server couldn't be reached (or answered with something we couldn't verify)
+     */
+    public void onFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (state.get() == State.HALF_OPEN || failures >= failureThreshold) {
+            openedAt.set(clock.getAsLong());
+            state.set(State.OPEN);
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public long getProbeTimeoutMillis() {
+        return probeTimeoutMillis;
+    }
+
+    /**
+     * @return number of probes that reopened the circuit because they didn't return in time
+     */
+    public long getTimedOutProbeCount() {
+        return timedOutProbes.get();
+    }
+}
@@ -0,0 +1,94 @@
+package dpas.utils.link;
+
+import io.grpc.ManagedChannel;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.Epoll;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.epoll.EpollSocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.SocketChannel;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioSocketChannel;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Event loop group and callback executor shared by all the channels to the servers,
+ * so the number of threads doesn't depend on the number of servers.
+ * Uses the native epoll transport when it is available
+ */
+public class ClientTransport implements AutoCloseable {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private final EventLoopGroup eventGroup;
+    private final Class<? extends SocketChannel> channelType;
+    private final ExecutorService executor;
+    private final List<ManagedChannel> channels = new CopyOnWriteArrayList<>();
+
+    public ClientTransport() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param eventLoopThreads threads doing network io
+     * @param executorThreads  threads running the replies' callbacks (mac verification, quorum counting)
+     */
+    public ClientTransport(int eventLoopThreads, int executorThreads) {
+        if (Epoll.isAvailable()) {
+            this.eventGroup = new EpollEventLoopGroup(eventLoopThreads, daemonThreads("dpas-event-loop"));
+            this.channelType = EpollSocketChannel.class;
+        } else {
+            this.eventGroup = new NioEventLoopGroup(eventLoopThreads, daemonThreads("dpas-event-loop"));
+            this.channelType = NioSocketChannel.class;
+        }
+        this.executor = Executors.newFixedThreadPool(executorThreads, daemonThreads("dpas-callback"));
+    }
+
+    public ManagedChannel newChannel(String host, int port) {
+        ManagedChannel channel = NettyChannelBuilder
+                .forAddress(host, port)
+                .usePlaintext()
+                .channelType(channelType)
+                .eventLoopGroup(eventGroup)
+                .executor(executor)
+                .build();
+        channels.add(channel);
+        return channel;
+    }
+
+    public boolean isEpoll() {
+        return channelType == EpollSocketChannel.class;
+    }
+
+    /**
+     * Shuts down every channel created by this transport and then its threads
+     */
+    @Override
+    public void close() throws InterruptedException {
+        channels.forEach(ManagedChannel::shutdown);
+        for (var channel : channels) {
+            if (!channel.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                channel.shutdownNow();
+            }
+        }
+        channels.clear();
+        executor.shutdown();
+        eventGroup.shutdownGracefully(0, SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS).await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        final AtomicInteger count = new AtomicInteger();
+        return task -> {
+            var thread = new Thread(task, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package dpas.utils.link;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of each server, used by the quorum stub to choose the replicas it calls first.
+ * A server's latency is an exponentially weighted moving average (EWMA) of its replies, the hedge delay is a
+ * percentile of the latest replies of all servers
+ */
+public class LatencyTracker {
+    public static final int WINDOW = 128;
+
+    private final double alpha;
+    private final double percentile;
+    private final long minHedgeMillis;
+    private final long maxHedgeMillis;
+
+    /**
+     * Average latency of each server, in nanoseconds
+     */
+    private final Map<String, Double> averages = new ConcurrentHashMap<>();
+
+    /**
+     * Latest latencies of all servers (circular buffer), in nanoseconds
+     */
+    private final long[] samples = new long[WINDOW];
+    private int next = 0;
+    private int count = 0;
+
+    public LatencyTracker() {
+        this(0.2, 0.95, 5, 1000);
+    }
+
+    /**
+     * @param alpha          weight of a new reply in the server's average
+     * @param percentile     percentile of the latest latencies after which the other replicas are called
+     * @param minHedgeMillis minimum delay before calling the other replicas
+     * @param maxHedgeMillis maximum delay before calling the other replicas, also used while nothing was measured
+     */
+    public LatencyTracker(double alpha, double percentile, long minHedgeMillis, long maxHedgeMillis) {
+        if (alpha <= 0 || alpha > 1 || percentile <= 0 || percentile > 1 || minHedgeMillis < 0 || maxHedgeMillis < minHedgeMillis) {
+            throw new IllegalArgumentException("Invalid latency tracker");
+        }
+        this.alpha = alpha;
+        this.percentile = percentile;
+        this.minHedgeMillis = minHedgeMillis;
+        this.maxHedgeMillis = maxHedgeMillis;
+    }
+
+    /**
+     * The server replied after the given time
+     */
+    public void record(String serverId, long nanos) {
+        averages.merge(serverId, (double) nanos, (average, sample) -> average + alpha * (sample - average));
+        synchronized (samples) {
+            samples[next] = nanos;
+            next = (next + 1) % WINDOW;
+            count = Math.min(count + 1, WINDOW);
+        }
+    }
+
+    /**
+     * The server hadn't replied after the given time (the call was no longer needed).
+     * Its average only grows, so a replica that stops answering isn't called first anymore
+     */
+    public void recordPending(String serverId, long nanos) {
+        averages.merge(serverId, (double) nanos, (average, sample) ->
+                sample > average ? average + alpha * (sample - average) : average);
+    }
+
+    /**
+     * @return the server's average latency, 0 if it was never measured (so it gets called and measured)
+     */
+    public double averageNanos(String serverId) {
+        return averages.getOrDefault(serverId, 0.0);
+    }
+
+    /**
+     * @return time to wait for the first replicas before calling the others
+     */
+    public long hedgeDelayMillis() {
+        long[] latest;
+        synchronized (samples) {
+            if (count == 0) {
+                return maxHedgeMillis;
+            }
+            latest = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(latest);
+        int index = (int) Math.ceil(percentile * latest.length) - 1;
+        long millis = TimeUnit.NANOSECONDS.toMillis(latest[Math.max(0, index)]);
+        return Math.min(maxHedgeMillis, Math.max(minHedgeMillis, millis));
+    }
+}
@@ -5,6 +5,8 @@ import dpas.grpc.contract.ServiceDPASGrpc;
 import dpas.utils.auth.CipherUtils;
 import dpas.utils.auth.MacVerifier;
 import dpas.utils.auth.ReplyValidator;
+import io.grpc.Context;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 
 import java.security.GeneralSecurityException;
@@ -12,29 +14,66 @@ import java.security.PublicKey;
 import java.util.Base64;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Implementation of authenticated perfect point to point link
+ * Implementation of authenticated perfect point to point link.
+ * Failed calls are retried forever, with exponential backoff and jitter, and calls to a server that
+ * keeps failing are held back by its circuit breaker until a probe gets through.
+ * Calls are made outside the caller's gRPC context, so a call that started always reaches the server,
+ * but retries stop once that context is cancelled
  */
 public class PerfectStub {
+    /**
+     * Retries only start the next (asynchronous) call, so a single thread is shared by all links
+     */
+    private static final ScheduledExecutorService RETRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(task -> {
+        var thread = new Thread(task, "dpas-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final ServiceDPASGrpc.ServiceDPASStub stub;
     private final PublicKey serverKey;
+    private final RetryPolicy policy;
+    private final CircuitBreaker breaker;
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
 
     public PerfectStub(ServiceDPASGrpc.ServiceDPASStub stub, PublicKey serverKey) {
+        this(stub, serverKey, RetryPolicy.DEFAULT);
+    }
+
+    public PerfectStub(ServiceDPASGrpc.ServiceDPASStub stub, PublicKey serverKey, RetryPolicy policy) {
         this.stub = stub;
         this.serverKey = serverKey;
+        this.policy = policy;
+        this.breaker = new CircuitBreaker(policy.getFailureThreshold(), policy.getOpenMillis(), policy.getProbeTimeoutMillis());
     }
 
     public void register(Contract.RegisterRequest request, StreamObserver<Contract.MacReply> replyObserver) {
-        stub.register(request, new StreamObserver<>() {
+        register(request, replyObserver, 0);
+    }
+
+    private void register(Contract.RegisterRequest request, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> register(request, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().register(request, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
                 //Or the server is byzantine (since we can't know must keep trying)
                 //Since the operation is idempotent resending to a correct server has no impact
                 if (!MacVerifier.verifyMac(request, value, serverKey)) {
-                    register(request, replyObserver);
+                    onInvalidReply(scope, attempt, () -> register(request, replyObserver, attempt + 1));
                 } else {
+                    breaker.onSuccess();
                     replyObserver.onNext(value);
                 }
             }
@@ -45,26 +84,36 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                register(request, replyObserver);
+                onFailedCall(scope, t, attempt, () -> register(request, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
     }
 
     public void post(Contract.Announcement announcement, StreamObserver<Contract.MacReply> replyObserver) {
-        stub.post(announcement, new StreamObserver<>() {
+        post(announcement, replyObserver, 0);
+    }
+
+    private void post(Contract.Announcement announcement, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> post(announcement, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().post(announcement, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
                 //Or the server is byzantine (since we can't know must keep trying)
                 //Since the operation is idempotent resending to a correct server has no impact
                 if (!MacVerifier.verifyMac(serverKey, value, announcement)) {
-                    post(announcement, replyObserver);
+                    onInvalidReply(scope, attempt, () -> post(announcement, replyObserver, attempt + 1));
                 } else {
+                    breaker.onSuccess();
                     replyObserver.onNext(value);
                 }
             }
@@ -75,22 +124,31 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                post(announcement, replyObserver);
+                onFailedCall(scope, t, attempt, () -> post(announcement, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
     }
 
     public void readReliable(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver,
                              Map<String, PublicKey> serverKeys, int quorumSize) {
+        readReliable(request, replyObserver, serverKeys, quorumSize, 0);
+    }
+
+    private void readReliable(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver, Map<String, PublicKey> serverKeys, int quorumSize, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> readReliable(request, replyObserver, serverKeys, quorumSize, attempt + 1));
+            return;
+        }
         Contract.ReadRequest req = request.toBuilder()
                 .setNonce(UUID.randomUUID().toString())
                 .build();
-        stub.read(req, new StreamObserver<>() {
+        scope.fork().run(() -> callStub().read(req, new StreamObserver<>() {
             @Override
             public void onNext(Contract.ReadReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
@@ -99,12 +157,13 @@ public class PerfectStub {
                 try {
                     if (!ReplyValidator.validateReadReply(req, value, serverKey,
                             CipherUtils.keyFromBytes(req.getPublicKey().toByteArray()), serverKeys, quorumSize)) {
-                        readReliable(req, replyObserver, serverKeys, quorumSize);
+                        onInvalidReply(scope, attempt, () -> readReliable(req, replyObserver, serverKeys, quorumSize, attempt + 1));
                     } else {
+                        breaker.onSuccess();
                         replyObserver.onNext(value);
                     }
                 } catch (GeneralSecurityException e) {
-                    readReliable(req, replyObserver, serverKeys, quorumSize);
+                    onInvalidReply(scope, attempt, () -> readReliable(req, replyObserver, serverKeys, quorumSize, attempt + 1));
                 }
             }
 
@@ -114,30 +173,40 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                readReliable(req, replyObserver, serverKeys, quorumSize);
+                onFailedCall(scope, t, attempt, () -> readReliable(req, replyObserver, serverKeys, quorumSize, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
     }
 
     public void readGeneralReliable(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver,
                                     Map<String, PublicKey> serverKeys, int quorumSize) {
+        readGeneralReliable(request, replyObserver, serverKeys, quorumSize, 0);
+    }
+
+    private void readGeneralReliable(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver, Map<String, PublicKey> serverKeys, int quorumSize, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> readGeneralReliable(request, replyObserver, serverKeys, quorumSize, attempt + 1));
+            return;
+        }
         Contract.ReadRequest req = request.toBuilder()
                 .setNonce(UUID.randomUUID().toString())
                 .build();
-        stub.readGeneral(req, new StreamObserver<>() {
+        scope.fork().run(() -> callStub().readGeneral(req, new StreamObserver<>() {
             @Override
             public void onNext(Contract.ReadReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
                 //Or the server is byzantine (since we can't know must keep trying)
                 //Since the operation is idempotent resending to a correct server has no impact
                 if (!ReplyValidator.validateReadGeneralReply(req, value, serverKey, serverKeys, quorumSize)) {
-                    readGeneralReliable(req, replyObserver, serverKeys, quorumSize);
+                    onInvalidReply(scope, attempt, () -> readGeneralReliable(req, replyObserver, serverKeys, quorumSize, attempt + 1));
                 } else {
+                    breaker.onSuccess();
                     replyObserver.onNext(value);
                 }
             }
@@ -148,27 +217,122 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                readGeneralReliable(req, replyObserver, serverKeys, quorumSize);
+                onFailedCall(scope, t, attempt, () -> readGeneralReliable(req, replyObserver, serverKeys, quorumSize, attempt + 1));
+            }
+
+            @Override
+            public void onCompleted() {
+                replyObserver.onCompleted();
+            }
+        }));
+    }
+
+    /**
+     * Reads only the digest of the announcements (see {@link Contract.ReadRequest#getDigestOnly()})
+     */
+    public void readDigest(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver) {
+        readDigest(request, replyObserver, 0);
+    }
+
+    private void readDigest(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> readDigest(request, replyObserver, attempt + 1));
+            return;
+        }
+        Contract.ReadRequest req = request.toBuilder()
+                .setDigestOnly(true)
+                .setNonce(UUID.randomUUID().toString())
+                .build();
+        scope.fork().run(() -> callStub().read(req, new StreamObserver<>() {
+            @Override
+            public void onNext(Contract.ReadReply value) {
+                //If we can't verify the response then either the attacker changed it (must retry until he stops)
+                //Or the server is byzantine (since we can't know must keep trying)
+                //Since the operation is idempotent resending to a correct server has no impact
+                if (!ReplyValidator.validateDigestReply(req, value, serverKey)) {
+                    onInvalidReply(scope, attempt, () -> readDigest(req, replyObserver, attempt + 1));
+                } else {
+                    breaker.onSuccess();
+                    replyObserver.onNext(value);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                onFailedCall(scope, t, attempt, () -> readDigest(req, replyObserver, attempt + 1));
+            }
+
+            @Override
+            public void onCompleted() {
+                replyObserver.onCompleted();
+            }
+        }));
+    }
+
+    /**
+     * Reads only the digest of the announcements (see {@link Contract.ReadRequest#getDigestOnly()})
+     */
+    public void readGeneralDigest(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver) {
+        readGeneralDigest(request, replyObserver, 0);
+    }
+
+    private void readGeneralDigest(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> readGeneralDigest(request, replyObserver, attempt + 1));
+            return;
+        }
+        Contract.ReadRequest req = request.toBuilder()
+                .setDigestOnly(true)
+                .setNonce(UUID.randomUUID().toString())
+                .build();
+        scope.fork().run(() -> callStub().readGeneral(req, new StreamObserver<>() {
+            @Override
+            public void onNext(Contract.ReadReply value) {
+                //If we can't verify the response then either the attacker changed it (must retry until he stops)
+                //Or the server is byzantine (since we can't know must keep trying)
+                //Since the operation is idempotent resending to a correct server has no impact
+                if (!ReplyValidator.validateDigestReply(req, value, serverKey)) {
+                    onInvalidReply(scope, attempt, () -> readGeneralDigest(req, replyObserver, attempt + 1));
+                } else {
+                    breaker.onSuccess();
+                    replyObserver.onNext(value);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                onFailedCall(scope, t, attempt, () -> readGeneralDigest(req, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
     }
 
     public void postGeneral(Contract.Announcement announcement, StreamObserver<Contract.MacReply> replyObserver) {
+        postGeneral(announcement, replyObserver, 0);
+    }
 
-        stub.postGeneral(announcement, new StreamObserver<>() {
+    private void postGeneral(Contract.Announcement announcement, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> postGeneral(announcement, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().postGeneral(announcement, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
                 //Or the server is byzantine (since we can't know must keep trying)
                 //Since the operation is idempotent resending to a correct server has no impact
                 if (!MacVerifier.verifyMac(serverKey, value, announcement)) {
-                    postGeneral(announcement, replyObserver);
+                    onInvalidReply(scope, attempt, () -> postGeneral(announcement, replyObserver, attempt + 1));
                 } else {
+                    breaker.onSuccess();
                     replyObserver.onNext(value);
                 }
             }
@@ -179,26 +343,36 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                postGeneral(announcement, replyObserver);
+                onFailedCall(scope, t, attempt, () -> postGeneral(announcement, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
     }
 
     public void echoRegister(Contract.EchoRegister request, StreamObserver<Contract.MacReply> replyObserver) {
-        stub.echoRegister(request, new StreamObserver<>() {
+        echoRegister(request, replyObserver, 0);
+    }
+
+    private void echoRegister(Contract.EchoRegister request, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> echoRegister(request, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().echoRegister(request, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
                 //Or the server is byzantine (since we can't know must keep trying)
                 //Since the operation is idempotent resending to a correct server has no impact
                 if (!MacVerifier.verifyMac(request, value, serverKey)) {
-                    echoRegister(request, replyObserver);
+                    onInvalidReply(scope, attempt, () -> echoRegister(request, replyObserver, attempt + 1));
                 } else {
+                    breaker.onSuccess();
                     replyObserver.onNext(value);
                 }
             }
@@ -209,26 +383,36 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                echoRegister(request, replyObserver);
+                onFailedCall(scope, t, attempt, () -> echoRegister(request, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
     }
 
     public void echoAnnouncement(Contract.EchoAnnouncement request, StreamObserver<Contract.MacReply> replyObserver) {
-        stub.echoAnnouncement(request, new StreamObserver<>() {
+        echoAnnouncement(request, replyObserver, 0);
+    }
+
+    private void echoAnnouncement(Contract.EchoAnnouncement request, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> echoAnnouncement(request, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().echoAnnouncement(request, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
                 //Or the server is byzantine (since we can't know must keep trying)
                 //Since the operation is idempotent resending to a correct server has no impact
                 if (!MacVerifier.verifyMac(request, value, serverKey)) {
-                    echoAnnouncement(request, replyObserver);
+                    onInvalidReply(scope, attempt, () -> echoAnnouncement(request, replyObserver, attempt + 1));
                 } else {
+                    breaker.onSuccess();
                     replyObserver.onNext(value);
                 }
             }
@@ -239,26 +423,36 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                echoAnnouncement(request, replyObserver);
+                onFailedCall(scope, t, attempt, () -> echoAnnouncement(request, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
     }
 
     public void echoAnnouncementGeneral(Contract.EchoAnnouncement request, StreamObserver<Contract.MacReply> replyObserver) {
-        stub.echoAnnouncementGeneral(request, new StreamObserver<>() {
+        echoAnnouncementGeneral(request, replyObserver, 0);
+    }
+
+    private void echoAnnouncementGeneral(Contract.EchoAnnouncement request, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> echoAnnouncementGeneral(request, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().echoAnnouncementGeneral(request, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
                 //Or the server is byzantine (since we can't know must keep trying)
                 //Since the operation is idempotent resending to a correct server has no impact
                 if (!MacVerifier.verifyMac(request, value, serverKey)) {
-                    echoAnnouncementGeneral(request, replyObserver);
+                    onInvalidReply(scope, attempt, () -> echoAnnouncementGeneral(request, replyObserver, attempt + 1));
                 } else {
+                    breaker.onSuccess();
                     replyObserver.onNext(value);
                 }
             }
@@ -269,26 +463,36 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                echoAnnouncementGeneral(request, replyObserver);
+                onFailedCall(scope, t, attempt, () -> echoAnnouncementGeneral(request, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
     }
 
     public void readyRegister(Contract.ReadyRegister request, StreamObserver<Contract.MacReply> replyObserver) {
-        stub.readyRegister(request, new StreamObserver<>() {
+        readyRegister(request, replyObserver, 0);
+    }
+
+    private void readyRegister(Contract.ReadyRegister request, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> readyRegister(request, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().readyRegister(request, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
                 //Or the server is byzantine (since we can't know must keep trying)
                 //Since the operation is idempotent resending to a correct server has no impact
                 if (!MacVerifier.verifyMac(request, value, serverKey)) {
-                    readyRegister(request, replyObserver);
+                    onInvalidReply(scope, attempt, () -> readyRegister(request, replyObserver, attempt + 1));
                 } else {
+                    breaker.onSuccess();
                     replyObserver.onNext(value);
                 }
             }
@@ -299,26 +503,36 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                readyRegister(request, replyObserver);
+                onFailedCall(scope, t, attempt, () -> readyRegister(request, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
     }
 
     public void readyAnnouncement(Contract.ReadyAnnouncement request, StreamObserver<Contract.MacReply> replyObserver) {
-        stub.readyAnnouncement(request, new StreamObserver<>() {
+        readyAnnouncement(request, replyObserver, 0);
+    }
+
+    private void readyAnnouncement(Contract.ReadyAnnouncement request, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> readyAnnouncement(request, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().readyAnnouncement(request, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
                 //Or the server is byzantine (since we can't know must keep trying)
                 //Since the operation is idempotent resending to a correct server has no impact
                 if (!MacVerifier.verifyMac(request, value, serverKey)) {
-                    readyAnnouncement(request, replyObserver);
+                    onInvalidReply(scope, attempt, () -> readyAnnouncement(request, replyObserver, attempt + 1));
                 } else {
+                    breaker.onSuccess();
                     replyObserver.onNext(value);
                 }
             }
@@ -329,26 +543,36 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                readyAnnouncement(request, replyObserver);
+                onFailedCall(scope, t, attempt, () -> readyAnnouncement(request, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
     }
 
     public void readyAnnouncementGeneral(Contract.ReadyAnnouncement request, StreamObserver<Contract.MacReply> replyObserver) {
-        stub.readyAnnouncementGeneral(request, new StreamObserver<>() {
+        readyAnnouncementGeneral(request, replyObserver, 0);
+    }
+
+    private void readyAnnouncementGeneral(Contract.ReadyAnnouncement request, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> readyAnnouncementGeneral(request, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().readyAnnouncementGeneral(request, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
                 //Or the server is byzantine (since we can't know must keep trying)
                 //Since the operation is idempotent resending to a correct server has no impact
                 if (!MacVerifier.verifyMac(request, value, serverKey)) {
-                    readyAnnouncementGeneral(request, replyObserver);
+                    onInvalidReply(scope, attempt, () -> readyAnnouncementGeneral(request, replyObserver, attempt + 1));
                 } else {
+                    breaker.onSuccess();
                     replyObserver.onNext(value);
                 }
             }
@@ -359,14 +583,134 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                readyAnnouncementGeneral(request, replyObserver);
+                onFailedCall(scope, t, attempt, () -> readyAnnouncementGeneral(request, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
+    }
+
+    public void postBatch(Contract.AnnouncementBatch batch, StreamObserver<Contract.MacReply> replyObserver) {
+        postBatch(batch, replyObserver, 0);
+    }
+
+    private void postBatch(Contract.AnnouncementBatch batch, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> postBatch(batch, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().postBatch(batch, new StreamObserver<>() {
+            @Override
+            public void onNext(Contract.MacReply value) {
+                //If we can't verify the response then either the attacker changed it (must retry until he stops)
+                //Or the server is byzantine (since we can't know must keep trying)
+                //Since the operation is idempotent resending to a correct server has no impact
+                if (!MacVerifier.verifyMac(serverKey, value, batch)) {
+                    onInvalidReply(scope, attempt, () -> postBatch(batch, replyObserver, attempt + 1));
+                } else {
+                    breaker.onSuccess();
+                    replyObserver.onNext(value);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                //If an error occurred it is either a byzantine client (we don't care about him)
+                //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
+                //A byzantine server (since we can't know, we must retry still)
+                //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
+                onFailedCall(scope, t, attempt, () -> postBatch(batch, replyObserver, attempt + 1));
+            }
+
+            @Override
+            public void onCompleted() {
+                replyObserver.onCompleted();
+            }
+        }));
+    }
+
+    public void echoAnnouncementBatch(Contract.EchoAnnouncementBatch request, StreamObserver<Contract.MacReply> replyObserver) {
+        echoAnnouncementBatch(request, replyObserver, 0);
+    }
+
+    private void echoAnnouncementBatch(Contract.EchoAnnouncementBatch request, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> echoAnnouncementBatch(request, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().echoAnnouncementBatch(request, new StreamObserver<>() {
+            @Override
+            public void onNext(Contract.MacReply value) {
+                //If we can't verify the response then either the attacker changed it (must retry until he stops)
+                //Or the server is byzantine (since we can't know must keep trying)
+                //Since the operation is idempotent resending to a correct server has no impact
+                if (!MacVerifier.verifyMac(request, value, serverKey)) {
+                    onInvalidReply(scope, attempt, () -> echoAnnouncementBatch(request, replyObserver, attempt + 1));
+                } else {
+                    breaker.onSuccess();
+                    replyObserver.onNext(value);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                //If an error occurred it is either a byzantine client (we don't care about him)
+                //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
+                //A byzantine server (since we can't know, we must retry still)
+                //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
+                onFailedCall(scope, t, attempt, () -> echoAnnouncementBatch(request, replyObserver, attempt + 1));
+            }
+
+            @Override
+            public void onCompleted() {
+                replyObserver.onCompleted();
+            }
+        }));
+    }
+
+    public void readyAnnouncementBatch(Contract.ReadyAnnouncementBatch request, StreamObserver<Contract.MacReply> replyObserver) {
+        readyAnnouncementBatch(request, replyObserver, 0);
+    }
+
+    private void readyAnnouncementBatch(Contract.ReadyAnnouncementBatch request, StreamObserver<Contract.MacReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> readyAnnouncementBatch(request, replyObserver, attempt + 1));
+            return;
+        }
+        scope.fork().run(() -> callStub().readyAnnouncementBatch(request, new StreamObserver<>() {
+            @Override
+            public void onNext(Contract.MacReply value) {
+                //If we can't verify the response then either the attacker changed it (must retry until he stops)
+                //Or the server is byzantine (since we can't know must keep trying)
+                //Since the operation is idempotent resending to a correct server has no impact
+                if (!MacVerifier.verifyMac(request, value, serverKey)) {
+                    onInvalidReply(scope, attempt, () -> readyAnnouncementBatch(request, replyObserver, attempt + 1));
+                } else {
+                    breaker.onSuccess();
+                    replyObserver.onNext(value);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                //If an error occurred it is either a byzantine client (we don't care about him)
+                //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
+                //A byzantine server (since we can't know, we must retry still)
+                //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
+                onFailedCall(scope, t, attempt, () -> readyAnnouncementBatch(request, replyObserver, attempt + 1));
+            }
+
+            @Override
+            public void onCompleted() {
+                replyObserver.onCompleted();
+            }
+        }));
     }
 
     public PublicKey getServerKey() {
@@ -377,13 +721,39 @@ public class PerfectStub {
         return Base64.getEncoder().encodeToString(serverKey.getEncoded());
     }
 
+    /**
+     * @return number of calls resent after a failure or an invalid reply
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * @return number of calls held back because the server's circuit was open
+     */
+    public long getDeferredCount() {
+        return deferred.get();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return breaker.getState();
+    }
+
     @Deprecated
     public void read(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver) {
+        read(request, replyObserver, 0);
+    }
+
+    private void read(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> read(request, replyObserver, attempt + 1));
+            return;
+        }
         Contract.ReadRequest req = request.toBuilder()
                 .setNonce(UUID.randomUUID().toString())
                 .build();
-
-        stub.read(req, new StreamObserver<>() {
+        scope.fork().run(() -> callStub().read(req, new StreamObserver<>() {
             @Override
             public void onNext(Contract.ReadReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
@@ -391,12 +761,13 @@ public class PerfectStub {
                 //Since the operation is idempotent resending to a correct server has no impact
                 try {
                     if (!ReplyValidator.validateReadReply(req, value, serverKey, CipherUtils.keyFromBytes(req.getPublicKey().toByteArray()))) {
-                        read(req, replyObserver);
+                        onInvalidReply(scope, attempt, () -> read(req, replyObserver, attempt + 1));
                     } else {
+                        breaker.onSuccess();
                         replyObserver.onNext(value);
                     }
                 } catch (GeneralSecurityException e) {
-                    read(req, replyObserver);
+                    onInvalidReply(scope, attempt, () -> read(req, replyObserver, attempt + 1));
                 }
             }
 
@@ -406,30 +777,40 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                read(req, replyObserver);
+                onFailedCall(scope, t, attempt, () -> read(req, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
     }
 
     @Deprecated
     public void readGeneral(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver) {
+        readGeneral(request, replyObserver, 0);
+    }
+
+    private void readGeneral(Contract.ReadRequest request, StreamObserver<Contract.ReadReply> replyObserver, int attempt) {
+        var scope = Context.current();
+        if (!breaker.allowRequest()) {
+            defer(scope, attempt, () -> readGeneral(request, replyObserver, attempt + 1));
+            return;
+        }
         Contract.ReadRequest req = request.toBuilder()
                 .setNonce(UUID.randomUUID().toString())
                 .build();
-        stub.readGeneral(req, new StreamObserver<>() {
+        scope.fork().run(() -> callStub().readGeneral(req, new StreamObserver<>() {
             @Override
             public void onNext(Contract.ReadReply value) {
                 //If we can't verify the response then either the attacker changed it (must retry until he stops)
                 //Or the server is byzantine (since we can't know must keep trying)
                 //Since the operation is idempotent resending to a correct server has no impact
                 if (!ReplyValidator.validateReadGeneralReply(req, value, serverKey)) {
-                    readGeneral(req, replyObserver);
+                    onInvalidReply(scope, attempt, () -> readGeneral(req, replyObserver, attempt + 1));
                 } else {
+                    breaker.onSuccess();
                     replyObserver.onNext(value);
                 }
             }
@@ -440,13 +821,75 @@ public class PerfectStub {
                 //The attacker changed the integrity parameters (we must keep trying until the attacker gives up)
                 //A byzantine server (since we can't know, we must retry still)
                 //Some previous post this depends on or a register hasn't reached the server, we must also retry until it does
-                readGeneral(req, replyObserver);
+                onFailedCall(scope, t, attempt, () -> readGeneral(req, replyObserver, attempt + 1));
             }
 
             @Override
             public void onCompleted() {
                 replyObserver.onCompleted();
             }
-        });
+        }));
+    }
+
+    /**
+     * Stub for a call the breaker let through. A probe gets a deadline, so a server that never answers
+     * can't keep the circuit half open (the deadline is a failure that reopens it)
+     */
+    private ServiceDPASGrpc.ServiceDPASStub callStub() {
+        if (breaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+            return stub.withDeadlineAfter(policy.getProbeTimeoutMillis(), TimeUnit.MILLISECONDS);
+        }
+        return stub;
+    }
+
+    private void onInvalidReply(Context scope, int attempt, Runnable retry) {
+        breaker.onFailure();
+        retry(scope, attempt, retry);
+    }
+
+    private void onFailedCall(Context scope, Throwable t, int attempt, Runnable retry) {
+        if (scope.isCancelled()) {
+            //Whoever made the call doesn't need it anymore
+            return;
+        }
+        if (isUnreachable(t)) {
+            breaker.onFailure();
+        } else {
+            //The server answered, even if with an error
+            breaker.onSuccess();
+        }
+        retry(scope, attempt, retry);
+    }
+
+    private void retry(Context scope, int attempt, Runnable call) {
+        if (schedule(scope, policy.delayMillis(attempt), call)) {
+            retries.incrementAndGet();
+        }
+    }
+
+    private void defer(Context scope, int attempt, Runnable call) {
+        if (schedule(scope, Math.max(1, Math.max(breaker.millisUntilProbe(), policy.delayMillis(attempt))), call)) {
+            deferred.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return false if the caller's context was cancelled (no more retries)
+     */
+    private static boolean schedule(Context scope, long delayMillis, Runnable call) {
+        if (scope.isCancelled()) {
+            return false;
+        }
+        RETRY_SCHEDULER.schedule(scope.wrap(() -> {
+            if (!scope.isCancelled()) {
+                call.run();
+            }
+        }), delayMillis, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
+    private static boolean isUnreachable(Throwable t) {
+        var code = Status.fromThrowable(t).getCode();
+        return code == Status.Code.UNAVAILABLE || code == Status.Code.DEADLINE_EXCEEDED;
     }
 }
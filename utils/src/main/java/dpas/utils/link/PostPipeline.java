@@ -0,0 +1,240 @@
+package dpas.utils.link;
+
+import dpas.common.domain.exception.CommonDomainException;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Posts to a single board made by this client.
+ * Sequence numbers are reserved locally in submission order, so several posts can be in flight at once
+ * (up to the window), the board's seq is only read when it isn't known.
+ * A server holds a post whose predecessor it hasn't delivered yet until it is delivered (and the perfect link retries
+ * it if that takes too long), so posts in the window are always eventually accepted in order.
+ * Requests are built (and signed) one at a time in seq order, outside the pipeline's lock: on the caller's thread,
+ * or on the builder executor once a reply frees a slot (never on the transport's callback threads).
+ * Cancelling a post cancels its calls, or drops it if it wasn't sent yet
+ */
+class PostPipeline {
+
+    @FunctionalInterface
+    interface SeqCall<T> {
+        /**
+         * Builds the request with the given seq (called in seq order) and sends it
+         */
+        CompletableFuture<T> apply(long seq) throws GeneralSecurityException, CommonDomainException;
+    }
+
+    private final int window;
+    private final Supplier<CompletableFuture<Long>> readSeq;
+    private final boolean rereadWhenIdle;
+    private final Executor builder;
+
+    private final Deque<Pending<?>> waiting = new ArrayDeque<>();
+    private long nextSeq;
+    private boolean seqKnown = false;
+    private boolean reading = false;
+    private boolean building = false;
+    private int outstanding = 0;
+
+    /**
+     * @param readSeq        reads the next seq of the board from the servers
+     * @param rereadWhenIdle forget the seq once no posts are outstanding (boards with several writers)
+     */
+    PostPipeline(int window, Supplier<CompletableFuture<Long>> readSeq, boolean rereadWhenIdle) {
+        this(window, readSeq, rereadWhenIdle, Runnable::run);
+    }
+
+    /**
+     * @param builder runs the builds started by replies (of the board's seq or of posts)
+     */
+    PostPipeline(int window, Supplier<CompletableFuture<Long>> readSeq, boolean rereadWhenIdle, Executor builder) {
+        this.window = window;
+        this.readSeq = readSeq;
+        this.rereadWhenIdle = rereadWhenIdle;
+        this.builder = builder;
+    }
+
+    <T> CompletableFuture<T> submit(SeqCall<T> call) {
+        return submit(1, call);
+    }
+
+    /**
+     * Reserves {@code count} consecutive seqs for a single call (a batch), the call is given the first one
+     */
+    <T> CompletableFuture<T> submit(int count, SeqCall<T> call) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Must reserve at least one seq");
+        }
+        var pending = new Pending<>(call, count);
+        synchronized (this) {
+            waiting.add(pending);
+        }
+        pump();
+        return pending.result;
+    }
+
+    /**
+     * @return the seq the next post would get, without reserving it
+     */
+    CompletableFuture<Long> peek() {
+        var pending = new Pending<Long>(CompletableFuture::completedFuture, 0);
+        synchronized (this) {
+            waiting.add(pending);
+        }
+        pump();
+        return pending.result;
+    }
+
+    /**
+     * Seq seen in a read of the board
+     */
+    synchronized void observe(long seq) {
+        if (outstanding == 0 && waiting.isEmpty() && !building) {
+            nextSeq = seq;
+            seqKnown = true;
+        } else if (seqKnown) {
+            nextSeq = Math.max(nextSeq, seq);
+        }
+    }
+
+    synchronized int getOutstanding() {
+        return outstanding;
+    }
+
+    /**
+     * Builds the waiting posts that fit in the window, only one caller builds at a time
+     * (the others leave their posts to it)
+     */
+    private void pump() {
+        while (true) {
+            Pending<?> pending = null;
+            long seq = 0;
+            synchronized (this) {
+                if (building || reading || waiting.isEmpty()) {
+                    return;
+                }
+                if (!seqKnown) {
+                    reading = true;
+                } else if (outstanding >= window && waiting.peek().count > 0) {
+                    return;
+                } else {
+                    pending = waiting.poll();
+                    seq = nextSeq;
+                    building = true;
+                }
+            }
+            if (pending == null) {
+                read();
+                return;
+            }
+            if (pending.result.isDone()) {
+                //Cancelled while waiting, it doesn't take a seq
+                synchronized (this) {
+                    building = false;
+                }
+                continue;
+            }
+            Runnable track = null;
+            Exception failure = null;
+            try {
+                track = pending.send(seq);
+            } catch (GeneralSecurityException | CommonDomainException e) {
+                failure = e;
+            }
+            synchronized (this) {
+                building = false;
+                //Only consume the seq if the request could be built, otherwise the next posts would wait forever
+                if (track != null && pending.count > 0) {
+                    nextSeq = seq + pending.count;
+                    outstanding++;
+                }
+            }
+            if (track != null) {
+                track.run();
+            } else {
+                pending.result.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void read() {
+        readSeq.get().whenComplete((seq, t) -> {
+            synchronized (this) {
+                reading = false;
+                if (t == null) {
+                    nextSeq = seq;
+                    seqKnown = true;
+                }
+            }
+            if (t != null) {
+                failWaiting(t);
+            }
+            builder.execute(this::pump);
+        });
+    }
+
+    private void done(Throwable t) {
+        synchronized (this) {
+            outstanding--;
+            if (t != null || (rereadWhenIdle && outstanding == 0)) {
+                //Don't trust the local seq anymore, read it again before the next post
+                seqKnown = false;
+            }
+        }
+        builder.execute(this::pump);
+    }
+
+    private void failWaiting(Throwable t) {
+        List<Pending<?>> failed;
+        synchronized (this) {
+            failed = new ArrayList<>(waiting);
+            waiting.clear();
+        }
+        failed.forEach(pending -> pending.result.completeExceptionally(t));
+    }
+
+    private final class Pending<T> {
+        private final SeqCall<T> call;
+        private final int count;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Pending(SeqCall<T> call, int count) {
+            this.call = call;
+            this.count = count;
+        }
+
+        /**
+         * @return tracks the completion of the call (must run outside the pipeline's lock)
+         */
+        private Runnable send(long seq) throws GeneralSecurityException, CommonDomainException {
+            var sent = call.apply(seq);
+            return () -> track(sent);
+        }
+
+        private void track(CompletableFuture<T> sent) {
+            result.whenComplete((value, t) -> {
+                if (result.isCancelled()) {
+                    sent.cancel(false);
+                }
+            });
+            sent.whenComplete((value, t) -> {
+                //Peeks don't take a slot of the window
+                if (count > 0) {
+                    done(t);
+                }
+                if (t != null) {
+                    result.completeExceptionally(t);
+                } else {
+                    result.complete(value);
+                }
+            });
+        }
+    }
+}
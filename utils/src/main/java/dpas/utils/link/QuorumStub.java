@@ -3,169 +3,216 @@ package dpas.utils.link;
 import dpas.grpc.contract.Contract;
 import dpas.grpc.contract.Contract.Announcement;
 import dpas.utils.auth.CipherUtils;
+import dpas.utils.auth.MacGenerator;
+import io.grpc.Context;
 import io.grpc.stub.StreamObserver;
 
+import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.security.PublicKey;
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Sends each request to the servers and completes once a quorum of them replied.
+ * Without a latency tracker every server is sent the request. With one, only the quorum of fastest healthy servers is,
+ * and the others are only called (hedged) if the quorum wasn't reached after the tracker's hedge delay.
+ * The retries to the servers that haven't replied stop as soon as the quorum is reached
+ */
 public class QuorumStub {
+    /**
+     * Hedges only start the other calls (asynchronously), so a single thread is shared by all quorum stubs
+     */
+    private static final ScheduledExecutorService HEDGE_SCHEDULER = Executors.newSingleThreadScheduledExecutor(task -> {
+        var thread = new Thread(task, "dpas-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * How long a digest read waits for the full reply once a quorum of digests arrived before falling back
+     */
+    static final long FULL_REPLY_GRACE_MILLIS = 2000;
+
     private final List<PerfectStub> stubs;
     private final int quorumSize;
     private final Map<String, PublicKey> serverKeys;
+    private final LatencyTracker tracker;
+    private final AtomicLong hedges = new AtomicLong();
 
     public QuorumStub(List<PerfectStub> stubs, int numFaults) {
+        this(stubs, numFaults, null);
+    }
+
+    /**
+     * @param tracker latencies used to call the fastest servers first, null to always call every server
+     */
+    public QuorumStub(List<PerfectStub> stubs, int numFaults, LatencyTracker tracker) {
         this.stubs = stubs;
         this.quorumSize = 2 * numFaults + 1;
+        this.tracker = tracker;
         this.serverKeys = new HashMap<>();
         for (var stub : stubs) {
             this.serverKeys.put(stub.getServerId(), stub.getServerKey());
         }
     }
 
+    public CompletableFuture<Void> registerAsync(Contract.RegisterRequest request) {
+        return map(this.<Contract.MacReply>quorumCall((stub, observer) -> stub.register(request, observer)), replies -> null);
+    }
 
-    public void register(Contract.RegisterRequest request) throws InterruptedException {
-        final CountDownLatch latch = new CountDownLatch(quorumSize);
-        for (PerfectStub stub : stubs) {
-            stub.register(request, new StreamObserver<>() {
-                @Override
-                public void onNext(Contract.MacReply value) {
-                    //Perfect Stub already guarantees the reply is valid
-                    synchronized (latch) {
-                        if (latch.getCount() != 0) {
-                            latch.countDown();
-                        }
-                    }
-                }
+    public CompletableFuture<Void> postAsync(Announcement announcement) throws GeneralSecurityException {
+        var ciphered = cipherForServers(announcement);
+        return map(this.<Contract.MacReply>quorumCall((stub, observer) -> stub.post(ciphered.get(stub), observer)), replies -> null);
+    }
 
-                @Override
-                public void onError(Throwable t) {
-                }
+    public CompletableFuture<Void> postGeneralAsync(Announcement announcement) throws GeneralSecurityException {
+        var ciphered = cipherForServers(announcement);
+        return map(this.<Contract.MacReply>quorumCall((stub, observer) -> stub.postGeneral(ciphered.get(stub), observer)), replies -> null);
+    }
 
-                @Override
-                public void onCompleted() {
-                }
-            });
+    public CompletableFuture<Void> postBatchAsync(List<Announcement> announcements) throws GeneralSecurityException {
+        var ciphered = new HashMap<PerfectStub, Contract.AnnouncementBatch.Builder>();
+        for (var announcement : announcements) {
+            cipherForServers(announcement).forEach((stub, a) ->
+                    ciphered.computeIfAbsent(stub, key -> Contract.AnnouncementBatch.newBuilder()).addAnnouncements(a));
         }
-        latch.await();
+        return map(this.<Contract.MacReply>quorumCall((stub, observer) -> stub.postBatch(ciphered.get(stub).build(), observer)), replies -> null);
     }
 
-    public void post(Announcement announcement) throws GeneralSecurityException, InterruptedException {
-        final CountDownLatch latch = new CountDownLatch(quorumSize);
-        for (PerfectStub stub : stubs) {
-            Announcement a = announcement
-                    .toBuilder()
-                    .setMessage(CipherUtils.cipherAndEncode(announcement.getMessage().getBytes(), stub.getServerKey()))
-                    .build();
-            stub.post(a, new StreamObserver<>() {
-                @Override
-                public void onNext(Contract.MacReply value) {
-                    //Perfect Stub already guarantees the reply is valid
-                    synchronized (latch) {
-                        if (latch.getCount() != 0) {
-                            latch.countDown();
-                        }
-                    }
-                }
-
-                @Override
-                public void onError(Throwable t) {
-                }
+    public CompletableFuture<Contract.ReadReply> readReliableAsync(Contract.ReadRequest request) {
+        return map(readReliableQuorumAsync(request), QuorumStub::mostRecent);
+    }
 
-                @Override
-                public void onCompleted() {
-                }
-            });
-        }
-        latch.await();
+    /**
+     * Same as {@link #readReliableAsync} but completes with every reply of the quorum,
+     * so the caller can tell whether the servers agreed (see {@link #isUnanimous})
+     */
+    public CompletableFuture<List<Contract.ReadReply>> readReliableQuorumAsync(Contract.ReadRequest request) {
+        return this.quorumCall((stub, observer) -> stub.readReliable(request, observer, serverKeys, quorumSize));
     }
 
-    public void postGeneral(Announcement announcement) throws GeneralSecurityException, InterruptedException {
-        final CountDownLatch latch = new CountDownLatch(quorumSize);
-        for (PerfectStub stub : stubs) {
-            Announcement a = announcement
-                    .toBuilder()
-                    .setMessage(CipherUtils.cipherAndEncode(announcement.getMessage().getBytes(), stub.getServerKey()))
-                    .build();
-            stub.postGeneral(a, new StreamObserver<>() {
-                @Override
-                public void onNext(Contract.MacReply value) {
-                    //Perfect Stub already guarantees the reply is valid
-                    synchronized (latch) {
-                        if (latch.getCount() != 0) {
-                            latch.countDown();
-                        }
-                    }
-                }
+    /**
+     * Same as {@link #readReliableQuorumAsync} but only one server sends the announcements, the others send their digest.
+     * If a quorum agrees with that server's announcements they are the only reply, otherwise (or if that server
+     * doesn't answer) the announcements of a quorum are read
+     */
+    public CompletableFuture<List<Contract.ReadReply>> readReliableDigestAsync(Contract.ReadRequest request) {
+        return digestCall((stub, observer) -> stub.readReliable(request, observer, serverKeys, quorumSize),
+                (stub, observer) -> stub.readDigest(request, observer),
+                () -> readReliableQuorumAsync(request));
+    }
 
-                @Override
-                public void onError(Throwable t) {
-                }
+    /**
+     * Same as {@link #readReliableDigestAsync} for the general board
+     */
+    public CompletableFuture<List<Contract.ReadReply>> readGeneralReliableDigestAsync(Contract.ReadRequest request) {
+        return digestCall((stub, observer) -> stub.readGeneralReliable(request, observer, serverKeys, quorumSize),
+                (stub, observer) -> stub.readGeneralDigest(request, observer),
+                () -> this.quorumCall((stub, observer) -> stub.readGeneralReliable(request, observer, serverKeys, quorumSize)));
+    }
 
-                @Override
-                public void onCompleted() {
-                }
-            });
-        }
-        latch.await();
+    public CompletableFuture<Contract.ReadReply> readGeneralReliableAsync(Contract.ReadRequest request) {
+        return map(this.<Contract.ReadReply>quorumCall((stub, observer) ->
+                stub.readGeneralReliable(request, observer, serverKeys, quorumSize)), QuorumStub::mostRecent);
     }
 
-    @Deprecated
-    public Contract.ReadReply read(Contract.ReadRequest request) throws InterruptedException {
+    public void register(Contract.RegisterRequest request) throws InterruptedException {
+        await(registerAsync(request));
+    }
 
-        final CountDownLatch latch = new CountDownLatch(quorumSize);
+    public void post(Announcement announcement) throws GeneralSecurityException, InterruptedException {
+        await(postAsync(announcement));
+    }
 
-        final List<Contract.ReadReply> replies = new ArrayList<>();
+    public void postBatch(List<Announcement> announcements) throws GeneralSecurityException, InterruptedException {
+        await(postBatchAsync(announcements));
+    }
 
-        for (PerfectStub stub : stubs) {
-            stub.read(request, new StreamObserver<>() {
-                @Override
-                public void onNext(Contract.ReadReply value) {
-                    //Perfect Stub already guarantees the reply is valid
-                    synchronized (latch) {
-                        if (latch.getCount() != 0) {
-                            replies.add(value);
-                            latch.countDown();
-                        }
-                    }
-                }
+    public void postGeneral(Announcement announcement) throws GeneralSecurityException, InterruptedException {
+        await(postGeneralAsync(announcement));
+    }
 
-                @Override
-                public void onError(Throwable t) {
-                }
+    @Deprecated
+    public Contract.ReadReply read(Contract.ReadRequest request) throws InterruptedException {
+        return await(this.<Contract.ReadReply>quorumCall((stub, observer) -> stub.read(request, observer)).thenApply(QuorumStub::mostRecent));
+    }
 
-                @Override
-                public void onCompleted() {
-                }
-            });
-        }
-        latch.await();
+    public Contract.ReadReply readReliable(Contract.ReadRequest request) throws InterruptedException {
+        return await(readReliableAsync(request));
+    }
 
-        return replies
-                .stream()
-                .sorted(Comparator.comparing(a -> -a.getAnnouncementsCount()))
-                .max(Comparator.comparing(a -> getSeq(a.getAnnouncementsList())))
-                .get();
+    @Deprecated
+    public Contract.ReadReply readGeneral(Contract.ReadRequest request) throws InterruptedException {
+        return await(this.<Contract.ReadReply>quorumCall((stub, observer) -> stub.readGeneral(request, observer)).thenApply(QuorumStub::mostRecent));
     }
 
-    public Contract.ReadReply readReliable(Contract.ReadRequest request) throws InterruptedException {
+    public Contract.ReadReply readGeneralReliable(Contract.ReadRequest request) throws InterruptedException {
+        return await(readGeneralReliableAsync(request));
+    }
 
-        final CountDownLatch latch = new CountDownLatch(quorumSize);
+    public static long getSeq(List<Announcement> a) {
+        if (a.size() == 0) {
+            return 0;
+        } else {
+            return a.get(a.size() - 1).getSeq() + 1;
+        }
+    }
 
-        final List<Contract.ReadReply> replies = new ArrayList<>();
+    /**
+     * @return number of requests for which the remaining servers had to be called
+     */
+    public long getHedgeCount() {
+        return hedges.get();
+    }
 
-        for (PerfectStub stub : stubs) {
-            stub.readReliable(request, new StreamObserver<>() {
+    /**
+     * Calls the servers in a new cancellable context, the context is cancelled once the future completes
+     * (quorum reached or cancelled by the caller) which stops the perfect links from retrying
+     */
+    private <Rep> CompletableFuture<List<Rep>> quorumCall(BiConsumer<PerfectStub, StreamObserver<Rep>> call) {
+        final CompletableFuture<List<Rep>> future = new CompletableFuture<>();
+        final List<Rep> replies = new ArrayList<>(quorumSize);
+        final Context.CancellableContext context = Context.current().withCancellation();
+        final List<PerfectStub> order = callOrder();
+        final int first = tracker == null ? order.size() : Math.min(quorumSize, order.size());
+        //When each server was called (0 if it wasn't) and whether it already replied
+        final AtomicLongArray calledAt = new AtomicLongArray(order.size());
+        final AtomicIntegerArray replied = new AtomicIntegerArray(order.size());
+
+        final IntConsumer send = i -> {
+            PerfectStub stub = order.get(i);
+            calledAt.set(i, System.nanoTime());
+            call.accept(stub, new StreamObserver<>() {
                 @Override
-                public void onNext(Contract.ReadReply value) {
+                public void onNext(Rep value) {
+                    if (tracker != null && replied.compareAndSet(i, 0, 1)) {
+                        tracker.record(stub.getServerId(), System.nanoTime() - calledAt.get(i));
+                    }
                     //Perfect Stub already guarantees the reply is valid
-                    synchronized (latch) {
-                        if (latch.getCount() != 0) {
-                            replies.add(value);
-                            latch.countDown();
+                    synchronized (replies) {
+                        if (replies.size() == quorumSize) {
+                            return;
+                        }
+                        replies.add(value);
+                        if (replies.size() != quorumSize) {
+                            return;
                         }
                     }
+                    future.complete(List.copyOf(replies));
                 }
 
                 @Override
@@ -175,36 +222,108 @@ public class QuorumStub {
                 @Override
                 public void onCompleted() {
                 }
-            }, serverKeys, quorumSize);
+            });
+        };
+
+        future.whenComplete((value, t) -> {
+            context.cancel(null);
+            if (tracker != null) {
+                long now = System.nanoTime();
+                for (int i = 0; i < order.size(); i++) {
+                    long start = calledAt.get(i);
+                    if (start != 0 && replied.get(i) == 0) {
+                        tracker.recordPending(order.get(i).getServerId(), now - start);
+                    }
+                }
+            }
+        });
+        context.run(() -> {
+            for (int i = 0; i < first; i++) {
+                send.accept(i);
+            }
+        });
+        if (first < order.size() && !future.isDone()) {
+            var hedge = HEDGE_SCHEDULER.schedule(context.wrap(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                hedges.incrementAndGet();
+                for (int i = first; i < order.size(); i++) {
+                    send.accept(i);
+                }
+            }), tracker.hedgeDelayMillis(), TimeUnit.MILLISECONDS);
+            future.whenComplete((value, t) -> hedge.cancel(false));
         }
-        latch.await();
-
-        return replies
-                .stream()
-                .sorted(Comparator.comparing(a -> -a.getAnnouncementsCount()))
-                .max(Comparator.comparing(a -> getSeq(a.getAnnouncementsList())))
-                .get();
+        return future;
     }
 
+    /**
+     * Reads the full reply from the first server in call order and the digest from the others.
+     * Completes with the full reply once quorumSize - 1 digests match it, with the fallback once a digest doesn't
+     * or once the full reply is still missing FULL_REPLY_GRACE_MILLIS after a quorum of digests arrived
+     * (the server sending the announcements may be faulty)
+     */
+    private CompletableFuture<List<Contract.ReadReply>> digestCall(BiConsumer<PerfectStub, StreamObserver<Contract.ReadReply>> fullCall,
+                                                                  BiConsumer<PerfectStub, StreamObserver<Contract.ReadReply>> digestCall,
+                                                                  Supplier<CompletableFuture<List<Contract.ReadReply>>> fallback) {
+        //The agreed reply, null if the fallback is needed
+        final CompletableFuture<Contract.ReadReply> decision = new CompletableFuture<>();
+        final Context.CancellableContext context = Context.current().withCancellation();
+        decision.whenComplete((value, t) -> context.cancel(null));
+        final List<PerfectStub> order = callOrder();
+        final List<byte[]> digests = new ArrayList<>(order.size() - 1);
+        final Contract.ReadReply[] full = new Contract.ReadReply[1];
+        final AtomicBoolean graceStarted = new AtomicBoolean();
+
+        final Runnable decide = () -> {
+            Contract.ReadReply reply;
+            synchronized (digests) {
+                reply = full[0];
+                if (reply == null) {
+                    //A quorum answered but the server sending the announcements didn't, give it a while before falling back
+                    if (digests.size() >= Math.min(quorumSize, order.size() - 1) && graceStarted.compareAndSet(false, true)) {
+                        var grace = HEDGE_SCHEDULER.schedule(() -> {
+                            synchronized (digests) {
+                                if (full[0] != null) {
+                                    return;
+                                }
+                            }
+                            if (decision.complete(null)) {
+                                hedges.incrementAndGet();
+                            }
+                        }, FULL_REPLY_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+                        decision.whenComplete((value, t) -> grace.cancel(false));
+                    }
+                    return;
+                }
+                byte[] expected;
+                try {
+                    expected = MacGenerator.generateDigest(reply.getAnnouncementsList());
+                } catch (GeneralSecurityException | IOException e) {
+                    decision.complete(null);
+                    return;
+                }
+                for (byte[] digest : digests) {
+                    if (!Arrays.equals(expected, digest)) {
+                        decision.complete(null);
+                        return;
+                    }
+                }
+                if (digests.size() < quorumSize - 1) {
+                    return;
+                }
+            }
+            decision.complete(reply);
+        };
 
-    @Deprecated
-    public Contract.ReadReply readGeneral(Contract.ReadRequest request) throws InterruptedException {
-
-        final CountDownLatch latch = new CountDownLatch(quorumSize);
-
-        final List<Contract.ReadReply> replies = new ArrayList<>();
-
-        for (PerfectStub stub : stubs) {
-            stub.readGeneral(request, new StreamObserver<>() {
+        context.run(() -> {
+            fullCall.accept(order.get(0), new StreamObserver<>() {
                 @Override
                 public void onNext(Contract.ReadReply value) {
-                    //Perfect Stub already guarantees the reply is valid
-                    synchronized (latch) {
-                        if (latch.getCount() != 0) {
-                            replies.add(value);
-                            latch.countDown();
-                        }
+                    synchronized (digests) {
+                        full[0] = value;
                     }
+                    decide.run();
                 }
 
                 @Override
@@ -215,60 +334,114 @@ public class QuorumStub {
                 public void onCompleted() {
                 }
             });
-        }
-        latch.await();
-        return replies
-                .stream()
-                .sorted(Comparator.comparing(a -> -a.getAnnouncementsCount()))
-                .max(Comparator.comparing(a -> getSeq(a.getAnnouncementsList())))
-                .get();
+            for (int i = 1; i < order.size(); i++) {
+                digestCall.accept(order.get(i), new StreamObserver<>() {
+                    @Override
+                    public void onNext(Contract.ReadReply value) {
+                        synchronized (digests) {
+                            digests.add(value.getDigest().toByteArray());
+                        }
+                        decide.run();
+                    }
 
-    }
+                    @Override
+                    public void onError(Throwable t) {
+                    }
 
-    public Contract.ReadReply readGeneralReliable(Contract.ReadRequest request) throws InterruptedException {
+                    @Override
+                    public void onCompleted() {
+                    }
+                });
+            }
+        });
+        final AtomicReference<CompletableFuture<List<Contract.ReadReply>>> fallbackCall = new AtomicReference<>();
+        var result = decision.thenCompose(reply -> {
+            if (reply != null) {
+                return CompletableFuture.completedFuture(List.of(reply));
+            }
+            fallbackCall.set(fallback.get());
+            return fallbackCall.get();
+        });
+        //Cancelling the read stops the calls still running (the fallback's too)
+        result.whenComplete((value, t) -> {
+            decision.cancel(false);
+            var call = fallbackCall.get();
+            if (call != null) {
+                call.cancel(false);
+            }
+        });
+        return result;
+    }
 
-        final CountDownLatch latch = new CountDownLatch(quorumSize);
+    /**
+     * Same as source.thenApply(fn), but cancelling the returned future also cancels the source
+     * (which stops its calls), so a caller giving up on the result doesn't leave the calls retrying
+     */
+    static <T, U> CompletableFuture<U> map(CompletableFuture<T> source, Function<? super T, ? extends U> fn) {
+        CompletableFuture<U> derived = source.thenApply(fn);
+        derived.whenComplete((value, t) -> {
+            if (derived.isCancelled()) {
+                source.cancel(false);
+            }
+        });
+        return derived;
+    }
 
-        final List<Contract.ReadReply> replies = new ArrayList<>();
+    /**
+     * Servers with a closed circuit first, then the fastest first
+     */
+    private List<PerfectStub> callOrder() {
+        if (tracker == null) {
+            return stubs;
+        }
+        var order = new ArrayList<>(stubs);
+        order.sort(Comparator
+                .<PerfectStub, Boolean>comparing(stub -> stub.getCircuitState() != CircuitBreaker.State.CLOSED)
+                .thenComparingDouble(stub -> tracker.averageNanos(stub.getServerId())));
+        return order;
+    }
 
+    private Map<PerfectStub, Announcement> cipherForServers(Announcement announcement) throws GeneralSecurityException {
+        var ciphered = new HashMap<PerfectStub, Announcement>();
         for (PerfectStub stub : stubs) {
-            stub.readGeneralReliable(request, new StreamObserver<>() {
-                @Override
-                public void onNext(Contract.ReadReply value) {
-                    //Perfect Stub already guarantees the reply is valid
-                    synchronized (latch) {
-                        if (latch.getCount() != 0) {
-                            replies.add(value);
-                            latch.countDown();
-                        }
-                    }
-                }
+            Announcement a = announcement
+                    .toBuilder()
+                    .setMessage(CipherUtils.cipherAndEncode(announcement.getMessage().getBytes(), stub.getServerKey()))
+                    .build();
+            ciphered.put(stub, a);
+        }
+        return ciphered;
+    }
 
-                @Override
-                public void onError(Throwable t) {
-                }
+    /**
+     * @return true if every reply has the same latest seq, i.e. no server is behind the others
+     */
+    public static boolean isUnanimous(List<Contract.ReadReply> replies) {
+        return replies
+                .stream()
+                .map(reply -> getSeq(reply.getAnnouncementsList()))
+                .distinct()
+                .count() <= 1;
+    }
 
-                @Override
-                public void onCompleted() {
-                }
-            }, serverKeys, quorumSize);
-        }
-        latch.await();
+    public static Contract.ReadReply mostRecent(List<Contract.ReadReply> replies) {
         return replies
                 .stream()
                 .sorted(Comparator.comparing(a -> -a.getAnnouncementsCount()))
                 .max(Comparator.comparing(a -> getSeq(a.getAnnouncementsList())))
                 .get();
-
     }
 
-
-    public static long getSeq(List<Announcement> a) {
-        if (a.size() == 0) {
-            return 0;
-        } else {
-            return a.get(a.size() - 1).getSeq() + 1;
+    private static <T> T await(CompletableFuture<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            //Nobody is waiting for the result anymore
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            //Should never happen, the perfect links never fail
+            throw new IllegalStateException(e.getCause());
         }
     }
-
 }
@@ -10,89 +10,274 @@ import dpas.utils.auth.CipherUtils;
 import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Atomic register on top of the quorum stub.
+ * The asynchronous methods never block, their futures fail with the {@link GeneralSecurityException} or
+ * {@link CommonDomainException} the blocking methods would have thrown.
+ * Posts to the same board are pipelined, see {@link PostPipeline}.
+ * Reads fetch the announcements from a single server and only their digest from the others,
+ * see {@link QuorumStub#readReliableDigestAsync}
+ */
 public class RegisterStub {
 
+    public static final int DEFAULT_WINDOW = 16;
+
+    /**
+     * Builds (and signs) the posts started by replies, so the signatures don't run on the transport's callback threads.
+     * Shared by all register stubs
+     */
+    private static final ExecutorService BUILDER = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            var thread = new Thread(task, "dpas-post-builder-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     private final QuorumStub stub;
 
-    private final Map<String, Long> seqs;
+    private final int window;
+
+    /**
+     * Posts in flight for each user board
+     */
+    private final Map<String, PostPipeline> pipelines;
+
+    /**
+     * Posts in flight for the general board
+     */
+    private final PostPipeline generalPipeline;
 
     public RegisterStub(QuorumStub stub) {
+        this(stub, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window maximum number of posts in flight for each board
+     */
+    public RegisterStub(QuorumStub stub, int window) {
         this.stub = stub;
-        this.seqs = new ConcurrentHashMap<>();
+        this.window = window;
+        this.pipelines = new ConcurrentHashMap<>();
+        //Other users also post to the general board, so only reuse the seq while posts are outstanding
+        this.generalPipeline = new PostPipeline(window, this::readGeneralSeqAsync, true, BUILDER);
     }
 
-    public Contract.Announcement[] read(PublicKey key, int number) throws InterruptedException, GeneralSecurityException {
+    public CompletableFuture<Contract.Announcement[]> readAsync(PublicKey key, int number) {
         var request = Contract.ReadRequest.newBuilder()
                 .setPublicKey(ByteString.copyFrom(key.getEncoded()))
                 .setNumber(number)
                 .build();
-        var reply = stub.readReliable(request);
-
-        writeBack(reply);
-
-        seqs.put(Base64.getEncoder().encodeToString(key.getEncoded()), QuorumStub.getSeq(reply.getAnnouncementsList()));
-        return reply.getAnnouncementsList().toArray(new Contract.Announcement[0]);
+        return QuorumStub.map(stub.readReliableDigestAsync(request), replies -> {
+                    var reply = QuorumStub.mostRecent(replies);
+                    //Only write back when some server of the quorum is behind, without waiting for it
+                    if (!QuorumStub.isUnanimous(replies)) {
+                        writeBackAsync(reply);
+                    }
+                    getPipeline(key).observe(QuorumStub.getSeq(reply.getAnnouncementsList()));
+                    return reply.getAnnouncementsList().toArray(new Contract.Announcement[0]);
+                });
     }
 
-    public void writeBack(Contract.ReadReply reply) throws GeneralSecurityException, InterruptedException {
-        if (reply.getAnnouncementsCount() != 0) {
-            stub.post(reply.getAnnouncements(reply.getAnnouncementsCount() - 1));
+    public CompletableFuture<Void> writeBackAsync(Contract.ReadReply reply) {
+        if (reply.getAnnouncementsCount() == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return stub.postAsync(reply.getAnnouncements(reply.getAnnouncementsCount() - 1));
+        } catch (GeneralSecurityException e) {
+            return CompletableFuture.failedFuture(e);
         }
     }
 
-    public Contract.Announcement[] readGeneral(int number) throws InterruptedException {
+    public CompletableFuture<Contract.Announcement[]> readGeneralAsync(int number) {
         var request = Contract.ReadRequest.newBuilder()
                 .setNumber(number)
                 .build();
-        var reply = stub.readGeneralReliable(request);
+        return QuorumStub.map(stub.readGeneralReliableDigestAsync(request),
+                replies -> QuorumStub.mostRecent(replies).getAnnouncementsList().toArray(new Contract.Announcement[0]));
+    }
 
-        return reply.getAnnouncementsList().toArray(new Contract.Announcement[0]);
+    public CompletableFuture<Void> postAsync(PublicKey pub, PrivateKey priv, String message, Contract.Announcement[] references) {
+        return getPipeline(pub).submit(seq -> {
+            var request = ContractGenerator.generateAnnouncement(pub, priv, message, seq, CipherUtils.keyToString(pub), references);
+            return stub.postAsync(request);
+        });
     }
 
-    public void post(PublicKey pub, PrivateKey priv, String message, Contract.Announcement[] references)
-            throws InterruptedException, GeneralSecurityException, CommonDomainException {
-        var seq = getSeq(pub);
-        var request = ContractGenerator.generateAnnouncement(pub, priv, message, seq, CipherUtils.keyToString(pub), references);
-        stub.post(request);
+    /**
+     * Posts the messages as consecutive announcements of the user's board, all broadcast together by the servers
+     */
+    public CompletableFuture<Void> postBatchAsync(PublicKey pub, PrivateKey priv, List<String> messages) {
+        return postBatchAsync(pub, priv, messages, false);
     }
 
+    /**
+     * @param merkleSigned sign the whole batch once (over the Merkle root of the announcements) instead of
+     *                     signing every announcement
+     */
+    public CompletableFuture<Void> postBatchAsync(PublicKey pub, PrivateKey priv, List<String> messages, boolean merkleSigned) {
+        if (messages.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return getPipeline(pub).submit(messages.size(), first -> {
+            var boardIdentifier = CipherUtils.keyToString(pub);
+            if (merkleSigned) {
+                return stub.postBatchAsync(ContractGenerator.generateMerkleSignedAnnouncements(pub, priv, messages, first, boardIdentifier));
+            }
+            var batch = new ArrayList<Contract.Announcement>(messages.size());
+            for (int i = 0; i < messages.size(); i++) {
+                batch.add(ContractGenerator.generateAnnouncement(pub, priv, messages.get(i), first + i, boardIdentifier, null));
+            }
+            return stub.postBatchAsync(batch);
+        });
+    }
 
-    public void postGeneral(PublicKey pub, PrivateKey priv, String message, Contract.Announcement[] references)
-            throws InterruptedException, GeneralSecurityException, CommonDomainException {
+    public CompletableFuture<Void> postGeneralAsync(PublicKey pub, PrivateKey priv, String message, Contract.Announcement[] references) {
+        return generalPipeline.submit(seq -> {
+            var request = ContractGenerator.generateAnnouncement(pub, priv, message, seq, GeneralBoard.GENERAL_BOARD_IDENTIFIER, references);
+            return stub.postGeneralAsync(request);
+        });
+    }
+
+    public CompletableFuture<Void> registerAsync(PublicKey pub, PrivateKey priv) {
+        try {
+            var req = ContractGenerator.generateRegisterRequest(pub, priv);
+            return stub.registerAsync(req);
+        } catch (GeneralSecurityException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @return the seq the next post to the user's board will get (it isn't reserved)
+     */
+    public CompletableFuture<Long> getSeqAsync(PublicKey userKey) {
+        return getPipeline(userKey).peek();
+    }
+
+    private PostPipeline getPipeline(PublicKey userKey) {
+        var userId = Base64.getEncoder().encodeToString(userKey.getEncoded());
+        return pipelines.computeIfAbsent(userId, id -> new PostPipeline(window, () -> readSeqAsync(userKey), false, BUILDER));
+    }
+
+    private CompletableFuture<Long> readSeqAsync(PublicKey userKey) {
         var req = Contract.ReadRequest.newBuilder()
                 .setNumber(1)
+                .setPublicKey(ByteString.copyFrom(userKey.getEncoded()))
                 .setNonce(UUID.randomUUID().toString())
                 .build();
-        var seq = QuorumStub.getSeq(stub.readGeneralReliable(req).getAnnouncementsList());
-        var request = ContractGenerator.generateAnnouncement(pub, priv, message, seq, GeneralBoard.GENERAL_BOARD_IDENTIFIER, references);
-        stub.postGeneral(request);
+        return QuorumStub.map(stub.readReliableAsync(req), reply -> QuorumStub.getSeq(reply.getAnnouncementsList()));
+    }
+
+    private CompletableFuture<Long> readGeneralSeqAsync() {
+        var req = Contract.ReadRequest.newBuilder()
+                .setNumber(1)
+                .setNonce(UUID.randomUUID().toString())
+                .build();
+        return QuorumStub.map(stub.readGeneralReliableAsync(req), reply -> QuorumStub.getSeq(reply.getAnnouncementsList()));
+    }
+
+    public Contract.Announcement[] read(PublicKey key, int number) throws InterruptedException, GeneralSecurityException {
+        try {
+            return await(readAsync(key, number));
+        } catch (CommonDomainException e) {
+            //Should never happen, reads don't build announcements
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void writeBack(Contract.ReadReply reply) throws GeneralSecurityException, InterruptedException {
+        try {
+            await(writeBackAsync(reply));
+        } catch (CommonDomainException e) {
+            //Should never happen, the announcement was already built
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Contract.Announcement[] readGeneral(int number) throws InterruptedException {
+        try {
+            return await(readGeneralAsync(number));
+        } catch (GeneralSecurityException | CommonDomainException e) {
+            //Should never happen, reading the general board doesn't write back
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void post(PublicKey pub, PrivateKey priv, String message, Contract.Announcement[] references)
+            throws InterruptedException, GeneralSecurityException, CommonDomainException {
+        await(postAsync(pub, priv, message, references));
+    }
+
+    public void postBatch(PublicKey pub, PrivateKey priv, List<String> messages)
+            throws InterruptedException, GeneralSecurityException, CommonDomainException {
+        await(postBatchAsync(pub, priv, messages));
+    }
+
+    public void postBatch(PublicKey pub, PrivateKey priv, List<String> messages, boolean merkleSigned)
+            throws InterruptedException, GeneralSecurityException, CommonDomainException {
+        await(postBatchAsync(pub, priv, messages, merkleSigned));
+    }
+
+    public void postGeneral(PublicKey pub, PrivateKey priv, String message, Contract.Announcement[] references)
+            throws InterruptedException, GeneralSecurityException, CommonDomainException {
+        await(postGeneralAsync(pub, priv, message, references));
     }
 
     public void register(PublicKey pub, PrivateKey priv) throws InterruptedException, GeneralSecurityException {
-        var req = ContractGenerator.generateRegisterRequest(pub, priv);
-        stub.register(req);
+        try {
+            await(registerAsync(pub, priv));
+        } catch (CommonDomainException e) {
+            //Should never happen, registering doesn't build announcements
+            throw new IllegalStateException(e);
+        }
     }
 
     public long getSeq(PublicKey userKey) throws InterruptedException {
-        var userId = Base64.getEncoder().encodeToString(userKey.getEncoded());
-        if (seqs.containsKey(userId)) {
-            //Don't need read, already know seq from previous read
-            return seqs.put(userId, seqs.get(userId) + 1);
-        } else {
-            //need read, don't know seq from previous read
-            var req = Contract.ReadRequest.newBuilder()
-                    .setNumber(1)
-                    .setPublicKey(ByteString.copyFrom(userKey.getEncoded()))
-                    .setNonce(UUID.randomUUID().toString())
-                    .build();
-            var seq = QuorumStub.getSeq(stub.readReliable(req).getAnnouncementsList());
-            seqs.put(userId, seq + 1);
-            return seq;
+        try {
+            return await(getSeqAsync(userKey));
+        } catch (GeneralSecurityException | CommonDomainException e) {
+            //Should never happen, getting the seq only reads
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future)
+            throws InterruptedException, GeneralSecurityException, CommonDomainException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof GeneralSecurityException) {
+                throw (GeneralSecurityException) cause;
+            }
+            if (cause instanceof CommonDomainException) {
+                throw (CommonDomainException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
         }
     }
 }
@@ -0,0 +1,80 @@
+package dpas.utils.link;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Configuration of the retries made by a perfect link.
+ * Delays grow exponentially with the attempt number up to a maximum and are randomized (equal jitter)
+ * so that clients and servers retrying to the same replica don't do it in lockstep
+ */
+public class RetryPolicy {
+    public static final RetryPolicy DEFAULT = new RetryPolicy(10, 1000, 2.0, 5, 1000);
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double multiplier;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long probeTimeoutMillis;
+
+    public RetryPolicy(long initialDelayMillis, long maxDelayMillis, double multiplier, int failureThreshold, long openMillis) {
+        this(initialDelayMillis, maxDelayMillis, multiplier, failureThreshold, openMillis, CircuitBreaker.DEFAULT_PROBE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param initialDelayMillis delay before the first retry
+     * @param maxDelayMillis     maximum delay between retries
+     * @param multiplier         factor by which the delay grows with each failed attempt
+     * @param failureThreshold   consecutive failures needed to open the server's circuit
+     * @param openMillis         time the circuit stays open before a probe is let through
+     * @param probeTimeoutMillis deadline of a probe, one that doesn't return in time reopens the circuit
+     */
+    public RetryPolicy(long initialDelayMillis, long maxDelayMillis, double multiplier, int failureThreshold, long openMillis,
+                       long probeTimeoutMillis) {
+        if (initialDelayMillis < 0 || maxDelayMillis < initialDelayMillis || multiplier < 1 || failureThreshold < 1 || openMillis < 0
+                || probeTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Invalid retry policy");
+        }
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.multiplier = multiplier;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.probeTimeoutMillis = probeTimeoutMillis;
+    }
+
+    /**
+     * @param attempt number of failed attempts so far (starting at 0)
+     * @return the time to wait before the next attempt, between half and the whole of the exponential delay
+     */
+    public long delayMillis(int attempt) {
+        double delay = initialDelayMillis * Math.pow(multiplier, attempt);
+        long capped = (long) Math.min(delay, maxDelayMillis);
+        long half = capped / 2;
+        return half + ThreadLocalRandom.current().nextLong(capped - half + 1);
+    }
+
+    public long getInitialDelayMillis() {
+        return initialDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    public double getMultiplier() {
+        return multiplier;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    public long getProbeTimeoutMillis() {
+        return probeTimeoutMillis;
+    }
+}
@@ -0,0 +1,57 @@
+package dpas.utils.auth;
+
+import com.google.protobuf.ByteString;
+import dpas.grpc.contract.Contract;
+import io.grpc.Status;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+
+import static org.junit.Assert.*;
+
+public class ErrorGeneratorTest {
+
+    private static KeyPair _serverKeys;
+
+    @BeforeClass
+    public static void oneTimeSetup() throws NoSuchAlgorithmException {
+        KeyPairGenerator keygen = KeyPairGenerator.getInstance("RSA");
+        keygen.initialize(2048);
+        _serverKeys = keygen.generateKeyPair();
+    }
+
+    @Test
+    public void repeatedErrorSignedOnce() {
+        var request = Contract.RegisterRequest.newBuilder().setMac(ByteString.copyFromUtf8("repeated")).build();
+        long before = ErrorGenerator.getSignedCount();
+        var first = ErrorGenerator.generate(Status.INVALID_ARGUMENT, "Invalid", request, _serverKeys.getPrivate());
+        var second = ErrorGenerator.generate(Status.INVALID_ARGUMENT, "Invalid", request, _serverKeys.getPrivate());
+        assertEquals(before + 1, ErrorGenerator.getSignedCount());
+        assertTrue(MacVerifier.verifyMac(_serverKeys.getPublic(), first));
+        assertTrue(MacVerifier.verifyMac(_serverKeys.getPublic(), second));
+    }
+
+    @Test
+    public void differentMessageSignedAgain() {
+        var request = Contract.RegisterRequest.newBuilder().setMac(ByteString.copyFromUtf8("different")).build();
+        long before = ErrorGenerator.getSignedCount();
+        ErrorGenerator.generate(Status.INVALID_ARGUMENT, "Invalid", request, _serverKeys.getPrivate());
+        var other = ErrorGenerator.generate(Status.INVALID_ARGUMENT, "Other", request, _serverKeys.getPrivate());
+        assertEquals(before + 2, ErrorGenerator.getSignedCount());
+        assertTrue(MacVerifier.verifyMac(_serverKeys.getPublic(), other));
+    }
+
+    @Test
+    public void batchErrorHasFixedSizeTrailer() {
+        var batch = Contract.AnnouncementBatch.newBuilder();
+        for (int i = 0; i < 64; i++) {
+            batch.addAnnouncements(Contract.Announcement.newBuilder().setSignature(ByteString.copyFrom(new byte[512])).setSeq(i));
+        }
+        var error = ErrorGenerator.generate(Status.INVALID_ARGUMENT, "Invalid", batch.build(), _serverKeys.getPrivate());
+        assertEquals(32, error.getTrailers().get(ErrorGenerator.contentKey).length);
+        assertTrue(MacVerifier.verifyMac(_serverKeys.getPublic(), error));
+    }
+}
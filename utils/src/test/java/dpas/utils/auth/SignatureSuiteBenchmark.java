@@ -0,0 +1,78 @@
+package dpas.utils.auth;
+
+import dpas.common.domain.Announcement;
+import dpas.common.domain.SignatureSuite;
+import dpas.common.domain.User;
+import dpas.common.domain.constants.JsonConstants;
+import dpas.grpc.contract.Contract;
+import dpas.utils.ContractGenerator;
+
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.util.HashSet;
+
+/**
+ * Compares the signature suites of the clients' keys on the path of a post and a register, from the client creating
+ * the request to the server validating it (the server's key is RSA in every case).
+ * Not a test, run it with the test classpath: java dpas.utils.auth.SignatureSuiteBenchmark [iterations]
+ */
+public final class SignatureSuiteBenchmark {
+
+    private static final String MESSAGE = "Hello World";
+
+    private SignatureSuiteBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        KeyPair server = SignatureSuite.RSA.generateKeyPair();
+
+        System.out.printf("%-12s %12s %12s %12s %12s %10s %10s %10s%n", "suite", "post (us)", "validate (us)",
+                "register (us)", "check (us)", "signature", "request", "json");
+        for (var suite : SignatureSuite.values()) {
+            if (!suite.isAvailable()) {
+                System.out.printf("%-12s not available in this JDK%n", suite);
+                continue;
+            }
+            run(suite, server, iterations / 10);
+            run(suite, server, iterations);
+        }
+    }
+
+    private static void run(SignatureSuite suite, KeyPair server, int iterations) throws Exception {
+        KeyPair client = suite.generateKeyPair();
+        User user = new User(client.getPublic());
+        String board = user.getUserBoard().getIdentifier();
+        PrivateKey serverKey = server.getPrivate();
+
+        long post = 0, validate = 0, register = 0, check = 0;
+        Contract.Announcement request = null;
+        Announcement announcement = null;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            request = ContractGenerator.generateAnnouncement(server.getPublic(), client.getPublic(), client.getPrivate(),
+                    MESSAGE, i + 1, board, null);
+            long posted = System.nanoTime();
+            String message = new String(CipherUtils.decodeAndDecipher(request.getMessage(), serverKey));
+            announcement = new Announcement(request.getSignature().toByteArray(), user, message, new HashSet<>(),
+                    user.getUserBoard(), request.getSeq());
+            long validated = System.nanoTime();
+            var registerRequest = ContractGenerator.generateRegisterRequest(client.getPublic(), client.getPrivate());
+            long registered = System.nanoTime();
+            if (!MacVerifier.verifyMac(client.getPublic(), ByteUtils.toByteArray(registerRequest), registerRequest.getMac().toByteArray())) {
+                throw new IllegalStateException("Invalid mac");
+            }
+            long checked = System.nanoTime();
+
+            post += posted - start;
+            validate += validated - posted;
+            register += registered - validated;
+            check += checked - registered;
+        }
+        System.out.printf("%-12s %12.1f %12.1f %12.1f %12.1f %10d %10d %10d%n", suite,
+                post / 1000.0 / iterations, validate / 1000.0 / iterations,
+                register / 1000.0 / iterations, check / 1000.0 / iterations,
+                announcement.getSignature().length, request.getSerializedSize(),
+                announcement.toJson(JsonConstants.POST_OP_TYPE).toString().length());
+    }
+}
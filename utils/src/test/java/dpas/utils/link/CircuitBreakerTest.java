@@ -0,0 +1,95 @@
+package dpas.utils.link;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterThreshold() {
+        var clock = new AtomicLong();
+        var breaker = new CircuitBreaker(3, 100, clock::get);
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(100, breaker.millisUntilProbe());
+    }
+
+    @Test
+    public void successResetsFailures() {
+        var breaker = new CircuitBreaker(2, 100, () -> 0);
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void singleProbeWhenHalfOpen() {
+        var clock = new AtomicLong();
+        var breaker = new CircuitBreaker(1, 100, clock::get);
+        breaker.onFailure();
+        clock.set(100);
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedProbeReopens() {
+        var clock = new AtomicLong();
+        var breaker = new CircuitBreaker(1, 100, clock::get);
+        breaker.onFailure();
+        clock.set(150);
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(100, breaker.millisUntilProbe());
+    }
+
+    @Test
+    public void timedOutProbeReopens() {
+        var clock = new AtomicLong();
+        var breaker = new CircuitBreaker(1, 100, 50, clock::get);
+        breaker.onFailure();
+        clock.set(100);
+        assertTrue(breaker.allowRequest());
+        clock.set(140);
+        assertFalse(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(10, breaker.millisUntilProbe());
+
+        //The probe never returned
+        clock.set(150);
+        assertFalse(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1, breaker.getTimedOutProbeCount());
+        assertEquals(100, breaker.millisUntilProbe());
+
+        clock.set(250);
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    public void backoffIsBounded() {
+        var policy = new RetryPolicy(10, 1000, 2.0, 5, 1000);
+        for (int attempt = 0; attempt < 40; attempt++) {
+            long expected = Math.min(1000, (long) (10 * Math.pow(2, attempt)));
+            long delay = policy.delayMillis(attempt);
+            assertTrue(delay >= expected / 2);
+            assertTrue(delay <= expected);
+        }
+    }
+}
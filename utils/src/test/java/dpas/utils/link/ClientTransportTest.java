@@ -0,0 +1,18 @@
+package dpas.utils.link;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ClientTransportTest {
+
+    @Test
+    public void closeShutsDownChannels() throws InterruptedException {
+        var transport = new ClientTransport(1, 1);
+        var first = transport.newChannel("localhost", 9001);
+        var second = transport.newChannel("localhost", 9002);
+        transport.close();
+        assertTrue(first.isTerminated());
+        assertTrue(second.isTerminated());
+    }
+}
@@ -0,0 +1,65 @@
+package dpas.utils.link;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatencyTrackerTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void unknownServerIsFastest() {
+        var tracker = new LatencyTracker();
+        tracker.record("a", 10 * MILLI);
+        assertEquals(0, tracker.averageNanos("b"), 0);
+        assertEquals(10 * MILLI, tracker.averageNanos("a"), 0);
+    }
+
+    @Test
+    public void averageMovesTowardsSamples() {
+        var tracker = new LatencyTracker(0.5, 0.95, 0, 1000);
+        tracker.record("a", 10 * MILLI);
+        tracker.record("a", 20 * MILLI);
+        assertEquals(15 * MILLI, tracker.averageNanos("a"), 0);
+    }
+
+    @Test
+    public void pendingOnlyIncreasesAverage() {
+        var tracker = new LatencyTracker(0.5, 0.95, 0, 1000);
+        tracker.record("a", 10 * MILLI);
+        tracker.recordPending("a", 2 * MILLI);
+        assertEquals(10 * MILLI, tracker.averageNanos("a"), 0);
+        tracker.recordPending("a", 30 * MILLI);
+        assertEquals(20 * MILLI, tracker.averageNanos("a"), 0);
+        //Pending calls don't count for the hedge delay
+        assertEquals(10, tracker.hedgeDelayMillis());
+    }
+
+    @Test
+    public void hedgeDelayIsPercentile() {
+        var tracker = new LatencyTracker(0.2, 0.9, 0, 1000);
+        assertEquals(1000, tracker.hedgeDelayMillis());
+        for (int i = 1; i <= 10; i++) {
+            tracker.record("a", i * MILLI);
+        }
+        assertEquals(9, tracker.hedgeDelayMillis());
+    }
+
+    @Test
+    public void hedgeDelayIsBounded() {
+        var tracker = new LatencyTracker(0.2, 0.9, 5, 50);
+        tracker.record("a", MILLI);
+        assertEquals(5, tracker.hedgeDelayMillis());
+        tracker = new LatencyTracker(0.2, 0.9, 5, 50);
+        tracker.record("a", 100 * MILLI);
+        assertEquals(50, tracker.hedgeDelayMillis());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPercentile() {
+        new LatencyTracker(0.2, 1.5, 0, 10);
+    }
+}
@@ -0,0 +1,110 @@
+package dpas.utils.link;
+
+import dpas.common.domain.exception.InvalidMessageSizeException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PostPipelineTest {
+
+    @Test
+    public void reservesConsecutiveSeqsWithinWindow() {
+        var reads = new AtomicInteger();
+        var pipeline = new PostPipeline(2, () -> {
+            reads.incrementAndGet();
+            return CompletableFuture.completedFuture(5L);
+        }, false);
+        List<Long> seqs = new ArrayList<>();
+        List<CompletableFuture<Void>> sent = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            pipeline.submit(seq -> {
+                seqs.add(seq);
+                var future = new CompletableFuture<Void>();
+                sent.add(future);
+                return future;
+            });
+        }
+        //Third post waits for a free slot
+        assertEquals(List.of(5L, 6L), seqs);
+        assertEquals(2, pipeline.getOutstanding());
+
+        sent.get(0).complete(null);
+        assertEquals(List.of(5L, 6L, 7L), seqs);
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void failedBuildDoesNotConsumeSeq() throws Exception {
+        var pipeline = new PostPipeline(4, () -> CompletableFuture.completedFuture(0L), false);
+        var failed = pipeline.submit(seq -> {
+            throw new InvalidMessageSizeException("Invalid Message Length");
+        });
+        try {
+            failed.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InvalidMessageSizeException);
+        }
+        assertEquals(0L, (long) pipeline.submit(CompletableFuture::completedFuture).get());
+        assertEquals(1L, (long) pipeline.submit(CompletableFuture::completedFuture).get());
+    }
+
+    @Test
+    public void peekDoesNotReserveSeq() throws Exception {
+        var pipeline = new PostPipeline(4, () -> CompletableFuture.completedFuture(7L), false);
+        assertEquals(7L, (long) pipeline.peek().get());
+        assertEquals(7L, (long) pipeline.peek().get());
+        assertEquals(7L, (long) pipeline.submit(CompletableFuture::completedFuture).get());
+        assertEquals(8L, (long) pipeline.peek().get());
+        assertEquals(0, pipeline.getOutstanding());
+    }
+
+    @Test
+    public void cancelledPosts() {
+        var pipeline = new PostPipeline(1, () -> CompletableFuture.completedFuture(0L), false);
+        List<Long> seqs = new ArrayList<>();
+        List<CompletableFuture<Void>> sent = new ArrayList<>();
+        PostPipeline.SeqCall<Void> call = seq -> {
+            seqs.add(seq);
+            var future = new CompletableFuture<Void>();
+            sent.add(future);
+            return future;
+        };
+        pipeline.submit(call);
+        var second = pipeline.submit(call);
+        var third = pipeline.submit(call);
+        //A waiting post is dropped without taking a seq
+        second.cancel(false);
+        sent.get(0).complete(null);
+        assertEquals(List.of(0L, 1L), seqs);
+        //A sent one cancels its calls
+        third.cancel(false);
+        assertTrue(sent.get(1).isCancelled());
+        assertEquals(0, pipeline.getOutstanding());
+    }
+
+    @Test
+    public void rereadsWhenIdle() throws Exception {
+        var board = new AtomicInteger(3);
+        var pipeline = new PostPipeline(4, () -> CompletableFuture.completedFuture((long) board.get()), true);
+        assertEquals(3L, (long) pipeline.submit(CompletableFuture::completedFuture).get());
+        //Someone else posted in the meantime
+        board.set(10);
+        assertEquals(10L, (long) pipeline.submit(CompletableFuture::completedFuture).get());
+    }
+
+    @Test
+    public void failedPostForcesReread() throws Exception {
+        var reads = new AtomicInteger();
+        var pipeline = new PostPipeline(4, () -> CompletableFuture.completedFuture((long) reads.getAndIncrement() * 100), false);
+        var failed = pipeline.submit(seq -> CompletableFuture.failedFuture(new IllegalStateException()));
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(100L, (long) pipeline.submit(CompletableFuture::completedFuture).get());
+    }
+}
@@ -297,7 +297,8 @@ public class PerfectStubPostGeneralTest {
             }
         };
         serviceRegistry.addService(impl);
-        CountDownLatch latch = new CountDownLatch(1);
+        //Retries are delayed, wait for every attempt to complete
+        CountDownLatch latch = new CountDownLatch(4);
         pstub.postGeneral(_request, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
@@ -300,7 +300,8 @@ public class PerfectStubPostTest {
             }
         };
         serviceRegistry.addService(impl);
-        CountDownLatch latch = new CountDownLatch(1);
+        //Retries are delayed, wait for every attempt to complete
+        CountDownLatch latch = new CountDownLatch(4);
         pstub.post(_request, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
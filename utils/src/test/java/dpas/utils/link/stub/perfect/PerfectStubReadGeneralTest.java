@@ -298,7 +298,8 @@ public class PerfectStubReadGeneralTest {
             }
         };
         serviceRegistry.addService(impl);
-        CountDownLatch latch = new CountDownLatch(1);
+        //Retries are delayed, wait for every attempt to complete
+        CountDownLatch latch = new CountDownLatch(4);
         pstub.readGeneral(Contract.ReadRequest.newBuilder()
                 .setPublicKey(ByteString.copyFrom(_pubKey.getEncoded()))
                 .setNumber(2)
@@ -306,7 +306,8 @@ public class PerfectStubReadTest {
             }
         };
         serviceRegistry.addService(impl);
-        CountDownLatch latch = new CountDownLatch(1);
+        //Retries are delayed, wait for every attempt to complete
+        CountDownLatch latch = new CountDownLatch(4);
         pstub.read(Contract.ReadRequest.newBuilder()
                 .setPublicKey(ByteString.copyFrom(_pubKey.getEncoded()))
                 .setNumber(2)
@@ -294,7 +294,8 @@ public class PerfectStubRegisterTest {
             }
         };
         serviceRegistry.addService(impl);
-        CountDownLatch latch = new CountDownLatch(1);
+        //Retries are delayed, wait for every attempt to complete
+        CountDownLatch latch = new CountDownLatch(4);
         pstub.register(_request, new StreamObserver<>() {
             @Override
             public void onNext(Contract.MacReply value) {
@@ -0,0 +1,86 @@
+package dpas.utils.link.stub.quorum;
+
+import dpas.grpc.contract.Contract;
+import dpas.grpc.contract.ServiceDPASGrpc;
+import dpas.utils.ContractGenerator;
+import dpas.utils.link.PerfectStub;
+import dpas.utils.link.QuorumStub;
+import dpas.utils.link.RetryPolicy;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.security.*;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class QuorumStubCancelTest {
+    @Rule
+    public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+    private static PrivateKey _serverPrivKey;
+    private static PublicKey _serverPKey;
+    private static Contract.RegisterRequest _request;
+
+    @BeforeClass
+    public static void oneTimeSetup() throws GeneralSecurityException {
+        KeyPairGenerator keygen = KeyPairGenerator.getInstance("RSA");
+        keygen.initialize(4096);
+
+        KeyPair serverPair = keygen.generateKeyPair();
+        _serverPKey = serverPair.getPublic();
+        _serverPrivKey = serverPair.getPrivate();
+
+        KeyPair keyPair = keygen.generateKeyPair();
+        _request = ContractGenerator.generateRegisterRequest(keyPair.getPublic(), keyPair.getPrivate());
+    }
+
+    @Test
+    public void stragglerStopsAfterQuorum() throws Exception {
+        final AtomicInteger stragglerCalls = new AtomicInteger();
+        var stubs = new ArrayList<PerfectStub>();
+        var policy = new RetryPolicy(1, 2, 2.0, 1000, 1000);
+        for (int i = 0; i < 4; i++) {
+            final boolean straggler = i == 3;
+            String serverName = InProcessServerBuilder.generateName();
+            grpcCleanup.register(InProcessServerBuilder.forName(serverName)
+                    .addService(new ServiceDPASGrpc.ServiceDPASImplBase() {
+                        @Override
+                        public void register(Contract.RegisterRequest request, StreamObserver<Contract.MacReply> responseObserver) {
+                            if (straggler) {
+                                stragglerCalls.incrementAndGet();
+                                responseObserver.onError(Status.UNKNOWN.asRuntimeException());
+                                return;
+                            }
+                            try {
+                                responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac().toByteArray(), _serverPrivKey));
+                                responseObserver.onCompleted();
+                            } catch (GeneralSecurityException e) {
+                                responseObserver.onError(Status.INTERNAL.asRuntimeException());
+                            }
+                        }
+                    }).directExecutor().build().start());
+            ServiceDPASGrpc.ServiceDPASStub client = ServiceDPASGrpc.newStub(grpcCleanup.register(
+                    InProcessChannelBuilder.forName(serverName).directExecutor().build()));
+            stubs.add(new PerfectStub(client, _serverPKey, policy));
+        }
+
+        var qstub = new QuorumStub(stubs, 1);
+        qstub.registerAsync(_request).get(10, TimeUnit.SECONDS);
+
+        //Let any retry already scheduled run
+        Thread.sleep(200);
+        int calls = stragglerCalls.get();
+        assertTrue(calls >= 1);
+        Thread.sleep(500);
+        assertEquals(calls, stragglerCalls.get());
+    }
+}
@@ -0,0 +1,120 @@
+package dpas.utils.link.stub.quorum;
+
+import dpas.grpc.contract.Contract;
+import dpas.grpc.contract.ServiceDPASGrpc;
+import dpas.utils.ContractGenerator;
+import dpas.utils.link.LatencyTracker;
+import dpas.utils.link.PerfectStub;
+import dpas.utils.link.QuorumStub;
+import dpas.utils.link.RetryPolicy;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.grpc.testing.GrpcCleanupRule;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.security.*;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class QuorumStubHedgeTest {
+    @Rule
+    public final GrpcCleanupRule grpcCleanup = new GrpcCleanupRule();
+
+    private static final long MILLI = 1_000_000;
+
+    private static final PrivateKey[] _serverPrivKeys = new PrivateKey[4];
+    private static final PublicKey[] _serverPKeys = new PublicKey[4];
+    private static Contract.RegisterRequest _request;
+
+    private final AtomicInteger[] _calls = new AtomicInteger[4];
+
+    @BeforeClass
+    public static void oneTimeSetup() throws GeneralSecurityException {
+        KeyPairGenerator keygen = KeyPairGenerator.getInstance("RSA");
+        keygen.initialize(4096);
+
+        //Each server has its own key so the tracker tells them apart
+        for (int i = 0; i < 4; i++) {
+            KeyPair serverPair = keygen.generateKeyPair();
+            _serverPKeys[i] = serverPair.getPublic();
+            _serverPrivKeys[i] = serverPair.getPrivate();
+        }
+
+        KeyPair keyPair = keygen.generateKeyPair();
+        _request = ContractGenerator.generateRegisterRequest(keyPair.getPublic(), keyPair.getPrivate());
+    }
+
+    /**
+     * @param faulty      index of the server that never replies
+     * @param latencies   average latency of each server the tracker starts with, in milliseconds
+     * @param hedgeMillis fixed delay before calling the other servers
+     */
+    private QuorumStub quorumStub(int faulty, long[] latencies, long hedgeMillis) throws Exception {
+        var stubs = new ArrayList<PerfectStub>();
+        var policy = new RetryPolicy(1, 2, 2.0, 1000, 1000);
+        var tracker = new LatencyTracker(0.2, 0.95, hedgeMillis, hedgeMillis);
+        for (int i = 0; i < 4; i++) {
+            final boolean broken = i == faulty;
+            final PrivateKey serverPrivKey = _serverPrivKeys[i];
+            final AtomicInteger calls = new AtomicInteger();
+            _calls[i] = calls;
+            String serverName = InProcessServerBuilder.generateName();
+            grpcCleanup.register(InProcessServerBuilder.forName(serverName)
+                    .addService(new ServiceDPASGrpc.ServiceDPASImplBase() {
+                        @Override
+                        public void register(Contract.RegisterRequest request, StreamObserver<Contract.MacReply> responseObserver) {
+                            calls.incrementAndGet();
+                            if (broken) {
+                                responseObserver.onError(Status.UNKNOWN.asRuntimeException());
+                                return;
+                            }
+                            try {
+                                responseObserver.onNext(ContractGenerator.generateMacReply(request.getMac().toByteArray(), serverPrivKey));
+                                responseObserver.onCompleted();
+                            } catch (GeneralSecurityException e) {
+                                responseObserver.onError(Status.INTERNAL.asRuntimeException());
+                            }
+                        }
+                    }).directExecutor().build().start());
+            ServiceDPASGrpc.ServiceDPASStub client = ServiceDPASGrpc.newStub(grpcCleanup.register(
+                    InProcessChannelBuilder.forName(serverName).directExecutor().build()));
+            var stub = new PerfectStub(client, _serverPKeys[i], policy);
+            tracker.record(stub.getServerId(), latencies[i] * MILLI);
+            stubs.add(stub);
+        }
+        return new QuorumStub(stubs, 1, tracker);
+    }
+
+    @Test
+    public void onlyQuorumCalledWhenAllReply() throws Exception {
+        //The hedge delay is longer than the call takes, so only the three fastest servers are called
+        var qstub = quorumStub(-1, new long[]{1, 2, 3, 100}, 60_000);
+        qstub.registerAsync(_request).get(10, TimeUnit.SECONDS);
+        assertEquals(0, qstub.getHedgeCount());
+        assertEquals(0, _calls[3].get());
+    }
+
+    @Test
+    public void hedgeAroundSilentServer() throws Exception {
+        //The server that never replies is the fastest measured, the quorum is only reached once the slowest is called
+        var qstub = quorumStub(0, new long[]{1, 2, 3, 100}, 10);
+        qstub.registerAsync(_request).get(10, TimeUnit.SECONDS);
+        assertEquals(1, qstub.getHedgeCount());
+        assertEquals(1, _calls[3].get());
+    }
+
+    @Test
+    public void slowestServerNotCalled() throws Exception {
+        var qstub = quorumStub(0, new long[]{100, 1, 2, 3}, 60_000);
+        qstub.registerAsync(_request).get(10, TimeUnit.SECONDS);
+        assertEquals(0, qstub.getHedgeCount());
+        assertEquals(0, _calls[0].get());
+    }
+}
@@ -25,6 +25,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class QuorumStubReadTest {
@@ -174,6 +176,19 @@ public class QuorumStubReadTest {
         assertEquals(reply.getAnnouncementsList().size(), 3);
     }
 
+    @Test
+    public void unanimousReplies() {
+        var empty = Contract.ReadReply.newBuilder().build();
+        var one = Contract.ReadReply.newBuilder().addAnnouncements(_request).build();
+        var oneAndTwo = Contract.ReadReply.newBuilder().addAnnouncements(_request).addAnnouncements(_request2).build();
+        var two = Contract.ReadReply.newBuilder().addAnnouncements(_request2).build();
+
+        assertTrue(QuorumStub.isUnanimous(List.of(empty, empty, empty)));
+        assertTrue(QuorumStub.isUnanimous(List.of(oneAndTwo, two, oneAndTwo)));
+        assertFalse(QuorumStub.isUnanimous(List.of(oneAndTwo, one, oneAndTwo)));
+        assertFalse(QuorumStub.isUnanimous(List.of(empty, one, one)));
+    }
+
     public static List<ServiceDPASGrpc.ServiceDPASImplBase> allEmpyServers() {
         List<ServiceDPASGrpc.ServiceDPASImplBase> servers = new ArrayList<>();
         for (int i = 0; i < 4; i++) {